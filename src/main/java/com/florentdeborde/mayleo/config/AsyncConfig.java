@@ -2,21 +2,43 @@ package com.florentdeborde.mayleo.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Slf4j
 @Configuration
 public class AsyncConfig implements AsyncConfigurer {
 
+    public static final String MODE_VIRTUAL = "virtual";
+
+    // `platform` (default) or `virtual`
+    @Value("${app.mail.executor.mode:platform}")
+    private String executorMode;
+
+    @Value("${app.mail.executor.virtual.max-in-flight:500}")
+    private int virtualMaxInFlight;
+
+    /**
+     * Exposed as SendTaskExecutor so that ClaimSizer can read its free capacity.
+     * In `virtual` mode every send runs on its own, unpooled virtual thread: a send
+     * blocked on SMTP socket I/O parks instead of holding an OS thread, so no pool
+     * caps the concurrent SMTP conversations. Concurrency is bounded per SMTP host
+     * instead (see SmtpHostLimiter), `max-in-flight` only caps the sends in flight.
+     * No queue: what cannot start right away stays PENDING (see ClaimSizer).
+     */
     @Override
     @Bean(name = "emailTaskExecutor")
-    public Executor getAsyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    public SendTaskExecutor getAsyncExecutor() {
+        if (MODE_VIRTUAL.equalsIgnoreCase(executorMode)) {
+            return new VirtualSendExecutor("EmailTask-", virtualMaxInFlight);
+        }
+        PlatformSendExecutor executor = new PlatformSendExecutor();
         executor.setCorePoolSize(10);
         executor.setMaxPoolSize(20);
         executor.setQueueCapacity(500);
@@ -25,6 +47,23 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Runs worker wake-ups: a single thread with room for one queued run.
+     * While a run is queued, further wake-ups are discarded since that run
+     * will claim their rows anyway.
+     */
+    @Bean(name = "dispatchWakeUpExecutor")
+    public Executor dispatchWakeUpExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("DispatchWakeUp-");
+        executor.initialize();
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return (ex, method, params) ->
@@ -0,0 +1,31 @@
+package com.florentdeborde.mayleo.config;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * `platform` mode of the 'emailTaskExecutor': a bounded pool of OS threads in
+ * front of a bounded queue.
+ */
+public class PlatformSendExecutor extends ThreadPoolTaskExecutor implements SendTaskExecutor {
+
+    // Extra threads only start once the queue is full
+    @Override
+    public int concurrency() {
+        return getCorePoolSize();
+    }
+
+    @Override
+    public int running() {
+        return getActiveCount();
+    }
+
+    @Override
+    public int queued() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    @Override
+    public int remainingQueueCapacity() {
+        return getThreadPoolExecutor().getQueue().remainingCapacity();
+    }
+}
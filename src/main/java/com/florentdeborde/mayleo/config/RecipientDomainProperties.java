@@ -0,0 +1,46 @@
+package com.florentdeborde.mayleo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Limits per recipient domain (`app.mail.recipient-domains`), see
+ * RecipientDomainThrottle. Domains without an entry in `limits` get the
+ * defaults; 0 means unlimited. Map keys with dots are written in brackets in
+ * YAML: `"[gmail.com]"`.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.mail.recipient-domains")
+public class RecipientDomainProperties {
+
+    private Limit defaults = new Limit();
+    private Map<String, Limit> limits = new HashMap<>();
+    private int burst = 5;
+
+    public Limit limitFor(String domain) {
+        Limit limit = domain == null ? null : limits.get(domain.toLowerCase(Locale.ROOT));
+        return limit != null ? limit : defaults;
+    }
+
+    public boolean isConfigured(String domain) {
+        return domain != null && limits.containsKey(domain.toLowerCase(Locale.ROOT));
+    }
+
+    @Data
+    public static class Limit {
+        // Messages in flight at once towards the domain
+        private int maxConcurrency;
+        // Messages per minute towards the domain
+        private int perMinute;
+
+        public boolean isUnlimited() {
+            return maxConcurrency <= 0 && perMinute <= 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.florentdeborde.mayleo.config;
+
+/**
+ * Free capacity of the 'emailTaskExecutor', read by ClaimSizer to size claims
+ * whatever the executor mode.
+ */
+public interface SendCapacity {
+
+    // Sends that can run at once
+    int concurrency();
+
+    // Sends running
+    int running();
+
+    // Sends waiting for a thread
+    int queued();
+
+    // More sends the executor would still queue, not start
+    int remainingQueueCapacity();
+}
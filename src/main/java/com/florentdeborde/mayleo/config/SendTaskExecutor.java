@@ -0,0 +1,10 @@
+package com.florentdeborde.mayleo.config;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Type of the 'emailTaskExecutor' bean: runs the @Async sends and tells its
+ * free capacity, see AsyncConfig.
+ */
+public interface SendTaskExecutor extends AsyncTaskExecutor, SendCapacity {
+}
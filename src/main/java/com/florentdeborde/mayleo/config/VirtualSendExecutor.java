@@ -0,0 +1,64 @@
+package com.florentdeborde.mayleo.config;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * `virtual` mode of the 'emailTaskExecutor': every send starts on a new virtual
+ * thread, none is pooled. A semaphore caps the sends in flight; past it the send
+ * is rejected right away and the worker hands its requests back to PENDING.
+ * Nothing is queued.
+ */
+public class VirtualSendExecutor extends SimpleAsyncTaskExecutor implements SendTaskExecutor {
+
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    public VirtualSendExecutor(String threadNamePrefix, int maxInFlight) {
+        super(threadNamePrefix);
+        setVirtualThreads(true);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    protected void doExecute(Runnable task) {
+        if (!inFlight.tryAcquire()) {
+            throw new TaskRejectedException("Executor reached its " + maxInFlight + " sends in flight");
+        }
+        try {
+            super.doExecute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.release(); // Not started
+            throw e;
+        }
+    }
+
+    @Override
+    public int concurrency() {
+        return maxInFlight;
+    }
+
+    @Override
+    public int running() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @Override
+    public int queued() {
+        return 0;
+    }
+
+    @Override
+    public int remainingQueueCapacity() {
+        return 0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.florentdeborde.mayleo.controller;
+
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
+import com.florentdeborde.mayleo.exception.ExceptionCode;
+import com.florentdeborde.mayleo.exception.MayleoException;
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.service.EmailRequestArchive;
+import io.swagger.v3.oas.annotations.Parameter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read access to the requests moved to the local archive by the retention purge
+ * (see {@link EmailRequestArchive}). A client only sees its own requests.
+ */
+@RestController
+@RequestMapping("/email-request/archive")
+public class EmailRequestArchiveController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final EmailRequestArchive archive;
+
+    public EmailRequestArchiveController(EmailRequestArchive archive) {
+        this.archive = archive;
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ArchivedEmailRequest> getArchivedRequest(
+            @Parameter(hidden = true) @RequestAttribute("authenticatedClient") ApiClient client,
+            @PathVariable String id) throws IOException {
+
+        UUID requestId;
+        try {
+            requestId = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            // Not an id this gateway could have issued
+            throw new MayleoException(ExceptionCode.ARCHIVED_REQUEST_NOT_FOUND);
+        }
+
+        return archive.findById(client.getId(), requestId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new MayleoException(ExceptionCode.ARCHIVED_REQUEST_NOT_FOUND));
+    }
+
+    // `date` is a UTC day of creation
+    @GetMapping
+    public ResponseEntity<List<ArchivedEmailRequest>> getArchivedRequestsByDate(
+            @Parameter(hidden = true) @RequestAttribute("authenticatedClient") ApiClient client,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "100") int limit) throws IOException {
+
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(archive.findByClientAndDate(client.getId(), date, boundedLimit));
+    }
+}
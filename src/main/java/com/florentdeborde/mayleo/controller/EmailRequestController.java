@@ -1,14 +1,20 @@
 package com.florentdeborde.mayleo.controller;
 
+import com.florentdeborde.mayleo.dto.request.EmailRequestBatchDto;
 import com.florentdeborde.mayleo.dto.request.EmailRequestDto;
+import com.florentdeborde.mayleo.dto.response.EmailRequestBatchResponse;
+import com.florentdeborde.mayleo.dto.response.EmailRequestStreamResponse;
 import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.security.HmacVerifyingInputStream;
 import com.florentdeborde.mayleo.service.EmailRequestService;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 
@@ -32,4 +38,26 @@ public class EmailRequestController {
 
         return ResponseEntity.accepted().body(Collections.singletonMap("id", emailRequestId));
     }
+
+    @PostMapping("/batch")
+    public ResponseEntity<EmailRequestBatchResponse> createEmailRequests(
+            @Parameter(hidden = true) @RequestAttribute("authenticatedClient") ApiClient client,
+            @RequestHeader(value = "X-Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody EmailRequestBatchDto dto) {
+
+        EmailRequestBatchResponse response = service.createEmailRequests(client, dto.getRequests(), idempotencyKey);
+
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<EmailRequestStreamResponse> streamEmailRequests(
+            @Parameter(hidden = true) @RequestAttribute("authenticatedClient") ApiClient client,
+            @Parameter(hidden = true) @RequestAttribute(HmacVerifyingInputStream.ATTRIBUTE) HmacVerifyingInputStream body,
+            @RequestHeader(value = "X-Idempotency-Key", required = false) String idempotencyKey) throws IOException {
+
+        EmailRequestStreamResponse response = service.ingestStream(client, body, idempotencyKey);
+
+        return ResponseEntity.accepted().body(response);
+    }
 }
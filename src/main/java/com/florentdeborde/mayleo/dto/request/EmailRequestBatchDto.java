@@ -0,0 +1,20 @@
+package com.florentdeborde.mayleo.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailRequestBatchDto {
+    // Items are validated one by one by the service so that a single invalid
+    // entry is reported in the response instead of rejecting the whole batch
+    @NotEmpty(message = "requests must contain at least one email request")
+    private List<EmailRequestDto> requests;
+}
@@ -0,0 +1,17 @@
+package com.florentdeborde.mayleo.dto.response;
+
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.model.ImageSource;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An email request as written to the archive segments (one NDJSON line) and
+ * returned by the archive lookup API. Lease and scheduling columns are left out:
+ * an archived request is terminal.
+ */
+public record ArchivedEmailRequest(UUID id, String apiClientId, String toEmail, String langCode, String subject,
+        String message, ImageSource imageSource, String imagePath, EmailRequestStatus status, String errorMessage,
+        int retryCount, Instant createdAt, Instant processedAt, String idempotencyKey) {
+}
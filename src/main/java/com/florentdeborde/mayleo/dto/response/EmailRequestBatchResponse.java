@@ -0,0 +1,20 @@
+package com.florentdeborde.mayleo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public record EmailRequestBatchResponse(int accepted, int rejected, List<Item> items) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(int index, String id, String error, String message) {
+
+        public static Item accepted(int index, String id) {
+            return new Item(index, id, null, null);
+        }
+
+        public static Item rejected(int index, String error, String message) {
+            return new Item(index, null, error, message);
+        }
+    }
+}
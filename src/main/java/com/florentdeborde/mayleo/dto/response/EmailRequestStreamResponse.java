@@ -0,0 +1,11 @@
+package com.florentdeborde.mayleo.dto.response;
+
+import java.util.List;
+
+/**
+ * Summary of an NDJSON ingest. Unlike the batch response, accepted ids are not
+ * echoed back (the stream is unbounded): only the first rejected lines are
+ * detailed, `index` being the 0-based line number.
+ */
+public record EmailRequestStreamResponse(long accepted, long rejected, List<EmailRequestBatchResponse.Item> errors) {
+}
@@ -8,6 +8,7 @@ public enum ExceptionCode {
     INCORRECT_API_KEY("Api key provided does not match any api client"),
     CLIENT_DISABLED("Api client is disabled"),
     EMAIL_CONFIG_NOT_FOUND("No email configuration related to the api key provided"),
+    ARCHIVED_REQUEST_NOT_FOUND("No archived email request with this id for the api key provided"),
     EMAIL_CONFIG_INCOMPLETE("Email configuration related to the api key provided is incomplete"),
     DAILY_QUOTA_EXCEEDED("Daily quota exceeded"),
     RPM_LIMIT_EXCEEDED("Request per minute limit exceeded"),
@@ -17,7 +18,8 @@ public enum ExceptionCode {
     INVALID_SIGNATURE("Internal server error"),
     INVALID_ORIGIN("Provided HMAC signature is invalid or missing."),
 
-    PAYLOAD_TOO_LARGE("Request body exceeds the maximum allowed size");
+    PAYLOAD_TOO_LARGE("Request body exceeds the maximum allowed size"),
+    BATCH_TOO_LARGE("Batch exceeds the maximum number of email requests");
 
     private final String defaultMessage;
 
@@ -22,8 +22,10 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleMayleoException(MayleoException ex) {
         ExceptionCode exceptionCode = ex.getExceptionCode();
         HttpStatus status = switch (exceptionCode) {
-            case EMAIL_CONFIG_NOT_FOUND -> HttpStatus.NOT_FOUND;
+            case EMAIL_CONFIG_NOT_FOUND, ARCHIVED_REQUEST_NOT_FOUND -> HttpStatus.NOT_FOUND;
             case DAILY_QUOTA_EXCEEDED, RPM_LIMIT_EXCEEDED -> HttpStatus.TOO_MANY_REQUESTS;
+            case BATCH_TOO_LARGE -> HttpStatus.BAD_REQUEST;
+            case INVALID_SIGNATURE -> HttpStatus.UNAUTHORIZED;
             default -> HttpStatus.INTERNAL_SERVER_ERROR;
         };
 
@@ -1,9 +1,14 @@
 package com.florentdeborde.mayleo.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.function.IntSupplier;
+
 @Component
 public class MayleoMetrics {
 
@@ -18,17 +23,25 @@ public class MayleoMetrics {
     public static final String STATUS_SENT = "sent";
     public static final String STATUS_FAILED = "failed";
 
+    public static final String CACHE_HIT = "hit";
+    public static final String CACHE_NEGATIVE_HIT = "negative_hit";
+    public static final String CACHE_MISS = "miss";
+
     public MayleoMetrics(MeterRegistry registry) {
         this.registry = registry;
     }
 
     public void recordApiRequest(String clientName, String outcome) {
+        recordApiRequest(clientName, outcome, 1);
+    }
+
+    public void recordApiRequest(String clientName, String outcome, int count) {
         Counter.builder("mayleo.api.requests")
                 .description("Tracking API calls from clients")
                 .tag("client", clientName)
                 .tag("outcome", outcome)
                 .register(registry)
-                .increment();
+                .increment(count);
     }
 
     public void recordEmailDelivery(String status) {
@@ -38,4 +51,138 @@ public class MayleoMetrics {
                 .register(registry)
                 .increment();
     }
-}
\ No newline at end of file
+
+    public void recordAuthCacheLookup(String result) {
+        Counter.builder("mayleo.security.auth.cache")
+                .description("Authenticated client cache lookups in the security filter")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordQueueWait(String clientName, Duration wait) {
+        Timer.builder("mayleo.dispatch.queue.wait")
+                .description("Time spent by email requests in PENDING before being claimed, per client")
+                .tag("client", clientName)
+                .register(registry)
+                .record(wait);
+    }
+
+    public void recordStuckRecovery(int count) {
+        Counter.builder("mayleo.worker.recovered")
+                .description("Requests re-queued by the self-healing job after their lease expired")
+                .register(registry)
+                .increment(count);
+    }
+
+    public void recordVirtualThreadPinned(boolean inJavaMail, Duration duration) {
+        Timer.builder("mayleo.executor.vthread.pinned")
+                .description("Virtual threads of the sender pool pinned to their carrier, from JFR")
+                .tag("javamail", String.valueOf(inJavaMail))
+                .register(registry)
+                .record(duration);
+    }
+
+    public void recordSmtpSendDeferred(String host) {
+        Counter.builder("mayleo.smtp.deferred")
+                .description("Sends put back to PENDING because their SMTP host had no free slot in time")
+                .tag("host", host)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Bulkhead of one SMTP host: sends holding a slot, groups admitted to the
+     * executor but not sending yet, and the share of the slots in use.
+     */
+    public void registerSmtpBulkhead(String host, IntSupplier sending, IntSupplier admitted, int maxSending) {
+        Gauge.builder("mayleo.smtp.bulkhead.active", sending::getAsInt)
+                .description("SMTP conversations open towards the host")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("mayleo.smtp.bulkhead.queued", () -> Math.max(0, admitted.getAsInt() - sending.getAsInt()))
+                .description("Groups of the host admitted to the sender pool and waiting for a slot")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("mayleo.smtp.bulkhead.utilization", () -> (double) sending.getAsInt() / maxSending)
+                .description("Share of the host's SMTP slots in use")
+                .tag("host", host)
+                .register(registry);
+    }
+
+    public void recordSmtpBulkheadRejected(String host) {
+        Counter.builder("mayleo.smtp.bulkhead.rejected")
+                .description("Groups left PENDING because the bulkhead of their SMTP host was full")
+                .tag("host", host)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordCircuitTransition(String clientId, String state) {
+        Counter.builder("mayleo.circuit.transitions")
+                .description("Per-client dispatch circuit breaker state changes")
+                .tag("client", clientId)
+                .tag("state", state)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordCircuitDeferred(String clientId, int count) {
+        Counter.builder("mayleo.circuit.deferred")
+                .description("Claimed requests deferred by the worker while their client's circuit was open")
+                .tag("client", clientId)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void recordSmtpPacingDeferred(String clientId, int count) {
+        Counter.builder("mayleo.smtp.pacing.deferred")
+                .description("Claimed requests deferred by the worker to stay under their SMTP account's send rate")
+                .tag("client", clientId)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void recordRecipientDomainDeferred(String domain, int count) {
+        Counter.builder("mayleo.domain.deferred")
+                .description("Claimed requests deferred by the worker to stay under their recipient domain's send rate")
+                .tag("domain", domain)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void recordAccountDelivery(String clientId, String accountId, String status, int count) {
+        Counter.builder("mayleo.account.delivery")
+                .description("Email delivery status per sending account of a client")
+                .tag("client", clientId)
+                .tag("account", accountId)
+                .tag("status", status)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void registerSendingAccount(String clientId, String accountId, IntSupplier inFlight) {
+        Gauge.builder("mayleo.account.in_flight", inFlight::getAsInt)
+                .description("Messages handed to the sender pool with the sending account and not done yet")
+                .tag("client", clientId)
+                .tag("account", accountId)
+                .register(registry);
+    }
+
+    public void recordAccountEjection(String clientId, String accountId) {
+        Counter.builder("mayleo.account.ejections")
+                .description("Sending accounts taken out of their client's rotation after repeated SMTP failures")
+                .tag("client", clientId)
+                .tag("account", accountId)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordSmtpTlsHandshake(String host, Duration duration) {
+        Timer.builder("mayleo.smtp.tls.handshake")
+                .description("TLS handshakes with SMTP hosts, full or resuming a cached session")
+                .tag("host", host)
+                .register(registry)
+                .record(duration);
+    }
+}
@@ -0,0 +1,31 @@
+package com.florentdeborde.mayleo.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one JavaMail send of a group of emails, so that `jdk.VirtualThreadPinned` events
+ * of a recording can be matched with the SMTP conversation they happened in
+ * (same thread, overlapping time). Costs nothing while no recording is running.
+ */
+@Name("com.florentdeborde.mayleo.SmtpSend")
+@Label("SMTP Send")
+@Category({ "Mayleo", "SMTP" })
+@Description("One group of emails of a client handed to JavaMail over one connection")
+public class SmtpSendEvent extends Event {
+
+    @Label("SMTP Host")
+    public String host;
+
+    @Label("Client Id")
+    public String clientId;
+
+    @Label("Messages")
+    public int messages;
+
+    @Label("Virtual Thread")
+    public boolean virtualThread;
+}
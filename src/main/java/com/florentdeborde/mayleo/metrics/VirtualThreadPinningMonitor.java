@@ -0,0 +1,77 @@
+package com.florentdeborde.mayleo.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Streams the JDK's `jdk.VirtualThreadPinned` JFR events in `virtual` executor
+ * mode. JavaMail guards its SMTP protocol with `synchronized` blocks, and on Java 21
+ * a virtual thread blocking on socket I/O inside one stays pinned to its carrier
+ * thread. Sends then fall back to one carrier per conversation.
+ * Each pin longer than `app.mail.executor.pinning-threshold` is counted
+ * (`mayleo.executor.vthread.pinned`, tagged with whether JavaMail frames are on
+ * the stack) and logged with its first frames.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.mail.executor.mode", havingValue = "virtual")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final List<String> JAVAMAIL_PACKAGES = List.of("jakarta.mail.", "org.eclipse.angus.mail.",
+            "com.sun.mail.");
+    private static final int LOGGED_FRAMES = 5;
+
+    private final MayleoMetrics metrics;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MayleoMetrics metrics,
+            @Value("${app.mail.executor.pinning-threshold:20ms}") Duration threshold) {
+        this.metrics = metrics;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("[Executor] Virtual thread pinning diagnostics enabled (threshold {})", threshold);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+        boolean inJavaMail = frames.stream().anyMatch(frame -> isJavaMail(frame.getMethod().getType().getName()));
+        metrics.recordVirtualThreadPinned(inJavaMail, event.getDuration());
+
+        log.warn("[Executor] Virtual thread pinned for {} ms{}: {}", event.getDuration().toMillis(),
+                inJavaMail ? " in JavaMail" : "",
+                frames.stream().limit(LOGGED_FRAMES)
+                        .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                                + ":" + frame.getLineNumber())
+                        .toList());
+    }
+
+    private static boolean isJavaMail(String className) {
+        return JAVAMAIL_PACKAGES.stream().anyMatch(className::startsWith);
+    }
+}
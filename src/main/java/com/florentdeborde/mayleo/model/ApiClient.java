@@ -40,6 +40,11 @@ public class ApiClient {
 
     private Integer rpmLimit;
 
+    // Relative share of the dispatch worker's claims when several clients have a backlog
+    @Column(nullable = false)
+    @Builder.Default
+    private int dispatchWeight = 1;
+
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(
             name = "api_client_domain",
@@ -11,7 +11,10 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "email_config")
+@Table(name = "email_config", indexes = {
+        // A client may have several sending accounts, see SendingAccountRouter
+        @Index(name = "idx_email_config_client", columnList = "api_client_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,7 +25,7 @@ public class EmailConfig {
     @Column(length = 36)
     private String id = UUID.randomUUID().toString();
 
-    @OneToOne
+    @ManyToOne
     @JoinColumn(name = "api_client_id", nullable = false)
     private ApiClient apiClient;
 
@@ -62,6 +65,11 @@ public class EmailConfig {
 
     private boolean enabled = true;
 
+    // Share of the client's sends routed to this account, relative to its other accounts
+    @Column(nullable = false)
+    @Builder.Default
+    private int weight = 1;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
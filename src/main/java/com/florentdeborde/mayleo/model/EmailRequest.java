@@ -5,16 +5,29 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
 @Table(name = "email_request", indexes = {
                 // Optimizes Quota checks (Daily & RPM)
                 @Index(name = "idx_email_request_client_date", columnList = "api_client_id, createdAt"),
-                // Optimizes the @Scheduled worker (findTop100)
-                @Index(name = "idx_email_request_status_date", columnList = "status, createdAt")
+                // Optimizes the PENDING marker polled by every node
+                @Index(name = "idx_email_request_status_date", columnList = "status, createdAt"),
+                // Optimizes the worker claim (due requests first)
+                @Index(name = "idx_email_request_status_due", columnList = "status, next_attempt_at"),
+                // Optimizes the per-tenant claims of the fair scheduler
+                @Index(name = "idx_email_request_status_client", columnList = "status, api_client_id, next_attempt_at"),
+                // Per recipient domain backlog (throttled and greylisting domains)
+                @Index(name = "idx_email_request_status_domain", columnList = "status, recipient_domain, next_attempt_at"),
+                // Lets a worker fetch the rows of its own claim
+                @Index(name = "idx_email_request_claim", columnList = "claimed_by, lease_until"),
+                // Optimizes expired lease recovery
+                @Index(name = "idx_email_request_lease", columnList = "status, lease_until")
 }, uniqueConstraints = {
                 @UniqueConstraint(name = "uk_email_request_idempotency", columnNames = { "api_client_id",
                                 "idempotency_key" })
@@ -25,9 +38,11 @@ import java.util.UUID;
 @Builder
 public class EmailRequest {
 
+        // Time-ordered UUIDv7 stored as BINARY(16), see EmailRequestId
         @Id
-        @Column(length = 36)
-        private String id = UUID.randomUUID().toString();
+        @JdbcTypeCode(SqlTypes.BINARY)
+        @Column(length = 16)
+        private UUID id = EmailRequestId.next();
 
         @ManyToOne
         @JoinColumn(name = "api_client_id", nullable = false)
@@ -36,6 +51,10 @@ public class EmailRequest {
         @Column(length = 255)
         private String toEmail;
 
+        // Lower-cased part of toEmail after the '@', set on insert (see RecipientDomainThrottle)
+        @Column(name = "recipient_domain", length = 255)
+        private String recipientDomain;
+
         @Column(length = 5)
         private String langCode;
 
@@ -65,6 +84,36 @@ public class EmailRequest {
 
         private Instant processedAt;
 
+        // Not claimed before this instant: creation time, then pushed back by the retry backoff
+        @Column(name = "next_attempt_at", nullable = false)
+        private Instant nextAttemptAt;
+
+        // Claim token of the worker currently sending the request, or of the ingest staging it (NULL otherwise)
+        @Column(name = "claimed_by", length = 64)
+        private String claimedBy;
+
+        // The claim is considered abandoned past this instant: re-queued when SENDING, deleted when STAGED
+        @Column(name = "lease_until")
+        private Instant leaseUntil;
+
         @Column(name = "idempotency_key", length = 64)
         private String idempotencyKey;
+
+        @PrePersist
+        void initNextAttemptAt() {
+                if (nextAttemptAt == null) {
+                        nextAttemptAt = createdAt;
+                }
+                if (recipientDomain == null) {
+                        recipientDomain = domainOf(toEmail);
+                }
+        }
+
+        public static String domainOf(String email) {
+                if (email == null) {
+                        return null;
+                }
+                int at = email.lastIndexOf('@');
+                return at < 0 || at == email.length() - 1 ? null : email.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+        }
 }
@@ -1,6 +1,8 @@
 package com.florentdeborde.mayleo.model;
 
 public enum EmailRequestStatus {
+    // Inserted by an NDJSON ingest still being read: not claimable until its signature is verified
+    STAGED,
     PENDING,
     SENDING,
     SENT,
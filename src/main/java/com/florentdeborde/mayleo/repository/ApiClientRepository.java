@@ -15,4 +15,8 @@ public interface ApiClientRepository extends JpaRepository<ApiClient, String> {
 
     @Query("SELECT a FROM ApiClient a LEFT JOIN FETCH a.allowedDomains WHERE a.apiKey = :apiKey")
     Optional<ApiClient> findByApiKeyWithDomains(@Param("apiKey") String apiKey);
+
+    // Name only, for metrics tags: the entity would pull its domains and decrypt its secret
+    @Query("SELECT a.name FROM ApiClient a WHERE a.id = :id")
+    Optional<String> findNameById(@Param("id") String id);
 }
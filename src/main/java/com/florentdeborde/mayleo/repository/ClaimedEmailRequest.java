@@ -0,0 +1,16 @@
+package com.florentdeborde.mayleo.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The columns of a claimed request that rendering and sending need, read by
+ * EmailRequestRepository.findClaimedBy without loading the ApiClient graph
+ * (allowed domains, HMAC secret decryption). Tenant settings are resolved by
+ * client id from caches.
+ */
+public record ClaimedEmailRequest(UUID id, String apiClientId, String toEmail, String recipientDomain, String langCode,
+                String subject,
+                String message, String imagePath, int retryCount, Instant createdAt, Instant nextAttemptAt,
+                String claimedBy) {
+}
@@ -0,0 +1,18 @@
+package com.florentdeborde.mayleo.repository;
+
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Result of one send attempt, written back by EmailRequestBatchRepository.applyOutcomes.
+ * The update only applies while the request is still held by `claimedBy` (lease fencing).
+ */
+public record DispatchOutcome(UUID requestId, String claimedBy, EmailRequestStatus status, String errorMessage,
+                int retryCount, Instant nextAttemptAt, Instant processedAt) {
+
+        public static DispatchOutcome sent(UUID requestId, String claimedBy, Instant processedAt) {
+                return new DispatchOutcome(requestId, claimedBy, EmailRequestStatus.SENT, null, 0, null, processedAt);
+        }
+}
@@ -5,11 +5,15 @@ import com.florentdeborde.mayleo.model.ApiClient;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface EmailConfigRepository extends JpaRepository<EmailConfig, String> {
 
-    // Retrieve the email configuration associated with a given API client
-    Optional<EmailConfig> findByApiClient(ApiClient apiClient);
+    // The client's first sending account, which holds its defaults (subject, message, language)
+    Optional<EmailConfig> findFirstByApiClientOrderByCreatedAtAsc(ApiClient apiClient);
+
+    // Every sending account of a client, for the worker which only holds the FK
+    List<EmailConfig> findByApiClientIdOrderByCreatedAtAsc(String apiClientId);
 }
@@ -0,0 +1,14 @@
+package com.florentdeborde.mayleo.repository;
+
+import com.florentdeborde.mayleo.model.EmailRequest;
+
+import java.util.List;
+
+public interface EmailRequestBatchRepository {
+
+        // Insert new requests through JDBC batching (no SELECT-before-INSERT as with save())
+        void insertAll(List<EmailRequest> requests);
+
+        // Write send outcomes back in a few statements; returns the number of requests updated
+        int applyOutcomes(List<DispatchOutcome> outcomes);
+}
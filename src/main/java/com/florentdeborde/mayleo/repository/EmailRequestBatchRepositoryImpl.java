@@ -0,0 +1,116 @@
+package com.florentdeborde.mayleo.repository;
+
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.model.EmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class EmailRequestBatchRepositoryImpl implements EmailRequestBatchRepository {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+        private int batchSize;
+
+        /**
+         * Persists (instead of merging) every request so Hibernate groups the INSERTs
+         * into JDBC batches of `hibernate.jdbc.batch_size` rows. With MySQL's
+         * `rewriteBatchedStatements=true` each batch is sent as one multi-row INSERT.
+         * The persistence context is flushed and cleared per batch to keep memory flat.
+         */
+        @Override
+        @Transactional
+        public void insertAll(List<EmailRequest> requests) {
+                int pending = 0;
+                for (EmailRequest request : requests) {
+                        ApiClient client = request.getApiClient();
+                        if (client != null && !entityManager.contains(client)) {
+                                // Detached client (resolved by the SecurityFilter): a reference avoids
+                                // a lookup per row
+                                request.setApiClient(entityManager.getReference(ApiClient.class, client.getId()));
+                        }
+                        entityManager.persist(request);
+
+                        if (++pending % batchSize == 0) {
+                                entityManager.flush();
+                                entityManager.clear();
+                        }
+                }
+                entityManager.flush();
+                entityManager.clear();
+        }
+
+        /**
+         * SENT outcomes share the same values: they are written with one
+         * `UPDATE ... WHERE claimed_by = ? AND id IN (...)` per claim token, the
+         * processing time of the batch being the latest of its outcomes.
+         * Failures carry their own error and retry schedule: they are sent as one JDBC
+         * batch of single-row UPDATEs.
+         * Every statement is fenced on `claimed_by`, so a request re-claimed after its
+         * lease expired is left to its new owner.
+         */
+        @Override
+        @Transactional
+        public int applyOutcomes(List<DispatchOutcome> outcomes) {
+                int updated = 0;
+
+                Map<String, List<DispatchOutcome>> sentByClaim = outcomes.stream()
+                                .filter(outcome -> outcome.status() == EmailRequestStatus.SENT)
+                                .collect(Collectors.groupingBy(DispatchOutcome::claimedBy));
+                for (Map.Entry<String, List<DispatchOutcome>> claim : sentByClaim.entrySet()) {
+                        updated += entityManager.createNativeQuery(
+                                        "UPDATE email_request SET status = 'SENT', processed_at = :processedAt, claimed_by = NULL, lease_until = NULL WHERE claimed_by = :claimedBy AND id IN (:ids)")
+                                        .setParameter("processedAt", claim.getValue().stream()
+                                                        .map(DispatchOutcome::processedAt).max(Instant::compareTo).orElseThrow())
+                                        .setParameter("claimedBy", claim.getKey())
+                                        .setParameter("ids", claim.getValue().stream()
+                                                        .map(outcome -> EmailRequestId.toBytes(outcome.requestId())).toList())
+                                        .executeUpdate();
+                }
+
+                List<DispatchOutcome> failures = outcomes.stream()
+                                .filter(outcome -> outcome.status() != EmailRequestStatus.SENT)
+                                .toList();
+                if (!failures.isEmpty()) {
+                        updated += entityManager.unwrap(Session.class).doReturningWork(connection -> {
+                                try (PreparedStatement statement = connection.prepareStatement(
+                                                "UPDATE email_request SET status = ?, error_message = ?, retry_count = ?, next_attempt_at = COALESCE(?, next_attempt_at), processed_at = ?, claimed_by = NULL, lease_until = NULL WHERE id = ? AND claimed_by = ?")) {
+                                        for (DispatchOutcome failure : failures) {
+                                                statement.setString(1, failure.status().name());
+                                                statement.setString(2, failure.errorMessage());
+                                                statement.setInt(3, failure.retryCount());
+                                                if (failure.nextAttemptAt() != null) {
+                                                        statement.setObject(4, failure.nextAttemptAt());
+                                                } else {
+                                                        statement.setNull(4, Types.TIMESTAMP); // FAILED for good
+                                                }
+                                                statement.setObject(5, failure.processedAt());
+                                                statement.setBytes(6, EmailRequestId.toBytes(failure.requestId()));
+                                                statement.setString(7, failure.claimedBy());
+                                                statement.addBatch();
+                                        }
+                                        int count = 0;
+                                        for (int rows : statement.executeBatch()) {
+                                                // SUCCESS_NO_INFO (-2): the driver does not report per-statement counts
+                                                count += rows == PreparedStatement.SUCCESS_NO_INFO ? 1 : rows;
+                                        }
+                                        return count;
+                                }
+                        });
+                }
+                return updated;
+        }
+}
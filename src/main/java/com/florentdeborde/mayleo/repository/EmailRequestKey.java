@@ -0,0 +1,8 @@
+package com.florentdeborde.mayleo.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Keyset position of an email request in (created_at, id) order
+public record EmailRequestKey(UUID id, Instant createdAt) {
+}
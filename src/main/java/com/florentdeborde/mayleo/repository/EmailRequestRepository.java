@@ -1,37 +1,125 @@
 package com.florentdeborde.mayleo.repository;
 
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
 import com.florentdeborde.mayleo.model.ApiClient;
 import com.florentdeborde.mayleo.model.EmailRequest;
 import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface EmailRequestRepository extends JpaRepository<EmailRequest, String> {
+public interface EmailRequestRepository extends JpaRepository<EmailRequest, UUID>, EmailRequestBatchRepository {
 
         // Find top 100 requests by status, ordered by creation date (for async worker)
         List<EmailRequest> findTop100ByStatusOrderByCreatedAtAsc(EmailRequestStatus status);
 
-        // Find stuck requests (e.g. SENDING for too long)
-        List<EmailRequest> findByStatusAndProcessedAtBefore(EmailRequestStatus status, Instant cutoff);
+        // Native queries select and bind ids as their BINARY(16) form, see EmailRequestId
+
+        // Chunk of stuck requests (SENDING with an expired lease), served by the (status, lease_until) index
+        @Query(value = "SELECT id FROM email_request WHERE status = 'SENDING' AND lease_until < :now LIMIT :limit", nativeQuery = true)
+        List<byte[]> findExpiredLeaseIds(@Param("now") Instant now, @Param("limit") int limit);
+
+        // The lease is checked again: a request completed since the SELECT is left alone
+        @Transactional
+        @Modifying(clearAutomatically = true)
+        @Query(value = "UPDATE email_request SET status = 'PENDING', retry_count = retry_count + 1, error_message = :reason, claimed_by = NULL, lease_until = NULL WHERE id IN (:ids) AND status = 'SENDING' AND lease_until < :now", nativeQuery = true)
+        int requeueExpiredLeases(@Param("ids") Collection<byte[]> ids, @Param("now") Instant now,
+                        @Param("reason") String reason);
+
+        // Rows staged by one NDJSON ingest become claimable at once, served by the (claimed_by, lease_until) index
+        @Transactional
+        @Modifying(clearAutomatically = true)
+        @Query(value = "UPDATE email_request SET status = 'PENDING', claimed_by = NULL, lease_until = NULL WHERE claimed_by = :token AND status = 'STAGED'", nativeQuery = true)
+        int publishStaged(@Param("token") String token);
+
+        // Rows staged by a failed NDJSON ingest
+        @Transactional
+        @Modifying(clearAutomatically = true)
+        @Query(value = "DELETE FROM email_request WHERE claimed_by = :token AND status = 'STAGED'", nativeQuery = true)
+        int deleteStaged(@Param("token") String token);
+
+        // Chunk of rows left STAGED by an ingest that never completed (node crash), served by the (status, lease_until) index
+        @Query(value = "SELECT id FROM email_request WHERE status = 'STAGED' AND lease_until < :now LIMIT :limit", nativeQuery = true)
+        List<byte[]> findExpiredStagedIds(@Param("now") Instant now, @Param("limit") int limit);
+
+        @Transactional
+        @Modifying(clearAutomatically = true)
+        @Query(value = "DELETE FROM email_request WHERE id IN (:ids) AND status = 'STAGED'", nativeQuery = true)
+        int deleteStagedByIds(@Param("ids") Collection<byte[]> ids);
+
+        // Rows of one claim, served by the (claimed_by, lease_until) index. The client id is read
+        // from the FK: no join, so the ApiClient and its eager collections are not loaded per row
+        @Query("SELECT new com.florentdeborde.mayleo.repository.ClaimedEmailRequest(e.id, e.apiClient.id, e.toEmail, "
+                        + "e.recipientDomain, e.langCode, e.subject, e.message, e.imagePath, e.retryCount, e.createdAt, e.nextAttemptAt, "
+                        + "e.claimedBy) FROM EmailRequest e WHERE e.claimedBy = :claimedBy")
+        List<ClaimedEmailRequest> findClaimedBy(@Param("claimedBy") String claimedBy);
+
+        // Change marker polled by every node: served by the (status, created_at) index
+        @Query("SELECT MAX(e.createdAt) FROM EmailRequest e WHERE e.status = :status")
+        Optional<Instant> findLatestCreatedAt(@Param("status") EmailRequestStatus status);
 
         Optional<EmailRequest> findByApiClientAndIdempotencyKey(ApiClient client, String idempotencyKey);
 
-        @Modifying
-        @Query(value = "UPDATE email_request SET status = 'SENDING', processed_at = :now, error_message = :instanceId WHERE status = 'PENDING' ORDER BY created_at ASC LIMIT :limit", nativeQuery = true)
-        int lockBatchForSending(@Param("now") Instant now, @Param("instanceId") String instanceId,
+        List<EmailRequest> findByApiClientAndIdempotencyKeyIn(ApiClient client, Collection<String> idempotencyKeys);
+
+        // Rows locked by another worker's claim are skipped instead of waited for, so
+        // every instance drains a different slice of the queue concurrently.
+        // Requests are taken in due order (next_attempt_at, i.e. created_at unless
+        // backing off), served by the (status, next_attempt_at) index.
+        @Query(value = "SELECT id FROM email_request WHERE status = 'PENDING' AND next_attempt_at <= :now ORDER BY next_attempt_at ASC LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+        List<byte[]> findPendingIdsForUpdate(@Param("now") Instant now, @Param("limit") int limit);
+
+        // Same claim restricted to one tenant, served by the (status, api_client_id, next_attempt_at) index
+        @Query(value = "SELECT id FROM email_request WHERE status = 'PENDING' AND api_client_id = :clientId AND next_attempt_at <= :now ORDER BY next_attempt_at ASC LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+        List<byte[]> findPendingIdsForUpdateByClient(@Param("clientId") String clientId, @Param("now") Instant now,
                         @Param("limit") int limit);
 
-        List<EmailRequest> findByStatusAndErrorMessage(EmailRequestStatus status, String errorMessage);
+        // Tenants with requests due and their dispatch weight, one row each. Walks the clients, not the
+        // backlog: each EXISTS stops at the first due row of the (status, api_client_id, next_attempt_at) index
+        @Query(value = "SELECT c.id AS clientId, c.dispatch_weight AS weight FROM api_client c WHERE EXISTS (SELECT 1 FROM email_request e WHERE e.status = 'PENDING' AND e.api_client_id = c.id AND e.next_attempt_at <= :now)", nativeQuery = true)
+        List<PendingTenant> findPendingTenants(@Param("now") Instant now);
+
+        @Modifying(clearAutomatically = true)
+        @Query(value = "UPDATE email_request SET status = 'SENDING', processed_at = :now, error_message = NULL, claimed_by = :claimedBy, lease_until = :leaseUntil WHERE id IN (:ids) AND status = 'PENDING'", nativeQuery = true)
+        int markAsSending(@Param("ids") Collection<byte[]> ids, @Param("now") Instant now,
+                        @Param("claimedBy") String claimedBy, @Param("leaseUntil") Instant leaseUntil);
+
+        // Hands claimed requests back to the queue without counting a retry (they were never attempted)
+        @Transactional
+        @Modifying(clearAutomatically = true)
+        @Query(value = "UPDATE email_request SET status = 'PENDING', claimed_by = NULL, lease_until = NULL WHERE id IN (:ids) AND claimed_by = :claimedBy", nativeQuery = true)
+        int releaseClaims(@Param("ids") Collection<byte[]> ids, @Param("claimedBy") String claimedBy);
+
+        // Same, but not claimable again before nextAttemptAt
+        @Transactional
+        @Modifying(clearAutomatically = true)
+        @Query(value = "UPDATE email_request SET status = 'PENDING', claimed_by = NULL, lease_until = NULL, error_message = :reason, next_attempt_at = :nextAttemptAt WHERE id IN (:ids) AND claimed_by = :claimedBy", nativeQuery = true)
+        int deferClaims(@Param("ids") Collection<byte[]> ids, @Param("claimedBy") String claimedBy,
+                        @Param("nextAttemptAt") Instant nextAttemptAt, @Param("reason") String reason);
+
+        // Keyset chunk for the retention purge: resumes after (afterCreatedAt, afterId), served by the (status, created_at) index
+        @Query("SELECT new com.florentdeborde.mayleo.repository.EmailRequestKey(e.id, e.createdAt) FROM EmailRequest e "
+                        + "WHERE e.status = :status AND e.createdAt < :cutoff "
+                        + "AND (e.createdAt > :afterCreatedAt OR (e.createdAt = :afterCreatedAt AND e.id > :afterId)) "
+                        + "ORDER BY e.createdAt, e.id")
+        List<EmailRequestKey> findExpiredKeys(@Param("status") EmailRequestStatus status, @Param("cutoff") Instant cutoff,
+                        @Param("afterCreatedAt") Instant afterCreatedAt, @Param("afterId") UUID afterId, Pageable page);
 
-        @Modifying
-        @Query("DELETE FROM EmailRequest e WHERE e.createdAt < :cutoff AND e.status = :status")
-        int deleteOldRequests(@Param("cutoff") Instant cutoff, @Param("status") EmailRequestStatus status);
+        // Full rows of a purge chunk, read before it is deleted; the client id is read from the FK, no join
+        @Query("SELECT new com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest(e.id, e.apiClient.id, e.toEmail, "
+                        + "e.langCode, e.subject, e.message, e.imageSource, e.imagePath, e.status, e.errorMessage, "
+                        + "e.retryCount, e.createdAt, e.processedAt, e.idempotencyKey) FROM EmailRequest e "
+                        + "WHERE e.id IN :ids ORDER BY e.createdAt, e.id")
+        List<ArchivedEmailRequest> findArchivedByIdIn(@Param("ids") Collection<UUID> ids);
 }
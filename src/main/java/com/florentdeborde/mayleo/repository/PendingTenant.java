@@ -0,0 +1,9 @@
+package com.florentdeborde.mayleo.repository;
+
+// Projection of EmailRequestRepository.findPendingTenants
+public interface PendingTenant {
+
+        String getClientId();
+
+        Integer getWeight();
+}
@@ -0,0 +1,94 @@
+package com.florentdeborde.mayleo.security;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Clients authenticated by SecurityFilter, resolved once per API key.
+ * Clients are provisioned and revoked in the database directly, the application
+ * has no write path that could evict them: `app.security.auth-cache.ttl` is the
+ * only bound on how long a disabled client, a rotated key or a changed domain
+ * list keeps its previous state. It is kept short for that reason; the evict
+ * methods serve tests and tooling sharing the application context.
+ */
+@Component
+@Slf4j
+public class ApiClientAuthCache {
+
+    private final ApiClientRepository apiClientRepository;
+    private final MayleoMetrics metrics;
+
+    /**
+     * Resolved clients keyed by hashed API key.
+     * Unknown keys are cached as Optional.empty() (negative entries) with a shorter
+     * TTL, so brute-force attempts with random keys do not reach the database.
+     */
+    private final Cache<String, Optional<AuthenticatedClient>> clientCache;
+
+    public ApiClientAuthCache(ApiClientRepository apiClientRepository, MayleoMetrics metrics,
+            @Value("${app.security.auth-cache.ttl:1m}") Duration ttl,
+            @Value("${app.security.auth-cache.negative-ttl:30s}") Duration negativeTtl,
+            @Value("${app.security.auth-cache.max-size:10000}") long maxSize) {
+        this.apiClientRepository = apiClientRepository;
+        this.metrics = metrics;
+        this.clientCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Optional<AuthenticatedClient>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<AuthenticatedClient> value, long currentTime) {
+                        return value.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<AuthenticatedClient> value, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<AuthenticatedClient> value, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public Optional<AuthenticatedClient> resolve(String hashedApiKey) {
+        Optional<AuthenticatedClient> cached = clientCache.getIfPresent(hashedApiKey);
+        if (cached != null) {
+            metrics.recordAuthCacheLookup(cached.isPresent()
+                    ? MayleoMetrics.CACHE_HIT
+                    : MayleoMetrics.CACHE_NEGATIVE_HIT);
+            return cached;
+        }
+
+        metrics.recordAuthCacheLookup(MayleoMetrics.CACHE_MISS);
+        return clientCache.get(hashedApiKey, key -> apiClientRepository.findByApiKeyWithDomains(key)
+                .map(AuthenticatedClient::of));
+    }
+
+    public void evict(String hashedApiKey) {
+        clientCache.invalidate(hashedApiKey);
+    }
+
+    public void evictClient(String apiClientId) {
+        log.info("[Security] Evicting authentication cache for client: {}", apiClientId);
+        clientCache.asMap().values().removeIf(entry -> entry
+                .map(client -> apiClientId.equals(client.apiClient().getId()))
+                .orElse(false));
+    }
+
+    public void evictAll() {
+        clientCache.invalidateAll();
+    }
+}
@@ -0,0 +1,20 @@
+package com.florentdeborde.mayleo.security;
+
+import com.florentdeborde.mayleo.model.ApiClient;
+
+import java.util.Set;
+
+/**
+ * Snapshot of an API client as resolved by the SecurityFilter.
+ * Domains are copied into an immutable set and the HMAC secret is kept
+ * decrypted, so a cached entry never triggers a lazy load or an AES decrypt.
+ */
+public record AuthenticatedClient(ApiClient apiClient, Set<String> allowedDomains, String hmacSecretKey) {
+
+    public static AuthenticatedClient of(ApiClient apiClient) {
+        Set<String> domains = apiClient.getAllowedDomains() != null
+                ? Set.copyOf(apiClient.getAllowedDomains())
+                : Set.of();
+        return new AuthenticatedClient(apiClient, domains, apiClient.getHmacSecretKey());
+    }
+}
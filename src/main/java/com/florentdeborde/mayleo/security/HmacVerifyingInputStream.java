@@ -0,0 +1,95 @@
+package com.florentdeborde.mayleo.security;
+
+import com.florentdeborde.mayleo.service.HmacService;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+import javax.crypto.Mac;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Request body stream that feeds every byte read into an HMAC as it passes, so
+ * large payloads can be signed-checked without being buffered in memory.
+ * The signature is only known to be valid once the stream has been fully read:
+ * consumers must call {@link #verifySignature()} before committing anything.
+ */
+public class HmacVerifyingInputStream extends ServletInputStream {
+
+    public static final String ATTRIBUTE = "signedBody";
+
+    private final InputStream delegate;
+    private final Mac mac; // null when HMAC validation is disabled
+    private final String signature;
+    private final HmacService hmacService;
+    private boolean finished;
+
+    public HmacVerifyingInputStream(InputStream delegate, Mac mac, String signature, HmacService hmacService) {
+        this.delegate = delegate;
+        this.mac = mac;
+        this.signature = signature;
+        this.hmacService = hmacService;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = delegate.read();
+        if (b == -1) {
+            finished = true;
+        } else if (mac != null) {
+            mac.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int bytesRead = delegate.read(buffer, offset, length);
+        if (bytesRead == -1) {
+            finished = true;
+        } else if (mac != null) {
+            mac.update(buffer, offset, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Drains whatever the consumer did not read, then checks the signature
+     * over the complete body. Can only be called once.
+     */
+    public boolean verifySignature() throws IOException {
+        byte[] buffer = new byte[8192];
+        while (read(buffer, 0, buffer.length) != -1) {
+            // Keep feeding the Mac up to the end of the body
+        }
+        return mac == null || hmacService.verifySignature(mac, signature);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean isReady() {
+        return !(delegate instanceof ServletInputStream servletStream) || servletStream.isReady();
+    }
+
+    /**
+     * Non-blocking reads are left to the container stream: the listener is called
+     * back when its data is available and reads it through this stream, so every
+     * byte still goes through the HMAC.
+     */
+    @Override
+    public void setReadListener(ReadListener readListener) {
+        if (!(delegate instanceof ServletInputStream servletStream)) {
+            throw new IllegalStateException("Non-blocking reads need a servlet request body");
+        }
+        servletStream.setReadListener(readListener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
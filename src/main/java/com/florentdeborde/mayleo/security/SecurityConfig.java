@@ -1,6 +1,5 @@
 package com.florentdeborde.mayleo.security;
 
-import com.florentdeborde.mayleo.repository.ApiClientRepository;
 import com.florentdeborde.mayleo.service.HmacService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -31,7 +30,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, ApiClientRepository repo,
+    public SecurityFilterChain filterChain(HttpSecurity http, ApiClientAuthCache apiClientAuthCache,
             SecurityRegistry securityRegistry, HmacService hmacService) throws Exception {
         http
                 // Manage CORS
@@ -59,7 +58,8 @@ public class SecurityConfig {
                         .anyRequest().authenticated())
 
                 // Register our custom SecurityFilter before the standard authentication filter
-                .addFilterBefore(new SecurityFilter(repo, securityRegistry, hmacService, salt, isHmacEnabled),
+                .addFilterBefore(
+                        new SecurityFilter(apiClientAuthCache, securityRegistry, hmacService, salt, isHmacEnabled),
                         UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -4,13 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.florentdeborde.mayleo.dto.response.ErrorResponse;
 import com.florentdeborde.mayleo.exception.ExceptionCode;
 import com.florentdeborde.mayleo.model.ApiClient;
-import com.florentdeborde.mayleo.repository.ApiClientRepository;
 import com.florentdeborde.mayleo.service.HmacService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -25,16 +25,19 @@ public class SecurityFilter extends OncePerRequestFilter {
     // via malicious large payloads
     public static final int MAX_BODY_SIZE = 256 * 1024;
 
-    private final ApiClientRepository apiClientRepository;
+    // Only route allowed to skip the buffering above: every other one keeps the size cap
+    private static final String NDJSON_STREAM_PATH = "/email-request/stream";
+
+    private final ApiClientAuthCache apiClientAuthCache;
     private final SecurityRegistry securityRegistry;
     private final HmacService hmacService;
     private final String salt;
     private final boolean isHmacEnabled;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public SecurityFilter(ApiClientRepository apiClientRepository, SecurityRegistry securityRegistry,
+    public SecurityFilter(ApiClientAuthCache apiClientAuthCache, SecurityRegistry securityRegistry,
             HmacService hmacService, String salt, boolean isHmacEnabled) {
-        this.apiClientRepository = apiClientRepository;
+        this.apiClientAuthCache = apiClientAuthCache;
         this.securityRegistry = securityRegistry;
         this.hmacService = hmacService;
         this.salt = salt;
@@ -66,14 +69,15 @@ public class SecurityFilter extends OncePerRequestFilter {
             return;
         }
 
-        // Load Client & Check API Key
+        // Load Client & Check API Key (served from cache, DB only on miss)
         String hashedApiKey = ApiKeyEncoder.hashSha256(plainApiKey, salt);
-        ApiClient client = apiClientRepository.findByApiKeyWithDomains(hashedApiKey).orElse(null);
-        if (client == null) {
+        AuthenticatedClient authenticatedClient = apiClientAuthCache.resolve(hashedApiKey).orElse(null);
+        if (authenticatedClient == null) {
             log.warn("[Security Alert] Invalid API Key attempt | Masked IP: {} | Path: {}", maskedIp, uri);
             setErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, ExceptionCode.INCORRECT_API_KEY);
             return;
         }
+        ApiClient client = authenticatedClient.apiClient();
         if (!client.isEnabled()) {
             log.warn("[Security Alert] Attempt from disabled client: {} | Masked IP: {}", client.getName(), maskedIp);
             setErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, ExceptionCode.CLIENT_DISABLED);
@@ -81,14 +85,14 @@ public class SecurityFilter extends OncePerRequestFilter {
         }
 
         // Validate Origin (Mandatory if client has allowed domains configured)
-        if (client.getAllowedDomains() != null && !client.getAllowedDomains().isEmpty()) {
+        if (!authenticatedClient.allowedDomains().isEmpty()) {
             if (origin == null) {
                 log.warn("[Security Alert] Missing Origin | Client: {} | Masked IP: {}", client.getName(), maskedIp);
                 setErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, ExceptionCode.INVALID_ORIGIN);
                 return;
             }
             String normalizedOrigin = origin.replaceAll("/$", "");
-            if (!client.getAllowedDomains().contains(normalizedOrigin)) {
+            if (!authenticatedClient.allowedDomains().contains(normalizedOrigin)) {
                 log.warn("[Security Alert] Origin mismatch | Client: {} | Origin: {} | Masked IP: {}", client.getName(),
                         origin, maskedIp);
                 setErrorResponse(response, HttpServletResponse.SC_FORBIDDEN, ExceptionCode.INVALID_ORIGIN);
@@ -96,42 +100,58 @@ public class SecurityFilter extends OncePerRequestFilter {
             }
         }
 
-        // --- PHASE 2 : PAYLOAD SIZE ---
-        long contentLength = request.getContentLengthLong();
-        if (contentLength > MAX_BODY_SIZE) {
-            log.warn("[Security Alert] Payload too large | Masked IP: {}", maskedIp);
-            setErrorResponse(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
-                    ExceptionCode.PAYLOAD_TOO_LARGE);
-            return;
-        }
-
-        CachedBodyHttpServletRequest wrappedRequest;
-        try {
-            wrappedRequest = new CachedBodyHttpServletRequest(request, MAX_BODY_SIZE);
-        } catch (IOException e) {
-            log.warn("[Security Alert] Payload too large (Streaming) | Masked IP: {}", maskedIp);
-            setErrorResponse(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
-                    ExceptionCode.PAYLOAD_TOO_LARGE);
-            return;
-        }
-
-        // --- PHASE 3 : HMAC SIGNATURE (only for POST/PUT with body) ---
-        String clientSignature = wrappedRequest.getHeader("X-SIGNATURE");
-        if (isHmacEnabled && ("POST".equalsIgnoreCase(wrappedRequest.getMethod())
-                || "PUT".equalsIgnoreCase(wrappedRequest.getMethod()))) {
-
-            // We use StreamUtils to read the input stream. This action populates the
-            // ContentCachingRequestWrapper's internal cache, making the body available
-            // for hmacService AND later for Spring's @RequestBody.
-            // byte[] body = StreamUtils.copyToByteArray(wrappedRequest.getInputStream());
-            byte[] body = wrappedRequest.getBody();
-
-            if (clientSignature == null
-                    || !hmacService.verifySignature(body, clientSignature, client.getHmacSecretKey())) {
-                log.warn("[Security Alert] Invalid HMAC Signature | Client: {} | Path: {}", client.getName(), uri);
+        HttpServletRequest forwardedRequest;
+        if (isNdjsonStream(request)) {
+            // --- PHASE 2-3 (STREAMING) : no buffering, HMAC computed while the body is read ---
+            String clientSignature = request.getHeader("X-SIGNATURE");
+            if (isHmacEnabled && (clientSignature == null || clientSignature.isBlank())) {
+                log.warn("[Security Alert] Missing HMAC Signature | Client: {} | Path: {}", client.getName(), uri);
                 setErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, ExceptionCode.INVALID_SIGNATURE);
                 return;
             }
+            HmacVerifyingInputStream body = new HmacVerifyingInputStream(request.getInputStream(),
+                    isHmacEnabled ? hmacService.initMac(authenticatedClient.hmacSecretKey()) : null,
+                    clientSignature, hmacService);
+            forwardedRequest = new StreamingBodyHttpServletRequest(request, body);
+        } else {
+            // --- PHASE 2 : PAYLOAD SIZE ---
+            long contentLength = request.getContentLengthLong();
+            if (contentLength > MAX_BODY_SIZE) {
+                log.warn("[Security Alert] Payload too large | Masked IP: {}", maskedIp);
+                setErrorResponse(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                        ExceptionCode.PAYLOAD_TOO_LARGE);
+                return;
+            }
+
+            CachedBodyHttpServletRequest wrappedRequest;
+            try {
+                wrappedRequest = new CachedBodyHttpServletRequest(request, MAX_BODY_SIZE);
+            } catch (IOException e) {
+                log.warn("[Security Alert] Payload too large (Streaming) | Masked IP: {}", maskedIp);
+                setErrorResponse(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                        ExceptionCode.PAYLOAD_TOO_LARGE);
+                return;
+            }
+
+            // --- PHASE 3 : HMAC SIGNATURE (only for POST/PUT with body) ---
+            String clientSignature = wrappedRequest.getHeader("X-SIGNATURE");
+            if (isHmacEnabled && ("POST".equalsIgnoreCase(wrappedRequest.getMethod())
+                    || "PUT".equalsIgnoreCase(wrappedRequest.getMethod()))) {
+
+                // We use StreamUtils to read the input stream. This action populates the
+                // ContentCachingRequestWrapper's internal cache, making the body available
+                // for hmacService AND later for Spring's @RequestBody.
+                // byte[] body = StreamUtils.copyToByteArray(wrappedRequest.getInputStream());
+                byte[] body = wrappedRequest.getBody();
+
+                if (clientSignature == null
+                        || !hmacService.verifySignature(body, clientSignature, authenticatedClient.hmacSecretKey())) {
+                    log.warn("[Security Alert] Invalid HMAC Signature | Client: {} | Path: {}", client.getName(), uri);
+                    setErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, ExceptionCode.INVALID_SIGNATURE);
+                    return;
+                }
+            }
+            forwardedRequest = wrappedRequest;
         }
 
         // --- PHASE 4 : Populate Spring Security Context ---
@@ -142,8 +162,19 @@ public class SecurityFilter extends OncePerRequestFilter {
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         // --- PHASE 5 : Forward the WRAPPED request to the next filter/controller ---
-        wrappedRequest.setAttribute("authenticatedClient", client);
-        filterChain.doFilter(wrappedRequest, response);
+        forwardedRequest.setAttribute("authenticatedClient", client);
+        filterChain.doFilter(forwardedRequest, response);
+    }
+
+    /**
+     * NDJSON uploads are the only bodies allowed above MAX_BODY_SIZE: they are
+     * consumed record by record and their signature is checked at end of stream.
+     */
+    private boolean isNdjsonStream(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return "POST".equalsIgnoreCase(request.getMethod()) && NDJSON_STREAM_PATH.equals(request.getServletPath())
+                && contentType != null
+                && contentType.toLowerCase().startsWith(MediaType.APPLICATION_NDJSON_VALUE);
     }
 
     private void setErrorResponse(HttpServletResponse response, int status, ExceptionCode exCode) throws IOException {
@@ -0,0 +1,33 @@
+package com.florentdeborde.mayleo.security;
+
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming counterpart of {@link CachedBodyHttpServletRequest}: the body is not
+ * copied, every read goes through the same {@link HmacVerifyingInputStream}.
+ */
+public class StreamingBodyHttpServletRequest extends HttpServletRequestWrapper {
+    private final HmacVerifyingInputStream body;
+
+    public StreamingBodyHttpServletRequest(HttpServletRequest request, HmacVerifyingInputStream body) {
+        super(request);
+        this.body = body;
+        request.setAttribute(HmacVerifyingInputStream.ATTRIBUTE, body);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return body;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+}
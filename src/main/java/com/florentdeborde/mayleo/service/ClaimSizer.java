@@ -0,0 +1,81 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.config.SendCapacity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Decides how many requests the worker may claim, from the free capacity of
+ * `emailTaskExecutor` and the recent send latency:
+ * - idle threads (free in-flight slots in virtual mode) can start a send right away;
+ * - on top of that, the queue is filled with what the pool is expected to drain
+ * within `app.mail.claim.target-queue-delay`, so a pool that drains fast gets
+ * bigger claims and a slow SMTP relay gets smaller ones.
+ * Claiming nothing beyond that keeps rows in PENDING, where any other instance
+ * can still pick them up, instead of parking them in SENDING behind a full queue.
+ * Threads, queue slots and queued tasks count send groups of up to
+ * `app.mail.send-group-size` requests, while claims and send latencies count
+ * requests: capacity is converted at the group size.
+ */
+@Component
+public class ClaimSizer {
+
+    // Weight of the latest sample in the moving average
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final SendCapacity executor;
+    private final int maxBatchSize;
+    private final long targetQueueDelayNanos;
+    private final int sendGroupSize;
+
+    private volatile double averageLatencyNanos;
+    private volatile boolean backlogWaiting;
+
+    public ClaimSizer(@Qualifier("emailTaskExecutor") SendCapacity executor,
+            @Value("${app.mail.claim.max-batch-size:100}") int maxBatchSize,
+            @Value("${app.mail.claim.target-queue-delay:2s}") Duration targetQueueDelay,
+            @Value("${app.mail.claim.initial-latency:1s}") Duration initialLatency,
+            @Value("${app.mail.send-group-size:10}") int sendGroupSize) {
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.targetQueueDelayNanos = targetQueueDelay.toNanos();
+        this.averageLatencyNanos = initialLatency.toNanos();
+        this.sendGroupSize = Math.max(1, sendGroupSize);
+    }
+
+    public int nextBatchSize() {
+        int threads = executor.concurrency();
+        int idleThreads = Math.max(0, threads - executor.running());
+
+        // In requests: the latency is recorded per request, queued groups are counted as full
+        long drainable = (long) (threads * (targetQueueDelayNanos / averageLatencyNanos));
+        long queueBudget = Math.min((long) executor.remainingQueueCapacity() * sendGroupSize,
+                drainable - (long) executor.queued() * sendGroupSize);
+
+        long size = (long) idleThreads * sendGroupSize + Math.max(0, queueBudget);
+        return (int) Math.min(size, maxBatchSize);
+    }
+
+    /**
+     * A full claim means more rows are probably waiting: the worker should come
+     * back as soon as capacity frees up rather than at the next poll.
+     */
+    public void recordClaim(int requested, int claimed) {
+        backlogWaiting = requested == 0 || claimed == requested;
+    }
+
+    public boolean isBacklogWaitingForCapacity() {
+        return backlogWaiting && nextBatchSize() > 0;
+    }
+
+    public synchronized void recordSendLatency(long nanos) {
+        averageLatencyNanos = LATENCY_SMOOTHING * Math.max(nanos, 1) + (1 - LATENCY_SMOOTHING) * averageLatencyNanos;
+    }
+
+    public Duration getAverageLatency() {
+        return Duration.ofNanos((long) averageLatencyNanos);
+    }
+}
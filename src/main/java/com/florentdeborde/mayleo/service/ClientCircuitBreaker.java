@@ -0,0 +1,177 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker per client around SMTP dispatch. A client whose credentials
+ * were revoked or whose host is down would otherwise burn a sender thread for
+ * the whole connect timeout on every claimed request, and use up its retries.
+ * - CLOSED: groups are dispatched. The circuit opens after
+ * `app.mail.circuit-breaker.consecutive-failures` failed groups in a row, or when
+ * the failure rate over the last `window-size` groups reaches `failure-rate`;
+ * - OPEN: for `open-duration`, the worker defers the client's claims to the end
+ * of the open period without sending them (see EmailRequestWorker);
+ * - HALF_OPEN: a single request is let through as a probe. It closes the circuit
+ * when it gets through, and opens it again otherwise. A probe without an answer
+ * (deferred, not rendered) is replaced after `open-duration`.
+ * Only transport level failures count: a recipient rejected by the server still
+ * proves the account works (see EmailSenderService).
+ */
+@Component
+@Slf4j
+public class ClientCircuitBreaker {
+
+    public enum Decision { ALLOW, PROBE, REJECT }
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int consecutiveFailures;
+    private final int windowSize;
+    private final double failureRate;
+    private final Duration openDuration;
+    private final MayleoMetrics metrics;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public ClientCircuitBreaker(@Value("${app.mail.circuit-breaker.consecutive-failures:5}") int consecutiveFailures,
+            @Value("${app.mail.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${app.mail.circuit-breaker.failure-rate:0.5}") double failureRate,
+            @Value("${app.mail.circuit-breaker.open-duration:60s}") Duration openDuration, MayleoMetrics metrics) {
+        this.consecutiveFailures = consecutiveFailures;
+        this.windowSize = windowSize;
+        this.failureRate = failureRate;
+        this.openDuration = openDuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return PROBE when only one request of the client may be sent, to test recovery
+     */
+    public Decision acquire(String clientId) {
+        Circuit circuit = circuit(clientId);
+        synchronized (circuit) {
+            Instant now = Instant.now();
+            if (circuit.state == State.CLOSED) {
+                return Decision.ALLOW;
+            }
+            if (now.isBefore(circuit.until)) {
+                return Decision.REJECT; // Open, or a probe in flight
+            }
+            transition(clientId, circuit, State.HALF_OPEN, now.plus(openDuration));
+            return Decision.PROBE;
+        }
+    }
+
+    // When the client's deferred claims may be claimed again
+    public Instant retryAt(String clientId) {
+        Circuit circuit = circuits.get(clientId);
+        if (circuit == null) {
+            return Instant.now();
+        }
+        synchronized (circuit) {
+            return circuit.state == State.CLOSED ? Instant.now() : circuit.until;
+        }
+    }
+
+    public void recordSuccess(String clientId) {
+        Circuit circuit = circuit(clientId);
+        synchronized (circuit) {
+            switch (circuit.state) {
+                case CLOSED -> circuit.record(false);
+                case HALF_OPEN -> {
+                    circuit.reset();
+                    transition(clientId, circuit, State.CLOSED, null);
+                }
+                case OPEN -> { } // Dispatched before the circuit opened
+            }
+        }
+    }
+
+    public void recordFailure(String clientId) {
+        Circuit circuit = circuit(clientId);
+        synchronized (circuit) {
+            switch (circuit.state) {
+                case CLOSED -> {
+                    circuit.record(true);
+                    if (circuit.consecutiveFailures >= consecutiveFailures || circuit.windowFull()
+                            && circuit.windowFailures >= failureRate * windowSize) {
+                        transition(clientId, circuit, State.OPEN, Instant.now().plus(openDuration));
+                    }
+                }
+                case HALF_OPEN -> transition(clientId, circuit, State.OPEN, Instant.now().plus(openDuration));
+                case OPEN -> { } // Dispatched before the circuit opened
+            }
+        }
+    }
+
+    State state(String clientId) {
+        Circuit circuit = circuits.get(clientId);
+        if (circuit == null) {
+            return State.CLOSED;
+        }
+        synchronized (circuit) {
+            return circuit.state;
+        }
+    }
+
+    private void transition(String clientId, Circuit circuit, State state, Instant until) {
+        if (state == State.OPEN) {
+            log.warn("[Circuit] Dispatch of client {} suspended until {}", clientId, until);
+        } else if (state == State.CLOSED) {
+            log.info("[Circuit] Dispatch of client {} resumed", clientId);
+        }
+        circuit.state = state;
+        circuit.until = until;
+        metrics.recordCircuitTransition(clientId, state.name().toLowerCase());
+    }
+
+    private Circuit circuit(String clientId) {
+        return circuits.computeIfAbsent(clientId, id -> new Circuit(windowSize));
+    }
+
+    // Outcomes of the last groups, in a ring buffer
+    private static final class Circuit {
+        private final boolean[] window;
+        private State state = State.CLOSED;
+        private Instant until;
+        private int consecutiveFailures;
+        private int windowCount;
+        private int windowNext;
+        private int windowFailures;
+
+        private Circuit(int windowSize) {
+            this.window = new boolean[Math.max(1, windowSize)];
+        }
+
+        private void record(boolean failed) {
+            consecutiveFailures = failed ? consecutiveFailures + 1 : 0;
+            if (windowFull() && window[windowNext]) {
+                windowFailures--;
+            }
+            window[windowNext] = failed;
+            windowNext = (windowNext + 1) % window.length;
+            windowCount = Math.min(windowCount + 1, window.length);
+            if (failed) {
+                windowFailures++;
+            }
+        }
+
+        private boolean windowFull() {
+            return windowCount == window.length;
+        }
+
+        private void reset() {
+            consecutiveFailures = 0;
+            windowCount = 0;
+            windowNext = 0;
+            windowFailures = 0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.concurrent.Executor;
+
+/**
+ * Push path in front of the fixed-delay poll of {@link EmailRequestWorker}:
+ * - same node: the worker is woken up as soon as new requests are committed;
+ * - other nodes: a cheap MAX(created_at) marker on PENDING requests is polled
+ * and a wake-up is triggered when it moves forward;
+ * - backpressure: a worker that stopped on a saturated executor is resumed as
+ * soon as capacity frees up (see {@link ClaimSizer}).
+ * The fixed-delay poll stays as a safety net (e.g. for re-queued retries).
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.mail.wakeup.enabled", havingValue = "true", matchIfMissing = true)
+public class EmailDispatchTrigger {
+
+    private final EmailRequestWorker worker;
+    private final EmailRequestRepository repository;
+    private final Executor wakeUpExecutor;
+    private final ClaimSizer claimSizer;
+
+    private volatile Instant lastSeenMarker;
+
+    public EmailDispatchTrigger(EmailRequestWorker worker, EmailRequestRepository repository,
+            @Qualifier("dispatchWakeUpExecutor") Executor wakeUpExecutor, ClaimSizer claimSizer) {
+        this.worker = worker;
+        this.repository = repository;
+        this.wakeUpExecutor = wakeUpExecutor;
+        this.claimSizer = claimSizer;
+    }
+
+    // fallbackExecution: requests saved outside a transaction are already committed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailRequestsCreated(EmailRequestsCreatedEvent event) {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.wakeup.marker-poll-delay:250}")
+    public void pollPendingMarker() {
+        if (claimSizer.isBacklogWaitingForCapacity()) {
+            wakeUp();
+            return;
+        }
+        repository.findLatestCreatedAt(EmailRequestStatus.PENDING).ifPresent(marker -> {
+            Instant previous = lastSeenMarker;
+            if (previous == null || marker.isAfter(previous)) {
+                lastSeenMarker = marker;
+                wakeUp();
+            }
+        });
+    }
+
+    public void wakeUp() {
+        wakeUpExecutor.execute(() -> {
+            try {
+                worker.processPendingRequestsAutomatically();
+            } catch (Exception e) {
+                log.error("[Worker] Wake-up run failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+}
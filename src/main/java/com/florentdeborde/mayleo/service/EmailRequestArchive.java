@@ -0,0 +1,425 @@
+package com.florentdeborde.mayleo.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local archive of purged email requests (`app.mail.archive.*`), written by the
+ * {@link RetentionPurger} before each chunk is deleted:
+ * - a purge run appends to its own segment, `segment-<run>.ndjson.gz`, one gzip
+ * member per chunk (NDJSON of {@link ArchivedEmailRequest}, in keyset order);
+ * - `segment-<run>.idx` holds one line per request: id, client id, created_at
+ * (epoch ms), then the offset and length of its member in the segment;
+ * - `segment-<run>.sum` summarizes the index: the range of created_at and of
+ * ids, and the set of clients. It is rewritten after each chunk.
+ * All three are forced to disk before the chunk is deleted, so a crash can at
+ * worst archive a chunk twice. Lookups skip the segments whose summary rules
+ * them out, stream the index of the others line by line and only decompress the
+ * members they point to. A segment without an up-to-date summary is scanned.
+ */
+@Component
+@Slf4j
+public class EmailRequestArchive {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String SUMMARY_SUFFIX = ".sum";
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Value("${app.mail.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.mail.archive.directory:./archive}")
+    private Path directory;
+
+    // Keyed by index file, reloaded once the index outgrows it
+    private final Map<Path, SegmentSummary> summaries = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Segment of a purge run; its files are only created by the first append.
+     */
+    public Segment openSegment() {
+        return new Segment(SEGMENT_PREFIX + RUN_NAME.format(Instant.now()));
+    }
+
+    /**
+     * @return the archived request, if it belongs to the client
+     */
+    public Optional<ArchivedEmailRequest> findById(String clientId, UUID id) throws IOException {
+        // Newest segments first: a chunk archived twice (crash before its delete) has the same content
+        List<Path> indexes = indexFiles();
+        for (int i = indexes.size() - 1; i >= 0; i--) {
+            Path index = indexes.get(i);
+            SegmentSummary summary = summary(index);
+            if (summary != null && !summary.mayContain(clientId, id)) {
+                continue;
+            }
+            List<IndexEntry> found = new ArrayList<>(1);
+            scanIndex(index, candidate -> {
+                if (candidate.id().equals(id) && candidate.clientId().equals(clientId)) {
+                    found.add(candidate);
+                    return false;
+                }
+                return true;
+            });
+            if (!found.isEmpty()) {
+                return readMember(segmentOf(index), found.get(0)).stream()
+                        .filter(request -> request.id().equals(id))
+                        .findFirst();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the client's requests created on `day` (UTC), oldest first, at most `limit`
+     */
+    public List<ArchivedEmailRequest> findByClientAndDate(String clientId, LocalDate day, int limit)
+            throws IOException {
+        long from = day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        long to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        Map<UUID, Map.Entry<Path, IndexEntry>> matches = new LinkedHashMap<>();
+        for (Path index : indexFiles()) {
+            SegmentSummary summary = summary(index);
+            if (summary != null && !summary.mayContain(clientId, from, to)) {
+                continue;
+            }
+            Path segment = segmentOf(index);
+            scanIndex(index, entry -> {
+                if (entry.clientId().equals(clientId) && entry.createdAt() >= from && entry.createdAt() < to) {
+                    // Newest copy wins when a chunk was archived twice
+                    matches.put(entry.id(), Map.entry(segment, entry));
+                }
+                return true;
+            });
+        }
+        List<Map.Entry<Path, IndexEntry>> selected = matches.values().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Path, IndexEntry> match) -> match.getValue().createdAt())
+                        .thenComparing(match -> match.getValue().id()))
+                .limit(limit)
+                .toList();
+
+        // Each member is decompressed once, whatever the number of requests selected in it
+        Map<Map.Entry<Path, Long>, List<Map.Entry<Path, IndexEntry>>> byMember = selected.stream()
+                .collect(Collectors.groupingBy(match -> Map.entry(match.getKey(), match.getValue().offset()),
+                        LinkedHashMap::new, Collectors.toList()));
+        List<ArchivedEmailRequest> requests = new ArrayList<>(selected.size());
+        for (List<Map.Entry<Path, IndexEntry>> member : byMember.values()) {
+            Set<UUID> ids = member.stream().map(match -> match.getValue().id()).collect(Collectors.toSet());
+            for (ArchivedEmailRequest request : readMember(member.get(0).getKey(), member.get(0).getValue())) {
+                if (ids.remove(request.id())) {
+                    requests.add(request);
+                }
+            }
+        }
+        requests.sort(Comparator.comparing(ArchivedEmailRequest::createdAt).thenComparing(ArchivedEmailRequest::id));
+        return requests;
+    }
+
+    private List<Path> indexFiles() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // Run names sort chronologically
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && file.getFileName().toString().endsWith(INDEX_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private Path segmentOf(Path index) {
+        return siblingOf(index, SEGMENT_SUFFIX);
+    }
+
+    private Path siblingOf(Path index, String suffix) {
+        String name = index.getFileName().toString();
+        return index.resolveSibling(name.substring(0, name.length() - INDEX_SUFFIX.length()) + suffix);
+    }
+
+    /**
+     * @return the summary of the segment, or null if it has none covering its
+     * whole index (written before summaries existed, or a crash between the index
+     * and the summary): the segment must then be scanned
+     */
+    private SegmentSummary summary(Path index) throws IOException {
+        long indexBytes = Files.size(index);
+        SegmentSummary summary = summaries.get(index);
+        if (summary != null && summary.indexBytes() == indexBytes) {
+            return summary;
+        }
+        Path file = siblingOf(index, SUMMARY_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            summary = SegmentSummary.parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            log.warn("[Archive] Ignoring malformed summary {}", file.getFileName());
+            return null;
+        }
+        if (summary.indexBytes() != indexBytes) {
+            return null;
+        }
+        summaries.put(index, summary);
+        return summary;
+    }
+
+    /**
+     * Streams the index up to its size when called: a last line torn by a crash
+     * mid-append, or appended meanwhile, is not read (a torn one has no line feed,
+     * its chunk was not deleted).
+     * @param visitor returns false to stop the scan
+     */
+    private void scanIndex(Path index, Predicate<IndexEntry> visitor) throws IOException {
+        long size = Files.size(index);
+        long read = 0;
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (read > size) {
+                    return;
+                }
+                IndexEntry entry = parseIndexLine(index, line);
+                if (entry != null && !visitor.test(entry)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private IndexEntry parseIndexLine(Path index, String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            return new IndexEntry(UUID.fromString(fields[0]), fields[1], Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3]), Integer.parseInt(fields[4]));
+        } catch (IllegalArgumentException e) {
+            log.warn("[Archive] Skipping malformed line of {}", index.getFileName());
+            return null;
+        }
+    }
+
+    private List<ArchivedEmailRequest> readMember(Path segment, IndexEntry entry) throws IOException {
+        ByteBuffer member = ByteBuffer.allocate(entry.length());
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            while (member.hasRemaining()) {
+                if (channel.read(member, entry.offset() + member.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        List<ArchivedEmailRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(member.array(), 0, member.position())),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                requests.add(objectMapper.readValue(line, ArchivedEmailRequest.class));
+            }
+        }
+        return requests;
+    }
+
+    private record IndexEntry(UUID id, String clientId, long createdAt, long offset, int length) {
+    }
+
+    /**
+     * What a segment holds, as of `indexBytes` of its index. One line per field:
+     * `index-bytes`, `created-at` min and max (epoch ms), `id` min and max, then
+     * the clients, tab-separated.
+     */
+    private record SegmentSummary(long indexBytes, long minCreatedAt, long maxCreatedAt, UUID minId, UUID maxId,
+            Set<String> clients) {
+
+        private boolean mayContain(String clientId, UUID id) {
+            return clients.contains(clientId) && id.compareTo(minId) >= 0 && id.compareTo(maxId) <= 0;
+        }
+
+        // Created within [from, to)
+        private boolean mayContain(String clientId, long from, long to) {
+            return clients.contains(clientId) && maxCreatedAt >= from && minCreatedAt < to;
+        }
+
+        private String format() {
+            return "index-bytes\t" + indexBytes + "\n"
+                    + "created-at\t" + minCreatedAt + "\t" + maxCreatedAt + "\n"
+                    + "id\t" + minId + "\t" + maxId + "\n"
+                    + "clients\t" + String.join("\t", clients) + "\n";
+        }
+
+        private static SegmentSummary parse(List<String> lines) {
+            Map<String, String[]> fields = new LinkedHashMap<>();
+            for (String line : lines) {
+                String[] values = line.split("\t");
+                fields.put(values[0], values);
+            }
+            String[] indexBytes = fields.get("index-bytes");
+            String[] createdAt = fields.get("created-at");
+            String[] id = fields.get("id");
+            String[] clients = fields.get("clients");
+            if (indexBytes == null || createdAt == null || id == null || clients == null
+                    || indexBytes.length != 2 || createdAt.length != 3 || id.length != 3) {
+                throw new IllegalArgumentException("Incomplete segment summary");
+            }
+            return new SegmentSummary(Long.parseLong(indexBytes[1]), Long.parseLong(createdAt[1]),
+                    Long.parseLong(createdAt[2]), UUID.fromString(id[1]), UUID.fromString(id[2]),
+                    Set.of(Arrays.copyOfRange(clients, 1, clients.length)));
+        }
+    }
+
+    /**
+     * Append-only segment and index of one purge run. Not thread-safe: a run
+     * appends its chunks one after the other.
+     */
+    public class Segment implements Closeable {
+
+        private final String name;
+        private FileChannel data;
+        private FileChannel index;
+        private long minCreatedAt = Long.MAX_VALUE;
+        private long maxCreatedAt = Long.MIN_VALUE;
+        private UUID minId;
+        private UUID maxId;
+        private final Set<String> clients = new TreeSet<>();
+
+        private Segment(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Appends a chunk as one gzip member, indexes it and rewrites the summary.
+         * All are forced to disk on return, the chunk can then be deleted.
+         */
+        public void append(List<ArchivedEmailRequest> requests) throws IOException {
+            if (requests.isEmpty()) {
+                return;
+            }
+            if (data == null) {
+                Files.createDirectories(directory);
+                data = FileChannel.open(directory.resolve(name + SEGMENT_SUFFIX),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                index = FileChannel.open(directory.resolve(name + INDEX_SUFFIX),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8)) {
+                for (ArchivedEmailRequest request : requests) {
+                    writer.write(objectMapper.writeValueAsString(request));
+                    writer.write('\n');
+                }
+            }
+            long offset = data.size();
+            writeFully(data, ByteBuffer.wrap(compressed.toByteArray()), offset);
+            data.force(false);
+
+            StringBuilder lines = new StringBuilder();
+            for (ArchivedEmailRequest request : requests) {
+                lines.append(request.id()).append('\t')
+                        .append(request.apiClientId()).append('\t')
+                        .append(request.createdAt().toEpochMilli()).append('\t')
+                        .append(offset).append('\t')
+                        .append(compressed.size()).append('\n');
+                summarize(request);
+            }
+            writeFully(index, ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)), index.size());
+            index.force(false);
+            writeSummary();
+        }
+
+        private void summarize(ArchivedEmailRequest request) {
+            long createdAt = request.createdAt().toEpochMilli();
+            minCreatedAt = Math.min(minCreatedAt, createdAt);
+            maxCreatedAt = Math.max(maxCreatedAt, createdAt);
+            minId = minId == null || request.id().compareTo(minId) < 0 ? request.id() : minId;
+            maxId = maxId == null || request.id().compareTo(maxId) > 0 ? request.id() : maxId;
+            clients.add(request.apiClientId());
+        }
+
+        // Replaced atomically: readers see the previous summary or this one, never half of it
+        private void writeSummary() throws IOException {
+            SegmentSummary summary = new SegmentSummary(index.size(), minCreatedAt, maxCreatedAt, minId, maxId,
+                    clients);
+            Path temporary = directory.resolve(name + SUMMARY_SUFFIX + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap(summary.format().getBytes(StandardCharsets.UTF_8)), 0);
+                channel.force(false);
+            }
+            Files.move(temporary, directory.resolve(name + SUMMARY_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (FileChannel ignoredData = data; FileChannel ignoredIndex = index) {
+                if (data != null) {
+                    log.info("[Archive] Segment {} closed ({} bytes)", name, data.size());
+                }
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.florentdeborde.mayleo.repository.PendingTenant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class EmailRequestClaimer {
+
+    private final EmailRequestRepository repository;
+    private final ApiClientRepository apiClientRepository;
+    private final MayleoMetrics metrics;
+    private final Duration leaseDuration;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final TenantShareAllocator allocator = new TenantShareAllocator();
+
+    // Client names only tag metrics: resolved once per client instead of joined per row
+    private final Map<String, String> clientNames = new ConcurrentHashMap<>();
+
+    public EmailRequestClaimer(EmailRequestRepository repository, ApiClientRepository apiClientRepository,
+            MayleoMetrics metrics, @Value("${app.mail.lease-duration:5m}") Duration leaseDuration) {
+        this.repository = repository;
+        this.apiClientRepository = apiClientRepository;
+        this.metrics = metrics;
+        this.leaseDuration = leaseDuration;
+    }
+
+    /**
+     * Moves up to `limit` PENDING requests to SENDING and returns them.
+     * Only requests whose `next_attempt_at` is reached are eligible (retries back off,
+     * see {@link RetryBackoff}).
+     * The rows are selected with FOR UPDATE SKIP LOCKED: concurrent claims (other
+     * threads or instances) never see the same row, and never wait on each other.
+     * Each claim stamps its rows with a unique `claimed_by` token and a lease
+     * (`app.mail.lease-duration`), past which recovery re-queues them.
+     * The transaction only spans the claim, so row locks are released before the
+     * requests are dispatched.
+     * The batch is split between tenants by weight (see {@link TenantShareAllocator})
+     * so that one client's campaign cannot starve the others; slots a tenant cannot
+     * use are topped up in due order.
+     * Claimed rows are read as {@link ClaimedEmailRequest} projections: only the
+     * columns needed to render and send, without the ApiClient graph.
+     */
+    @Transactional
+    public List<ClaimedEmailRequest> claimBatch(String owner, int limit) {
+        Instant now = Instant.now();
+        Set<UUID> ids = selectFairly(limit, now);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Unique per claim: rows of earlier claims still being sent are not fetched again
+        String claimToken = owner + "#" + claimSequence.incrementAndGet();
+        repository.markAsSending(EmailRequestId.toBytes(ids), now, claimToken, now.plus(leaseDuration));
+
+        List<ClaimedEmailRequest> claimed = repository.findClaimedBy(claimToken);
+        // Waiting starts when the request is due, so a retry backoff does not count as queueing
+        claimed.forEach(request -> metrics.recordQueueWait(clientName(request.apiClientId()),
+                Duration.between(request.nextAttemptAt(), now)));
+        return interleaveByClient(claimed);
+    }
+
+    private Set<UUID> selectFairly(int limit, Instant now) {
+        Map<String, Integer> weights = repository.findPendingTenants(now).stream()
+                .collect(Collectors.toMap(PendingTenant::getClientId, PendingTenant::getWeight,
+                        (first, second) -> first, LinkedHashMap::new));
+        if (weights.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<UUID> ids = new LinkedHashSet<>();
+        allocator.allocate(weights, limit).forEach((clientId, share) -> {
+            if (share > 0) {
+                List<UUID> tenantIds = EmailRequestId.fromBytes(
+                        repository.findPendingIdsForUpdateByClient(clientId, now, share));
+                allocator.record(clientId, share, tenantIds.size());
+                ids.addAll(tenantIds);
+            }
+        });
+
+        // Work-conserving: slots left by drained tenants go to the requests due first.
+        // Rows already locked by this transaction may come back, hence the set.
+        if (ids.size() < limit) {
+            ids.addAll(EmailRequestId.fromBytes(repository.findPendingIdsForUpdate(now, limit - ids.size())));
+        }
+        return ids;
+    }
+
+    private String clientName(String clientId) {
+        return clientNames.computeIfAbsent(clientId,
+                id -> apiClientRepository.findNameById(id).orElse(id));
+    }
+
+    /**
+     * Round-robin across tenants (oldest first within each), so a rejected tail is
+     * not one tenant's. Within a tenant, requests are interleaved by recipient
+     * domain the same way: a campaign to one domain does not fill whole send groups
+     * that its throttle would hold back (see RecipientDomainThrottle).
+     */
+    private static List<ClaimedEmailRequest> interleaveByClient(List<ClaimedEmailRequest> requests) {
+        Map<String, List<ClaimedEmailRequest>> byClient = requests.stream()
+                .sorted(Comparator.comparing(ClaimedEmailRequest::createdAt))
+                .collect(Collectors.groupingBy(ClaimedEmailRequest::apiClientId, LinkedHashMap::new,
+                        Collectors.toList()));
+        byClient.replaceAll((clientId, tenantRequests) ->
+                interleave(tenantRequests, request -> String.valueOf(request.recipientDomain())));
+        return roundRobin(byClient.values(), requests.size());
+    }
+
+    // Keeps the order of `requests` within each key, keys in order of first appearance
+    private static List<ClaimedEmailRequest> interleave(List<ClaimedEmailRequest> requests,
+            Function<ClaimedEmailRequest, String> key) {
+        return roundRobin(requests.stream()
+                .collect(Collectors.groupingBy(key, LinkedHashMap::new, Collectors.toList()))
+                .values(), requests.size());
+    }
+
+    private static List<ClaimedEmailRequest> roundRobin(Collection<List<ClaimedEmailRequest>> lists, int size) {
+        List<ClaimedEmailRequest> interleaved = new ArrayList<>(size);
+        for (int round = 0; interleaved.size() < size; round++) {
+            for (List<ClaimedEmailRequest> list : lists) {
+                if (round < list.size()) {
+                    interleaved.add(list.get(round));
+                }
+            }
+        }
+        return interleaved;
+    }
+}
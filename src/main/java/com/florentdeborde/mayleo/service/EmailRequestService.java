@@ -3,20 +3,32 @@ package com.florentdeborde.mayleo.service;
 import com.florentdeborde.mayleo.exception.ExceptionCode;
 import com.florentdeborde.mayleo.exception.MayleoException;
 import com.florentdeborde.mayleo.dto.request.EmailRequestDto;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.florentdeborde.mayleo.dto.response.EmailRequestBatchResponse;
+import com.florentdeborde.mayleo.dto.response.EmailRequestStreamResponse;
 import com.florentdeborde.mayleo.metrics.MayleoMetrics;
 import com.florentdeborde.mayleo.model.*;
 import com.florentdeborde.mayleo.repository.EmailConfigRepository;
 import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.florentdeborde.mayleo.security.ApiKeyEncoder;
+import com.florentdeborde.mayleo.security.HmacVerifyingInputStream;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
 import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
@@ -32,6 +44,29 @@ public class EmailRequestService {
 
     private final MayleoMetrics metrics;
 
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.api.batch-max-size:500}")
+    private int batchMaxSize = 500;
+
+    @Value("${app.api.stream-max-lines:100000}")
+    private int streamMaxLines = 100000;
+
+    @Value("${app.api.stream-staging-ttl:1h}")
+    private Duration streamStagingTtl = Duration.ofHours(1);
+
+    // Fits the claimed_by column; never a worker claim token (UUID based, see EmailRequestWorker)
+    private static final String STAGING_TOKEN_PREFIX = "ingest#";
+
+    // An email request is a few hundred bytes: anything above is rejected without being parsed
+    private static final int STREAM_MAX_LINE_LENGTH = 16 * 1024;
+    private static final int STREAM_MAX_REPORTED_ERRORS = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
     private final Cache<String, Bucket> rpmBuckets = Caffeine.newBuilder()
             .expireAfterAccess(Duration.ofHours(1))
             .build();
@@ -41,10 +76,12 @@ public class EmailRequestService {
             .build();
 
     public EmailRequestService(EmailRequestRepository repository, EmailConfigRepository emailConfigRepository,
-            MayleoMetrics metrics) {
+            MayleoMetrics metrics, Validator validator, ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.emailConfigRepository = emailConfigRepository;
         this.metrics = metrics;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
     }
 
     public String createEmailRequest(ApiClient apiClient, EmailRequestDto dto, String idempotencyKey) {
@@ -55,9 +92,9 @@ public class EmailRequestService {
 
         metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED);
 
-        validateRpmLimitAndDailyQuota(apiClient);
+        validateRpmLimitAndDailyQuota(apiClient, 1);
 
-        EmailConfig emailConfig = emailConfigRepository.findByApiClient(apiClient)
+        EmailConfig emailConfig = emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)
                 .orElseGet(() -> {
                     metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_CONFIG_NOT_FOUND);
                     throw new MayleoException(ExceptionCode.EMAIL_CONFIG_NOT_FOUND);
@@ -68,40 +105,310 @@ public class EmailRequestService {
             EmailRequest savedEmailRequest = repository.save(emailRequest);
 
             metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED);
-            return savedEmailRequest.getId();
+            eventPublisher.publishEvent(new EmailRequestsCreatedEvent(apiClient.getId(), 1));
+            return savedEmailRequest.getId().toString();
         } catch (DataIntegrityViolationException e) {
             return findExistingId(apiClient, idempotencyKey).orElseThrow(() -> e);
         }
     }
 
+    /**
+     * Creates up to `app.api.batch-max-size` requests signed as one payload.
+     * Items are validated individually (invalid ones are reported, not fatal), the
+     * quota is consumed once for all valid items and rows are inserted through a
+     * single JDBC-batched flush. When an idempotency key is provided, each item gets
+     * a derived key so that replaying the same batch returns the same ids.
+     */
+    public EmailRequestBatchResponse createEmailRequests(ApiClient apiClient, List<EmailRequestDto> dtos,
+            String idempotencyKey) {
+        if (dtos.size() > batchMaxSize) {
+            throw new MayleoException(ExceptionCode.BATCH_TOO_LARGE);
+        }
+
+        EmailRequestBatchResponse.Item[] items = new EmailRequestBatchResponse.Item[dtos.size()];
+        Map<String, Integer> itemKeys = new LinkedHashMap<>();
+
+        for (int index = 0; index < dtos.size(); index++) {
+            String violations = describeViolations(dtos.get(index));
+            if (violations != null) {
+                items[index] = EmailRequestBatchResponse.Item.rejected(index, ExceptionCode.INVALID_REQUEST.name(),
+                        violations);
+            } else {
+                itemKeys.put(deriveItemKey(idempotencyKey, index), index);
+            }
+        }
+
+        // Replayed items are answered with their existing id, without consuming quota
+        if (idempotencyKey != null) {
+            findExistingIds(apiClient, itemKeys.keySet()).forEach((key, id) -> {
+                int index = itemKeys.remove(key);
+                items[index] = EmailRequestBatchResponse.Item.accepted(index, id);
+            });
+        }
+
+        if (!itemKeys.isEmpty()) {
+            int count = itemKeys.size();
+            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED, count);
+
+            validateRpmLimitAndDailyQuota(apiClient, count);
+
+            // The tokens only pay for rows this call inserted: given back on any other outcome
+            boolean inserted = false;
+            try {
+                EmailConfig emailConfig = findEmailConfig(apiClient, count);
+
+                List<EmailRequest> emailRequests = new ArrayList<>(count);
+                itemKeys.forEach((key, index) -> emailRequests.add(
+                        buildEmailRequest(dtos.get(index), apiClient, emailConfig, idempotencyKey != null ? key : null)));
+
+                try {
+                    repository.insertAll(emailRequests);
+                    inserted = true;
+                    Iterator<EmailRequest> created = emailRequests.iterator();
+                    for (Integer index : itemKeys.values()) {
+                        items[index] = EmailRequestBatchResponse.Item.accepted(index, created.next().getId().toString());
+                    }
+                    metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED, count);
+                    eventPublisher.publishEvent(new EmailRequestsCreatedEvent(apiClient.getId(), count));
+                } catch (DataIntegrityViolationException e) {
+                    // Same batch replayed concurrently: the other call inserted the rows
+                    if (idempotencyKey == null) {
+                        throw e;
+                    }
+                    Map<String, String> existingIds = findExistingIds(apiClient, itemKeys.keySet());
+                    if (existingIds.size() != itemKeys.size()) {
+                        throw e;
+                    }
+                    itemKeys.forEach((key, index) -> items[index] = EmailRequestBatchResponse.Item.accepted(index,
+                            existingIds.get(key)));
+                }
+            } finally {
+                if (!inserted) {
+                    refundQuota(apiClient, count);
+                }
+            }
+        }
+
+        List<EmailRequestBatchResponse.Item> results = Arrays.asList(items);
+        int accepted = (int) results.stream().filter(item -> item.id() != null).count();
+        return new EmailRequestBatchResponse(accepted, results.size() - accepted, results);
+    }
+
+    /**
+     * Ingests an NDJSON body (one email request per line) without buffering it.
+     * Valid lines are inserted in JDBC-batched chunks of `app.api.batch-max-size`,
+     * each in its own short transaction, so memory stays flat and no connection is
+     * held while the client is still sending. Chunks are STAGED under an ingest
+     * token that workers never claim; they are flipped to PENDING in one UPDATE
+     * once the HMAC, computed over the whole stream, is verified, and deleted
+     * otherwise: a tampered upload never becomes sendable. Quota consumed by a
+     * failed ingest is given back.
+     */
+    public EmailRequestStreamResponse ingestStream(ApiClient apiClient, HmacVerifyingInputStream body,
+            String idempotencyKey) throws IOException {
+        NdjsonLineReader reader = new NdjsonLineReader(body, STREAM_MAX_LINE_LENGTH);
+        List<EmailRequestBatchResponse.Item> errors = new ArrayList<>();
+        Map<String, EmailRequestDto> chunk = new LinkedHashMap<>();
+        EmailConfig emailConfig = null;
+        long accepted = 0;
+        long rejected = 0;
+        long consumedTokens = 0;
+        Staging staging = new Staging(STAGING_TOKEN_PREFIX + UUID.randomUUID(), Instant.now().plus(streamStagingTtl));
+
+        try {
+            byte[] line;
+            for (int index = 0; (line = reader.nextLine()) != null; index++) {
+                if (index >= streamMaxLines) {
+                    throw new MayleoException(ExceptionCode.BATCH_TOO_LARGE);
+                }
+                if (!reader.isTruncated() && isBlank(line)) {
+                    continue;
+                }
+
+                String error = reader.isTruncated()
+                        ? "line exceeds " + STREAM_MAX_LINE_LENGTH + " bytes"
+                        : parseAndValidate(line, chunk, deriveItemKey(idempotencyKey, index));
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < STREAM_MAX_REPORTED_ERRORS) {
+                        errors.add(EmailRequestBatchResponse.Item.rejected(index, ExceptionCode.INVALID_REQUEST.name(),
+                                error));
+                    }
+                }
+
+                if (chunk.size() >= batchMaxSize) {
+                    emailConfig = emailConfig != null ? emailConfig : findEmailConfig(apiClient, chunk.size());
+                    int inserted = insertChunk(apiClient, emailConfig, chunk, idempotencyKey != null, staging);
+                    consumedTokens += inserted;
+                    accepted += chunk.size();
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                emailConfig = emailConfig != null ? emailConfig : findEmailConfig(apiClient, chunk.size());
+                consumedTokens += insertChunk(apiClient, emailConfig, chunk, idempotencyKey != null, staging);
+                accepted += chunk.size();
+            }
+
+            if (!body.verifySignature()) {
+                log.warn("[Security Alert] Invalid HMAC Signature on stream | Client: {}", apiClient.getName());
+                throw new MayleoException(ExceptionCode.INVALID_SIGNATURE);
+            }
+            if (consumedTokens > 0) {
+                repository.publishStaged(staging.token());
+            }
+        } catch (RuntimeException | IOException e) {
+            if (consumedTokens > 0) {
+                discardStaged(staging);
+            }
+            refundQuota(apiClient, consumedTokens);
+            throw e;
+        }
+
+        metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED, (int) consumedTokens);
+        if (consumedTokens > 0) {
+            eventPublisher.publishEvent(new EmailRequestsCreatedEvent(apiClient.getId(), (int) consumedTokens));
+        }
+        return new EmailRequestStreamResponse(accepted, rejected, errors);
+    }
+
+    private String parseAndValidate(byte[] line, Map<String, EmailRequestDto> chunk, String itemKey) {
+        EmailRequestDto dto;
+        try {
+            dto = objectMapper.readValue(line, EmailRequestDto.class);
+        } catch (IOException e) {
+            return "malformed JSON";
+        }
+        String violations = describeViolations(dto);
+        if (violations == null) {
+            chunk.put(itemKey, dto);
+        }
+        return violations;
+    }
+
+    // Rows of one stream ingest: claimed by the ingest until published, deleted by the self-healing job past expiresAt
+    private record Staging(String token, Instant expiresAt) {
+    }
+
+    private void discardStaged(Staging staging) {
+        try {
+            repository.deleteStaged(staging.token());
+        } catch (RuntimeException e) {
+            log.warn("[Ingest] Could not delete staged rows of {}, left to the self-healing job: {}", staging.token(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts, as STAGED, the chunk items that were not already created under their
+     * derived idempotency key and returns how many rows (quota tokens) were written.
+     */
+    private int insertChunk(ApiClient apiClient, EmailConfig emailConfig, Map<String, EmailRequestDto> chunk,
+            boolean idempotent, Staging staging) {
+        Map<String, EmailRequestDto> toInsert = new LinkedHashMap<>(chunk);
+        if (idempotent) {
+            findExistingIds(apiClient, toInsert.keySet()).keySet().forEach(toInsert::remove);
+        }
+        if (toInsert.isEmpty()) {
+            return 0;
+        }
+
+        int count = toInsert.size();
+        metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED, count);
+        validateRpmLimitAndDailyQuota(apiClient, count);
+
+        List<EmailRequest> emailRequests = new ArrayList<>(count);
+        toInsert.forEach((key, dto) -> emailRequests.add(
+                buildEmailRequest(dto, apiClient, emailConfig, idempotent ? key : null)));
+        for (EmailRequest emailRequest : emailRequests) {
+            emailRequest.setStatus(EmailRequestStatus.STAGED);
+            emailRequest.setClaimedBy(staging.token());
+            emailRequest.setLeaseUntil(staging.expiresAt());
+        }
+        repository.insertAll(emailRequests);
+        return count;
+    }
+
+    private EmailConfig findEmailConfig(ApiClient apiClient, int count) {
+        return emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)
+                .orElseGet(() -> {
+                    metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_CONFIG_NOT_FOUND, count);
+                    throw new MayleoException(ExceptionCode.EMAIL_CONFIG_NOT_FOUND);
+                });
+    }
+
+    private void refundQuota(ApiClient apiClient, long tokens) {
+        if (tokens > 0) {
+            resolveRpmBucket(apiClient).addTokens(tokens);
+            resolveDailyBucket(apiClient).addTokens(tokens);
+        }
+    }
+
+    private static boolean isBlank(byte[] line) {
+        for (byte b : line) {
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String describeViolations(EmailRequestDto dto) {
+        if (dto == null) {
+            return "request must not be null";
+        }
+        Set<ConstraintViolation<EmailRequestDto>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private String deriveItemKey(String idempotencyKey, int index) {
+        if (idempotencyKey == null) {
+            return String.valueOf(index);
+        }
+        // Fits the CHAR(64) idempotency column whatever the length of the client key
+        return ApiKeyEncoder.hashSha256(idempotencyKey, "#" + index);
+    }
+
+    private Map<String, String> findExistingIds(ApiClient apiClient, Collection<String> idempotencyKeys) {
+        return repository.findByApiClientAndIdempotencyKeyIn(apiClient, idempotencyKeys).stream()
+                .collect(Collectors.toMap(EmailRequest::getIdempotencyKey, request -> request.getId().toString()));
+    }
+
     private Optional<String> findExistingId(ApiClient apiClient, String idempotencyKey) {
         if (idempotencyKey == null)
             return Optional.empty();
 
         return repository.findByApiClientAndIdempotencyKey(apiClient, idempotencyKey)
-                .map(EmailRequest::getId);
+                .map(request -> request.getId().toString());
     }
 
-    private void validateRpmLimitAndDailyQuota(ApiClient apiClient) {
+    private void validateRpmLimitAndDailyQuota(ApiClient apiClient, int tokens) {
         if (apiClient.getRpmLimit() <= 0) {
-            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM);
+            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM, tokens);
             throw new MayleoException(ExceptionCode.RPM_LIMIT_EXCEEDED);
         }
         if (apiClient.getDailyQuota() <= 0) {
-            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_DAILY_QUOTA);
+            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_DAILY_QUOTA, tokens);
             throw new MayleoException(ExceptionCode.DAILY_QUOTA_EXCEEDED);
         }
 
         Bucket dailyBucket = resolveDailyBucket(apiClient);
         Bucket rpmBucket = resolveRpmBucket(apiClient);
 
-        if (!rpmBucket.tryConsume(1)) {
-            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM);
+        if (!rpmBucket.tryConsume(tokens)) {
+            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM, tokens);
             throw new MayleoException(ExceptionCode.RPM_LIMIT_EXCEEDED);
         }
 
-        if (!dailyBucket.tryConsume(1)) {
-            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_DAILY_QUOTA);
+        if (!dailyBucket.tryConsume(tokens)) {
+            metrics.recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_DAILY_QUOTA, tokens);
             throw new MayleoException(ExceptionCode.DAILY_QUOTA_EXCEEDED);
         }
     }
@@ -140,7 +447,7 @@ public class EmailRequestService {
         preparedMessage = cleanHtml(preparedMessage);
 
         return EmailRequest.builder()
-                .id(UUID.randomUUID().toString())
+                .id(EmailRequestId.next())
                 .apiClient(apiClient)
                 .toEmail(dto.getToEmail())
                 .subject(preparedSubject)
@@ -1,140 +1,344 @@
 package com.florentdeborde.mayleo.service;
 
-import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
-import com.florentdeborde.mayleo.model.EmailRequest;
-import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.config.RecipientDomainProperties;
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.model.EmailConfig;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
 import com.florentdeborde.mayleo.repository.EmailRequestRepository;
 import lombok.extern.slf4j.Slf4j;
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import org.springframework.transaction.annotation.Transactional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Slf4j
 public class EmailRequestWorker {
 
+    private static final String STUCK_REASON = "Self-Healing: Reset from SENDING (Stuck)";
+    private static final String CIRCUIT_OPEN_REASON = "Deferred: client circuit open after repeated SMTP failures";
+    private static final String PACING_REASON = "Deferred: SMTP account send rate";
+    private static final String DOMAIN_PACING_REASON = "Deferred: recipient domain send rate";
+
+    @Value("${app.mail.recovery.chunk-size:1000}")
+    private int recoveryChunkSize;
+
+    @Value("${app.mail.send-group-size:10}")
+    private int sendGroupSize;
+
     private final EmailRequestRepository repository;
+    private final EmailRequestClaimer claimer;
     private final EmailSenderService emailSenderService;
-    private final PostcardRenderer postcardRenderer;
+    private final ClaimSizer claimSizer;
+    private final MayleoMetrics metrics;
+    private final RetentionPurger retentionPurger;
+    private final SmtpHostLimiter hostLimiter;
+    private final ClientCircuitBreaker circuitBreaker;
+    private final SmtpAccountPacer pacer;
+    private final RecipientDomainThrottle domainThrottle;
+    private final RecipientDomainProperties domainProperties;
+    private final SendingAccountRouter accountRouter;
     private final String instanceId = UUID.randomUUID().toString();
 
-    public EmailRequestWorker(EmailRequestRepository repository, EmailSenderService emailSenderService,
-            PostcardRenderer postcardRenderer) {
+    public EmailRequestWorker(EmailRequestRepository repository, EmailRequestClaimer claimer,
+            EmailSenderService emailSenderService, ClaimSizer claimSizer, MayleoMetrics metrics,
+            RetentionPurger retentionPurger, SmtpHostLimiter hostLimiter, ClientCircuitBreaker circuitBreaker,
+            SmtpAccountPacer pacer, RecipientDomainThrottle domainThrottle,
+            RecipientDomainProperties domainProperties, SendingAccountRouter accountRouter) {
         this.repository = repository;
+        this.claimer = claimer;
         this.emailSenderService = emailSenderService;
-        this.postcardRenderer = postcardRenderer;
+        this.claimSizer = claimSizer;
+        this.metrics = metrics;
+        this.retentionPurger = retentionPurger;
+        this.hostLimiter = hostLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.pacer = pacer;
+        this.domainThrottle = domainThrottle;
+        this.domainProperties = domainProperties;
+        this.accountRouter = accountRouter;
     }
 
     /**
      * Note on Scalability:
-     * We are currently using ShedLock to prevent multiple instances from processing
-     * the same emails (Race Condition).
-     * This ensures that only one instance handles the batch at any given time.
-     *
-     * FUTURE SCALABILITY (Option 3):
-     * If the volume increases to millions of emails per hour, consider switching to
-     * "Optimistic Locking"
-     * by assigning an 'instance_id' to a batch of rows via an atomic UPDATE,
-     * allowing all instances
-     * to work simultaneously on different segments of the queue.
+     * Every instance runs this method concurrently (no ShedLock). Rows are claimed
+     * with SELECT ... FOR UPDATE SKIP LOCKED in a short transaction (see
+     * {@link EmailRequestClaimer}), so each instance gets a disjoint slice of the
+     * queue and adding nodes adds send throughput.
+     * No connection is held past the claim: rendering and sending both run on the
+     * 'emailTaskExecutor', the scheduler thread only hands the requests over.
      */
     @Scheduled(fixedDelayString = "${app.mail.process-delay:5000}") // each 5s after last execution
-    @SchedulerLock(name = "EmailRequestService_processPendingEmails", // Keeping same lock name for compatibility or
-                                                                      // migration? User didn't specify, maybe safe to
-                                                                      // update to Worker name but let's stick to old
-                                                                      // name or update? Better update to reflect class
-                                                                      // name but lock name is persistent. Let's update
-                                                                      // it to "EmailRequestWorker_..." for clarity if
-                                                                      // user truncates lock table, or keep it. I'll
-                                                                      // update it to match class name.
-            lockAtMostFor = "2m", lockAtLeastFor = "100ms")
-    @Transactional
     public void processPendingRequestsAutomatically() {
-        // Step 1: Atomic locking of up to 100 requests.
-        // We temporarily hijack `error_message` to store the instance ID of the locking
-        // worker
-        // This prevents the need for a dedicated lock table and guarantees no
-        // duplicates even without ShedLock.
-        int lockedCount = repository.lockBatchForSending(Instant.now(), instanceId, 100);
-
-        if (lockedCount == 0) {
-            return; // Nothing to process
-        }
+        // Claims are sized to what the executor can take (see ClaimSizer) and
+        // repeated while they come back full and capacity remains
+        int limit = claimSizer.nextBatchSize();
+        while (true) {
+            if (limit == 0) {
+                claimSizer.recordClaim(0, 0);
+                return; // Executor saturated: rows stay PENDING for whoever frees up first
+            }
+
+            // Step 1: Claim requests (PENDING -> SENDING), committed immediately
+            List<ClaimedEmailRequest> pendingRequests = claimer.claimBatch(instanceId, limit);
+            claimSizer.recordClaim(limit, pendingRequests.size());
 
-        log.info("[Worker {}] Locked {} email requests for processing.", instanceId, lockedCount);
+            if (pendingRequests.isEmpty()) {
+                return; // Nothing to process
+            }
 
-        // Step 2: Retrieve the requests we just locked
-        List<EmailRequest> pendingRequests = repository.findByStatusAndErrorMessage(EmailRequestStatus.SENDING,
-                instanceId);
+            log.info("[Worker {}] Claimed {} email requests for processing.", instanceId, pendingRequests.size());
 
-        // Step 3: Dispatch them.
-        // The loop itself is synchronous, but `emailSenderService.sendEmail` is
+            // Step 2: Hand them to the executor (rendered and sent there)
+            if (!dispatch(pendingRequests) || pendingRequests.size() < limit) {
+                return;
+            }
+            limit = claimSizer.nextBatchSize();
+        }
+    }
+
+    /**
+     * @return false if requests were handed back, because the executor rejected a
+     * task or an SMTP host bulkhead was full: claiming again right away would get
+     * them back
+     */
+    private boolean dispatch(List<ClaimedEmailRequest> requests) {
+        // The loop itself is synchronous, but `emailSenderService.sendEmails` is
         // annotated with @Async
         // which means it immediately hands the task to the 'emailTaskExecutor'
         // ThreadPool and returns.
-        // Thus, 100 emails are dispatched in a few milliseconds and the ShedLock can
-        // safely release.
-        for (EmailRequest request : pendingRequests) {
-            try {
-                // Clear the hijacked error_message field now that we own the row
-                request.setErrorMessage(null);
-                repository.save(request);
-
-                log.info("[{}] Dispatching email request to async sender", request.getId());
-
-                PostcardHtml postcardHtml = postcardRenderer.render(request,
-                        "fr".equals(request.getLangCode()) ? "De Mayleo" : "From Mayleo");
-                emailSenderService.sendEmail(request, postcardHtml);
-            } catch (Exception e) {
-                markAsFailed(request, e);
-                log.error("[{}] Failed to send email request: {}", request.getId(), e.getMessage());
+        List<List<ClaimedEmailRequest>> groups = groupByClient(requests);
+        List<ClaimedEmailRequest> heldBack = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            List<ClaimedEmailRequest> group = groups.get(i);
+            String clientId = group.get(0).apiClientId();
+            ClientCircuitBreaker.Decision decision = circuitBreaker.acquire(clientId);
+            if (decision == ClientCircuitBreaker.Decision.REJECT) {
+                deferCircuitOpen(group);
+                continue;
+            }
+            if (decision == ClientCircuitBreaker.Decision.PROBE && group.size() > 1) {
+                // One request tests the recovery, the others wait for its outcome
+                deferCircuitOpen(group.subList(1, group.size()));
+                group = group.subList(0, 1);
+            }
+
+            // Throttled per recipient domain: busy domains are handed back, paced ones wait for their tokens
+            group = admitDomains(group, heldBack);
+            if (group.isEmpty()) {
+                continue;
+            }
+
+            // Routed over the client's sending accounts, each taking what its pacing bucket grants
+            List<Route> routes = route(clientId, group);
+            for (int j = 0; j < routes.size(); j++) {
+                Route route = routes.get(j);
+                String host = route.account() == null ? null : emailSenderService.resolveHost(route.account());
+                if (host != null && !hostLimiter.tryAdmit(host)) {
+                    // Host saturated: its requests wait in the database, not in the shared executor queue
+                    log.info("[Worker {}] SMTP host {} is saturated, {} requests of client {} stay PENDING",
+                            instanceId, host, route.requests().size(), clientId);
+                    giveBack(route, heldBack);
+                    continue;
+                }
+                try {
+                    log.info("[Worker {}] Dispatching {} email requests of client {} to async sender", instanceId,
+                            route.requests().size(), clientId);
+                    if (route.account() != null) {
+                        accountRouter.dispatched(route.account(), route.requests().size());
+                    }
+                    emailSenderService.sendEmails(route.requests(), route.account(), host);
+                } catch (RejectedExecutionException e) {
+                    if (host != null) {
+                        hostLimiter.leave(host);
+                    }
+                    if (route.account() != null) {
+                        accountRouter.completed(route.account(), route.requests().size());
+                    }
+                    // Queue full: hand the rest back right away instead of waiting for the lease to expire
+                    routes.subList(j, routes.size()).forEach(rest -> giveBack(rest, heldBack));
+                    groups.subList(i + 1, groups.size()).forEach(heldBack::addAll);
+                    int released = release(heldBack);
+                    log.warn("[Worker {}] Executor rejected dispatch, released {} claimed requests", instanceId,
+                            released);
+                    return false;
+                }
             }
         }
+        if (heldBack.isEmpty()) {
+            return true;
+        }
+        release(heldBack);
+        return false;
     }
 
+    /**
+     * Splits the group over the client's sending accounts, least loaded first (see
+     * SendingAccountRouter): each account sends what its pacing bucket grants, what
+     * none of them grants waits for the earliest token in the database.
+     * A client without any account gets one route without account: the sender
+     * fails its requests with the reason.
+     */
+    private List<Route> route(String clientId, List<ClaimedEmailRequest> group) {
+        List<EmailConfig> accounts = accountRouter.rank(emailSenderService.findAccounts(clientId));
+        if (accounts.isEmpty()) {
+            return List.of(new Route(null, group));
+        }
+        List<Route> routes = new ArrayList<>(accounts.size());
+        Instant retryAt = null;
+        int next = 0;
+        for (EmailConfig account : accounts) {
+            if (next == group.size()) {
+                break;
+            }
+            SmtpAccountPacer.Grant grant = pacer.acquire(account, group.size() - next);
+            if (grant.granted() > 0) {
+                routes.add(new Route(account, group.subList(next, next + grant.granted())));
+                next += grant.granted();
+            }
+            if (grant.retryAt() != null && (retryAt == null || grant.retryAt().isBefore(retryAt))) {
+                retryAt = grant.retryAt();
+            }
+        }
+        if (next < group.size()) {
+            List<ClaimedEmailRequest> paced = group.subList(next, group.size());
+            domainThrottle.cancel(paced);
+            defer(paced, retryAt, PACING_REASON);
+            metrics.recordSmtpPacingDeferred(clientId, paced.size());
+        }
+        return routes;
+    }
+
+    // Not dispatched after all: tokens and domain slots are given back, the requests handed back
+    private void giveBack(Route route, List<ClaimedEmailRequest> heldBack) {
+        if (route.account() != null) {
+            pacer.refund(route.account(), route.requests().size());
+        }
+        domainThrottle.cancel(route.requests());
+        heldBack.addAll(route.requests());
+    }
+
+    /**
+     * @return the requests of the group that took their recipient domain's slot
+     * and token, in claim order; the busy ones are added to `heldBack`
+     */
+    private List<ClaimedEmailRequest> admitDomains(List<ClaimedEmailRequest> group,
+            List<ClaimedEmailRequest> heldBack) {
+        RecipientDomainThrottle.Admission admission = domainThrottle.admit(group);
+        heldBack.addAll(admission.busy());
+        admission.paced().forEach((until, paced) -> {
+            defer(paced, until, DOMAIN_PACING_REASON);
+            String domain = paced.get(0).recipientDomain();
+            // Tagged by configured domain only, the others share the defaults
+            metrics.recordRecipientDomainDeferred(domainProperties.isConfigured(domain) ? domain : "default",
+                    paced.size());
+        });
+        return admission.admitted();
+    }
+
+    // Circuit open: not claimable again before it may close
+    private void deferCircuitOpen(List<ClaimedEmailRequest> requests) {
+        String clientId = requests.get(0).apiClientId();
+        defer(requests, circuitBreaker.retryAt(clientId), CIRCUIT_OPEN_REASON);
+        metrics.recordCircuitDeferred(clientId, requests.size());
+    }
+
+    // Back to PENDING until `until`, without counting a retry: they were never attempted
+    private void defer(List<ClaimedEmailRequest> requests, Instant until, String reason) {
+        repository.deferClaims(EmailRequestId.toBytes(requests.stream().map(ClaimedEmailRequest::id).toList()),
+                requests.get(0).claimedBy(), until, reason);
+        log.info("[Worker {}] {} requests of client {} deferred until {} ({})", instanceId, requests.size(),
+                requests.get(0).apiClientId(), until, reason);
+    }
+
+    // Back to PENDING without counting a retry: they were never attempted
+    private int release(List<ClaimedEmailRequest> requests) {
+        return repository.releaseClaims(
+                EmailRequestId.toBytes(requests.stream().map(ClaimedEmailRequest::id).toList()),
+                requests.get(0).claimedBy());
+    }
+
+    private record Route(EmailConfig account, List<ClaimedEmailRequest> requests) {
+    }
+
+    /**
+     * Groups of at most `app.mail.send-group-size` requests of one client, each
+     * sent over one SMTP connection. Capped so that a large campaign still
+     * spreads over several executor threads; groups keep the claim order.
+     */
+    private List<List<ClaimedEmailRequest>> groupByClient(List<ClaimedEmailRequest> requests) {
+        Map<String, List<ClaimedEmailRequest>> open = new HashMap<>();
+        List<List<ClaimedEmailRequest>> groups = new ArrayList<>();
+        for (ClaimedEmailRequest request : requests) {
+            List<ClaimedEmailRequest> group = open.get(request.apiClientId());
+            if (group == null || group.size() >= sendGroupSize) {
+                group = new ArrayList<>();
+                open.put(request.apiClientId(), group);
+                groups.add(group);
+            }
+            group.add(request);
+        }
+        return groups;
+    }
+
+    /**
+     * Set-based: expired leases are re-queued by chunks of
+     * `app.mail.recovery.chunk-size` ids (one SELECT + one UPDATE each), so a node
+     * crash with thousands of requests in flight is recovered in a few statements
+     * and each chunk only locks its own rows. Rows left STAGED by an unfinished
+     * stream ingest are deleted the same way.
+     */
     @Scheduled(fixedDelay = 300000) // Run every 5 minutes
     @SchedulerLock(name = "EmailRequestService_cleanupStuckRequests", lockAtMostFor = "5m", lockAtLeastFor = "1m")
     public void cleanupStuckRequests() {
-        Instant cutoff = Instant.now().minus(5, ChronoUnit.MINUTES);
-        List<EmailRequest> stuckRequests = repository.findByStatusAndProcessedAtBefore(EmailRequestStatus.SENDING,
-                cutoff);
-
-        if (!stuckRequests.isEmpty()) {
-            log.warn("[Clean Up] Found {} stuck requests in SENDING state. Resetting to PENDING.",
-                    stuckRequests.size());
-            for (EmailRequest request : stuckRequests) {
-                request.setStatus(EmailRequestStatus.PENDING);
-                request.setRetryCount(request.getRetryCount() + 1);
-                request.setErrorMessage("Self-Healing: Reset from SENDING (Stuck)");
-                repository.save(request);
+        Instant now = Instant.now();
+        int recovered = 0;
+        List<byte[]> stuckIds;
+        do {
+            stuckIds = repository.findExpiredLeaseIds(now, recoveryChunkSize);
+            if (!stuckIds.isEmpty()) {
+                recovered += repository.requeueExpiredLeases(stuckIds, now, STUCK_REASON);
             }
+        } while (stuckIds.size() == recoveryChunkSize);
+
+        if (recovered > 0) {
+            log.warn("[Clean Up] Reset {} requests in SENDING state with an expired lease to PENDING.", recovered);
+            metrics.recordStuckRecovery(recovered);
+        }
+
+        // Rows of an NDJSON ingest that never reached its signature check
+        int discarded = 0;
+        List<byte[]> stagedIds;
+        do {
+            stagedIds = repository.findExpiredStagedIds(now, recoveryChunkSize);
+            if (!stagedIds.isEmpty()) {
+                discarded += repository.deleteStagedByIds(stagedIds);
+            }
+        } while (stagedIds.size() == recoveryChunkSize);
+
+        if (discarded > 0) {
+            log.warn("[Clean Up] Deleted {} requests left STAGED by an unfinished stream ingest.", discarded);
         }
     }
 
     @Scheduled(cron = "0 0 2 * * ?") // Run every day at 2 AM
     @SchedulerLock(name = "EmailRequestWorker_deleteOldRequests", lockAtMostFor = "10m", lockAtLeastFor = "1m")
-    @Transactional
     public void deleteOldRequests() {
-        // Defines the retention period (e.g. 1 day) to prevent the table and
-        // idempotency index from growing indefinitely.
-        Instant cutoff = Instant.now().minus(1, ChronoUnit.DAYS);
-        int deletedCount = repository.deleteOldRequests(cutoff, EmailRequestStatus.SENT);
+        // Retention (1 day of SENT requests by default) prevents the table and
+        // idempotency index from growing indefinitely. No transaction here: the
+        // purger deletes by short chunks (see RetentionPurger).
+        int deletedCount = retentionPurger.purge();
         if (deletedCount > 0) {
-            log.info("[Clean Up] Deleted {} old email requests created before {} with status SENT", deletedCount,
-                    cutoff);
+            log.info("[Clean Up] Deleted {} email requests past their retention", deletedCount);
         }
     }
-
-    private void markAsFailed(EmailRequest request, Exception e) {
-        request.setStatus(EmailRequestStatus.FAILED);
-        request.setErrorMessage(e.getClass().getSimpleName() + ": " + e.getMessage());
-        request.setRetryCount(request.getRetryCount() + 1);
-        repository.save(request);
-    }
 }
@@ -0,0 +1,7 @@
+package com.florentdeborde.mayleo.service;
+
+/**
+ * Published once new PENDING requests are stored, to wake the local worker up.
+ */
+public record EmailRequestsCreatedEvent(String apiClientId, int count) {
+}
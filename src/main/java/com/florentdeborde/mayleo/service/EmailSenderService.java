@@ -4,24 +4,33 @@ import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
 import com.florentdeborde.mayleo.exception.ExceptionCode;
 import com.florentdeborde.mayleo.exception.MayleoException;
 import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.metrics.SmtpSendEvent;
 import com.florentdeborde.mayleo.model.EmailConfig;
-import com.florentdeborde.mayleo.model.EmailRequest;
 import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
+import com.florentdeborde.mayleo.repository.DispatchOutcome;
 import com.florentdeborde.mayleo.repository.EmailConfigRepository;
-import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
@@ -31,52 +40,240 @@ public class EmailSenderService {
     private int maxRetries;
 
     private final MailSenderFactory mailSenderFactory;
-    private final EmailRequestRepository emailRequestRepository;
+    private final EmailStatusWriter statusWriter;
     private final EmailConfigRepository emailConfigRepository;
     private final MayleoMetrics metrics;
+    private final ClaimSizer claimSizer;
+    private final RetryBackoff retryBackoff;
+    private final PostcardRenderer postcardRenderer;
+    private final SmtpHostLimiter hostLimiter;
+    private final ClientCircuitBreaker circuitBreaker;
+    private final RecipientDomainThrottle domainThrottle;
+    private final SendingAccountRouter accountRouter;
 
-    private final Map<String, EmailConfig> configCache = new ConcurrentHashMap<>();
+    // Keyed by client id: the claimed requests only carry the FK, see ClaimedEmailRequest.
+    // Accounts are edited in the database directly: a change is picked up within the TTL
+    private final Cache<String, List<EmailConfig>> accountCache = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
 
-    public EmailSenderService(MailSenderFactory mailSenderFactory, EmailRequestRepository emailRequestRepository,
-            EmailConfigRepository emailConfigRepository, MayleoMetrics metrics) {
+    public EmailSenderService(MailSenderFactory mailSenderFactory, EmailStatusWriter statusWriter,
+            EmailConfigRepository emailConfigRepository, MayleoMetrics metrics, ClaimSizer claimSizer,
+            RetryBackoff retryBackoff, PostcardRenderer postcardRenderer, SmtpHostLimiter hostLimiter,
+            ClientCircuitBreaker circuitBreaker, RecipientDomainThrottle domainThrottle,
+            SendingAccountRouter accountRouter) {
         this.mailSenderFactory = mailSenderFactory;
-        this.emailRequestRepository = emailRequestRepository;
+        this.statusWriter = statusWriter;
         this.emailConfigRepository = emailConfigRepository;
         this.metrics = metrics;
+        this.claimSizer = claimSizer;
+        this.retryBackoff = retryBackoff;
+        this.postcardRenderer = postcardRenderer;
+        this.hostLimiter = hostLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.domainThrottle = domainThrottle;
+        this.accountRouter = accountRouter;
     }
 
+    /**
+     * Renders and sends a group of claimed requests of one client on the
+     * 'emailTaskExecutor'. Both steps run here rather than on the worker thread,
+     * which only hands requests over: no database connection is held while
+     * postcards are rendered.
+     * The group goes out in one `JavaMailSender.send(MimeMessage...)` call, over
+     * one SMTP connection (see PooledJavaMailSender), and the outcome of each
+     * request is still written back on its own.
+     * @param account the sending account the worker routed the group to (null if
+     * the client has none, the group then fails), see SendingAccountRouter
+     * @param admittedHost the SMTP host bulkhead the worker admitted the group to,
+     * left here once done (null if none, see SmtpHostLimiter). The recipient
+     * domain slots of the group are released here too (see RecipientDomainThrottle)
+     */
     @Async("emailTaskExecutor")
-    public void sendEmail(EmailRequest emailRequest, PostcardHtml postcardHtml) {
-        String clientId = emailRequest.getApiClient().getId();
-        String requestId = emailRequest.getId();
+    public void sendEmails(List<ClaimedEmailRequest> group, EmailConfig account, String admittedHost) {
+        long start = System.nanoTime();
+        try {
+            Map<ClaimedEmailRequest, PostcardHtml> rendered = new LinkedHashMap<>();
+            for (ClaimedEmailRequest emailRequest : group) {
+                PostcardHtml postcardHtml = render(emailRequest);
+                if (postcardHtml != null) {
+                    rendered.put(emailRequest, postcardHtml);
+                }
+            }
+            if (!rendered.isEmpty()) {
+                send(group.get(0).apiClientId(), account, rendered);
+            }
+        } finally {
+            if (admittedHost != null) {
+                hostLimiter.leave(admittedHost);
+            }
+            domainThrottle.release(group);
+            if (account != null) {
+                accountRouter.completed(account, group.size());
+            }
+            // Per request: ClaimSizer sizes claims in requests, not in groups
+            claimSizer.recordSendLatency((System.nanoTime() - start) / group.size());
+        }
+    }
+
+    /**
+     * Runs on the caller's thread, from the cached configurations.
+     * @return the client's sending accounts, oldest first, empty if it has none
+     * (its sends then fail with the reason)
+     */
+    public List<EmailConfig> findAccounts(String clientId) {
+        // Not cached when empty: a configuration may be added at any time
+        List<EmailConfig> accounts = accountCache.get(clientId, id -> {
+            List<EmailConfig> found = emailConfigRepository.findByApiClientIdOrderByCreatedAtAsc(id);
+            return found.isEmpty() ? null : List.copyOf(found);
+        });
+        return accounts == null ? List.of() : accounts;
+    }
 
+    // The SMTP host a sending account's requests go to
+    public String resolveHost(EmailConfig account) {
+        return mailSenderFactory.resolveHost(account);
+    }
+
+    private PostcardHtml render(ClaimedEmailRequest emailRequest) {
         try {
-            EmailConfig config = configCache.computeIfAbsent(clientId,
-                    id -> emailConfigRepository.findByApiClient(emailRequest.getApiClient())
-                            .orElseThrow(() -> new MayleoException(ExceptionCode.EMAIL_CONFIG_NOT_FOUND)));
-
-            validateConfiguration(config, requestId);
-
-            JavaMailSender mailSender = mailSenderFactory.getSender(clientId, config);
-            MimeMessage mimeMessage = Objects.requireNonNull(mailSender).createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-            helper.setFrom(config.getSenderEmail());
-            helper.setTo(emailRequest.getToEmail());
-            helper.setSubject(emailRequest.getSubject());
-            helper.setText(postcardHtml.getHtml(), true);
-            helper.addInline("postcardImage", new ClassPathResource(postcardHtml.getPostcard().getFilename()));
-            mailSender.send(mimeMessage);
-
-            log.info("[{}] Email sent successfully", requestId);
-            metrics.recordEmailDelivery(MayleoMetrics.STATUS_SENT);
-            updateRequestStatus(requestId, EmailRequestStatus.SENT, null);
+            return postcardRenderer.render(emailRequest,
+                    "fr".equals(emailRequest.langCode()) ? "De Mayleo" : "From Mayleo");
+        } catch (Exception ex) {
+            // The same request would render the same way: failed for good, not retried
+            log.error("[{}] Failed to render email: {}", emailRequest.id(), ex.getMessage());
+            statusWriter.submit(new DispatchOutcome(emailRequest.id(), emailRequest.claimedBy(),
+                    EmailRequestStatus.FAILED, ex.getClass().getSimpleName() + ": " + ex.getMessage(),
+                    emailRequest.retryCount() + 1, null, Instant.now()));
+            return null;
+        }
+    }
 
+    private void send(String clientId, EmailConfig config, Map<ClaimedEmailRequest, PostcardHtml> rendered) {
+        JavaMailSender mailSender;
+        try {
+            if (config == null) {
+                throw new MayleoException(ExceptionCode.EMAIL_CONFIG_NOT_FOUND);
+            }
+            validateConfiguration(config);
+            mailSender = Objects.requireNonNull(mailSenderFactory.getSender(clientId, config));
         } catch (Exception ex) {
-            String sanitizedError = sanitizeErrorMessage(ex);
-            log.error("[{}] Failed to send email: {}", requestId, sanitizedError);
-            metrics.recordEmailDelivery(MayleoMetrics.STATUS_FAILED);
-            updateRequestStatus(requestId, EmailRequestStatus.FAILED, sanitizedError);
+            rendered.keySet().forEach(emailRequest -> fail(emailRequest, ex));
+            circuitBreaker.recordFailure(clientId);
+            if (config != null) {
+                accountRouter.recordFailure(config);
+                metrics.recordAccountDelivery(clientId, config.getId(), MayleoMetrics.STATUS_FAILED, rendered.size());
+            }
+            return;
         }
+
+        // Keyed by the message itself: that is how the sender reports failures
+        Map<MimeMessage, ClaimedEmailRequest> messages = new LinkedHashMap<>();
+        for (Map.Entry<ClaimedEmailRequest, PostcardHtml> entry : rendered.entrySet()) {
+            try {
+                messages.put(buildMessage(mailSender, config, entry.getKey(), entry.getValue()), entry.getKey());
+            } catch (Exception ex) {
+                fail(entry.getKey(), ex);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        String host = mailSenderFactory.resolveHost(config);
+        if (!acquireHost(host)) {
+            messages.values().forEach(emailRequest -> defer(emailRequest, host));
+            return;
+        }
+        Map<Object, Exception> failures = Map.of();
+        SmtpSendEvent event = new SmtpSendEvent();
+        event.begin();
+        try {
+            mailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException ex) {
+            // Per message when the sender tells them apart, the whole group otherwise
+            failures = ex.getFailedMessages().isEmpty() ? allFailed(messages, ex) : ex.getFailedMessages();
+        } catch (Exception ex) {
+            failures = allFailed(messages, ex);
+        } finally {
+            hostLimiter.release(host);
+            if (event.shouldCommit()) {
+                event.host = host;
+                event.clientId = clientId;
+                event.messages = messages.size();
+                event.virtualThread = Thread.currentThread().isVirtual();
+                event.commit();
+            }
+        }
+
+        int delivered = 0;
+        boolean transportFailed = false;
+        for (Map.Entry<MimeMessage, ClaimedEmailRequest> entry : messages.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure != null) {
+                fail(entry.getValue(), failure);
+                // A rejected recipient is the server answering: the account itself works
+                transportFailed |= !(failure instanceof SendFailedException);
+                continue;
+            }
+            delivered++;
+            log.info("[{}] Email sent successfully", entry.getValue().id());
+            metrics.recordEmailDelivery(MayleoMetrics.STATUS_SENT);
+            updateRequestStatus(entry.getValue(), EmailRequestStatus.SENT, null);
+        }
+        metrics.recordAccountDelivery(clientId, config.getId(), MayleoMetrics.STATUS_SENT, delivered);
+        metrics.recordAccountDelivery(clientId, config.getId(), MayleoMetrics.STATUS_FAILED,
+                messages.size() - delivered);
+        if (delivered > 0 || !transportFailed) {
+            circuitBreaker.recordSuccess(clientId);
+            accountRouter.recordSuccess(config);
+        } else {
+            circuitBreaker.recordFailure(clientId);
+            accountRouter.recordFailure(config);
+        }
+    }
+
+    private MimeMessage buildMessage(JavaMailSender mailSender, EmailConfig config, ClaimedEmailRequest emailRequest,
+            PostcardHtml postcardHtml) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+        helper.setFrom(config.getSenderEmail());
+        helper.setTo(emailRequest.toEmail());
+        helper.setSubject(emailRequest.subject());
+        helper.setText(postcardHtml.getHtml(), true);
+        helper.addInline("postcardImage", new ClassPathResource(postcardHtml.getPostcard().getFilename()));
+        return mimeMessage;
+    }
+
+    private static Map<Object, Exception> allFailed(Map<MimeMessage, ClaimedEmailRequest> messages, Exception ex) {
+        Map<Object, Exception> failures = new HashMap<>();
+        messages.keySet().forEach(message -> failures.put(message, ex));
+        return failures;
+    }
+
+    private void fail(ClaimedEmailRequest emailRequest, Exception ex) {
+        String sanitizedError = sanitizeErrorMessage(ex);
+        log.error("[{}] Failed to send email: {}", emailRequest.id(), sanitizedError);
+        metrics.recordEmailDelivery(MayleoMetrics.STATUS_FAILED);
+        updateRequestStatus(emailRequest, EmailRequestStatus.FAILED, sanitizedError);
+    }
+
+    private boolean acquireHost(String host) {
+        try {
+            return hostLimiter.tryAcquire(host);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Shutting down
+            return false;
+        }
+    }
+
+    // Not an attempt: back to PENDING right away, without counting a retry
+    private void defer(ClaimedEmailRequest dispatched, String host) {
+        log.warn("[{}] SMTP host {} has no free slot, request deferred", dispatched.id(), host);
+        metrics.recordSmtpSendDeferred(host);
+        Instant now = Instant.now();
+        statusWriter.submit(new DispatchOutcome(dispatched.id(), dispatched.claimedBy(), EmailRequestStatus.PENDING,
+                "Deferred: SMTP host busy", dispatched.retryCount(), now, now));
     }
 
     private String sanitizeErrorMessage(Exception ex) {
@@ -93,37 +290,39 @@ public class EmailSenderService {
         return "An error occurred during email dispatch: " + ex.getClass().getSimpleName();
     }
 
-    private void validateConfiguration(EmailConfig config, String requestId) {
+    private void validateConfiguration(EmailConfig config) {
         if (config.getSenderEmail() == null || config.getSenderEmail().isBlank() ||
                 config.getSmtpHost() == null || config.getSmtpHost().isBlank() ||
                 config.getSmtpPort() == null ||
                 config.getSmtpUsername() == null || config.getSmtpUsername().isBlank() ||
                 config.getSmtpPassword() == null || config.getSmtpPassword().isBlank()) {
 
-            log.error("[{}] Email configuration is incomplete for client: {}", requestId,
-                    config.getApiClient().getName());
+            log.error("Email configuration is incomplete for client: {}", config.getApiClient().getName());
             throw new MayleoException(ExceptionCode.EMAIL_CONFIG_INCOMPLETE);
         }
     }
 
-    private void updateRequestStatus(String requestId, EmailRequestStatus status, String error) {
-        emailRequestRepository.findById(requestId).ifPresent(request -> {
-            request.setStatus(status);
-            request.setProcessedAt(Instant.now());
-            if (error != null) {
-                request.setErrorMessage(error);
-                int nextRetry = request.getRetryCount() + 1; // retryCount is initialized with 0
-                request.setRetryCount(nextRetry);
-                if (nextRetry < maxRetries) {
-                    request.setStatus(EmailRequestStatus.PENDING);
-                }
-            }
-            emailRequestRepository.save(request);
-        });
+    // Buffered and written back in batches by the EmailStatusWriter
+    private void updateRequestStatus(ClaimedEmailRequest dispatched, EmailRequestStatus status, String error) {
+        Instant now = Instant.now();
+        if (error == null) {
+            statusWriter.submit(DispatchOutcome.sent(dispatched.id(), dispatched.claimedBy(), now));
+            return;
+        }
+
+        int nextRetry = dispatched.retryCount() + 1; // retryCount is initialized with 0
+        Instant nextAttemptAt = null;
+        if (nextRetry < maxRetries) {
+            // Not claimable again before the backoff, so a failing server is not retried in a loop
+            status = EmailRequestStatus.PENDING;
+            nextAttemptAt = retryBackoff.nextAttemptAt(nextRetry, now);
+        }
+        statusWriter.submit(new DispatchOutcome(dispatched.id(), dispatched.claimedBy(), status, error,
+                nextRetry, nextAttemptAt, now));
     }
 
     public void invalidateConfigCache(String clientId) {
-        configCache.remove(clientId);
+        accountCache.invalidate(clientId);
         mailSenderFactory.invalidateSenderCache(clientId);
     }
 }
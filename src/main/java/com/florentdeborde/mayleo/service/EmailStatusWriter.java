@@ -0,0 +1,98 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.repository.DispatchOutcome;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the outcomes of the sender threads and writes them back in batches
+ * (see EmailRequestBatchRepository.applyOutcomes), instead of a SELECT + UPDATE
+ * per email:
+ * - every `app.mail.status-flush.delay` ms;
+ * - as soon as `app.mail.status-flush.batch-size` outcomes are waiting, by the
+ * sender thread that completed the batch.
+ * Outcomes still buffered when a node dies are lost: their requests stay SENDING
+ * until their lease expires and are sent again, as before for a crash mid-send.
+ */
+@Component
+@Slf4j
+public class EmailStatusWriter {
+
+    private final EmailRequestRepository repository;
+    private final int batchSize;
+
+    private final Queue<DispatchOutcome> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public EmailStatusWriter(EmailRequestRepository repository,
+            @Value("${app.mail.status-flush.batch-size:200}") int batchSize) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+    }
+
+    public void submit(DispatchOutcome outcome) {
+        buffer.add(outcome);
+        // A flush already running picks this batch up
+        if (buffered.incrementAndGet() >= batchSize && flushLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.status-flush.delay:50}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Only what is buffered when the drain starts, so a failing database does not keep it spinning
+    private void drain() {
+        int remaining = buffered.get();
+        while (remaining > 0) {
+            List<DispatchOutcome> batch = new ArrayList<>(Math.min(remaining, batchSize));
+            DispatchOutcome outcome;
+            while (batch.size() < batchSize && (outcome = buffer.poll()) != null) {
+                batch.add(outcome);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            buffered.addAndGet(-batch.size());
+            remaining -= batch.size();
+
+            try {
+                int updated = repository.applyOutcomes(batch);
+                if (updated < batch.size()) {
+                    log.warn("[Status Writer] {} of {} outcomes not recorded: claim no longer owned (lease expired)",
+                            batch.size() - updated, batch.size());
+                }
+            } catch (Exception e) {
+                // Kept for the next flush; if the database stays down, lease recovery takes over
+                buffer.addAll(batch);
+                buffered.addAndGet(batch.size());
+                log.error("[Status Writer] Failed to write {} outcomes, will retry: {}", batch.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+}
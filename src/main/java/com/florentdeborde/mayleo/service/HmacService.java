@@ -2,6 +2,8 @@ package com.florentdeborde.mayleo.service;
 
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.HexFormat;
@@ -24,16 +26,35 @@ public class HmacService {
         );
     }
 
+    /**
+     * Verifies a signature against a Mac fed incrementally (see {@link #initMac(String)}),
+     * used when the payload is streamed instead of buffered. Consumes the Mac state.
+     */
+    public boolean verifySignature(Mac mac, String signature) {
+        if (mac == null || signature == null || signature.isBlank()) {
+            return false;
+        }
+
+        String computed = HexFormat.of().formatHex(mac.doFinal());
+
+        return MessageDigest.isEqual(
+                computed.getBytes(StandardCharsets.UTF_8),
+                signature.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
     public String calculateHmac(byte[] data, String key) {
+        return HexFormat.of().formatHex(initMac(key).doFinal(data));
+    }
+
+    public Mac initMac(String key) {
         try {
-            javax.crypto.Mac sha256_HMAC = javax.crypto.Mac.getInstance("HmacSHA256");
-            javax.crypto.spec.SecretKeySpec secret_key = new javax.crypto.spec.SecretKeySpec(
-                    key.getBytes(java.nio.charset.StandardCharsets.UTF_8), "HmacSHA256");
+            Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
+            SecretKeySpec secret_key = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
             sha256_HMAC.init(secret_key);
-            byte[] rawHmac = sha256_HMAC.doFinal(data);
-            return HexFormat.of().formatHex(rawHmac);
+            return sha256_HMAC;
         } catch (Exception e) {
             throw new RuntimeException("Failed to calculate HMAC", e);
         }
     }
-}
\ No newline at end of file
+}
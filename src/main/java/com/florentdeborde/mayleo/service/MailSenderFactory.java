@@ -1,33 +1,83 @@
 package com.florentdeborde.mayleo.service;
 
 import com.florentdeborde.mayleo.model.EmailConfig;
+import com.florentdeborde.mayleo.security.ApiKeyEncoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Properties;
-
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import java.time.Duration;
+import java.util.Properties;
 
 @Component
 public class MailSenderFactory {
 
+    static final String GOOGLE_HOST = "smtp.gmail.com";
+    static final String MICROSOFT_HOST = "smtp.office365.com";
+
+    // Connection pool of each client's sender, see PooledJavaMailSender
+    @Value("${app.mail.smtp.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${app.mail.smtp.pool.max-idle:5}")
+    private int maxIdleConnections;
+
+    @Value("${app.mail.smtp.pool.keepalive-interval:30000}")
+    private long keepAliveMillis;
+
+    @Value("${app.mail.smtp.pool.max-idle-time:120000}")
+    private long maxIdleMillis;
+
+    private final SmtpTlsContext tlsContext;
+
+    public MailSenderFactory(SmtpTlsContext tlsContext) {
+        this.tlsContext = tlsContext;
+    }
+
     /**
-     * Cache to store one JavaMailSender per client to avoid expensive object
-     * creation
+     * Cache to store one JavaMailSender per sending account to avoid expensive
+     * object creation
      * and handshake overhead for every email sent.
+     * Keyed by `<clientId>/<configId>#<settings>`: a client may have several
+     * accounts (see SendingAccountRouter), and `<settings>` hashes what the
+     * sender connects with (provider, host, port, TLS, credentials). An account
+     * edited in the database gets a new sender as soon as EmailSenderService
+     * reloads it; the previous one is dropped.
+     * Each sender keeps its own pool of connected transports, closed when the
+     * sender is evicted or invalidated.
      */
     private final Cache<String, JavaMailSender> senderCache = Caffeine.newBuilder()
-            .expireAfterAccess(Duration.ofHours(12)) // Automatically clean up inactive clients
+            .expireAfterAccess(Duration.ofHours(12)) // Automatically clean up inactive accounts
+            .removalListener((String account, JavaMailSender sender, RemovalCause cause) -> {
+                if (sender instanceof PooledJavaMailSender pooled) {
+                    pooled.close();
+                }
+            })
             .build();
 
     public JavaMailSender getSender(String clientId, EmailConfig config) {
+        String account = clientId + "/" + config.getId() + "#";
+        String key = account + settingsHash(config);
+        JavaMailSender cached = senderCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Settings changed: the sender built from the previous ones is closed with its transports
+        senderCache.invalidateAll(senderCache.asMap().keySet().stream()
+                .filter(cachedKey -> cachedKey.startsWith(account) && !cachedKey.equals(key))
+                .toList());
+
         // computeIfAbsent ensures thread-safety: only one sender is created per
-        // clientId
-        return senderCache.get(clientId, key -> {
-            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        // account
+        return senderCache.get(key, ignored -> {
+            JavaMailSenderImpl mailSender = new PooledJavaMailSender(maxMessagesPerConnection, maxIdleConnections,
+                    keepAliveMillis, maxIdleMillis);
 
             switch (config.getProvider()) {
                 case SMTP -> configureSmtp(mailSender, config);
@@ -40,12 +90,13 @@ public class MailSenderFactory {
             props.put("mail.transport.protocol", "smtp");
             props.put("mail.smtp.auth", "true");
 
+            // Shared TLS session cache, so reconnections resume sessions (see SmtpTlsContext)
+            props.put("mail.smtp.ssl.socketFactory", tlsContext.socketFactory());
+
             Integer port = config.getSmtpPort();
             if (port != null && port == 465) {
                 // SSL/TLS direct
                 props.put("mail.smtp.ssl.enable", "true");
-                props.put("mail.smtp.socketFactory.port", "465");
-                props.put("mail.smtp.socketFactory.class", "javax.net.ssl.SSLSocketFactory");
                 props.put("mail.smtp.starttls.enable", "false");
             } else {
                 // STARTTLS
@@ -63,6 +114,23 @@ public class MailSenderFactory {
         });
     }
 
+    // Hashed: the key holds no credentials in clear
+    private static String settingsHash(EmailConfig config) {
+        String settings = String.join("|", String.valueOf(config.getProvider()), config.getSmtpHost(),
+                String.valueOf(config.getSmtpPort()), String.valueOf(config.getSmtpTls()), config.getSmtpUsername(),
+                config.getSmtpPassword());
+        return ApiKeyEncoder.hashSha256(settings, "");
+    }
+
+    // The host a sender built from this configuration connects to
+    public String resolveHost(EmailConfig config) {
+        return switch (config.getProvider()) {
+            case SMTP -> config.getSmtpHost();
+            case GOOGLE -> GOOGLE_HOST;
+            case MICROSOFT -> MICROSOFT_HOST;
+        };
+    }
+
     private void configureSmtp(JavaMailSenderImpl mailSender, EmailConfig config) {
         mailSender.setHost(config.getSmtpHost());
         mailSender.setPort(config.getSmtpPort());
@@ -72,7 +140,7 @@ public class MailSenderFactory {
 
     private void configureGoogle(JavaMailSenderImpl mailSender, EmailConfig config) {
         // TODO: Implémenter OAuth2 pour Gmail
-        mailSender.setHost("smtp.gmail.com");
+        mailSender.setHost(GOOGLE_HOST);
         mailSender.setPort(587);
         mailSender.setUsername(config.getSmtpUsername());
         mailSender.setPassword(config.getSmtpPassword());
@@ -80,13 +148,27 @@ public class MailSenderFactory {
 
     private void configureMicrosoft(JavaMailSenderImpl mailSender, EmailConfig config) {
         // TODO: Implémenter OAuth2 pour Outlook/Office365
-        mailSender.setHost("smtp.office365.com");
+        mailSender.setHost(MICROSOFT_HOST);
         mailSender.setPort(587);
         mailSender.setUsername(config.getSmtpUsername());
         mailSender.setPassword(config.getSmtpPassword());
     }
 
+    // NOOP on idle pooled connections so servers do not time them out, and close the stale ones
+    @Scheduled(fixedDelayString = "${app.mail.smtp.pool.keepalive-interval:30000}")
+    public void keepAliveConnections() {
+        senderCache.asMap().values().forEach(sender -> {
+            if (sender instanceof PooledJavaMailSender pooled) {
+                pooled.keepAlive();
+            }
+        });
+    }
+
+    // Every account of the client
     public void invalidateSenderCache(String clientId) {
-        senderCache.invalidate(clientId);
+        String prefix = clientId + "/";
+        senderCache.invalidateAll(senderCache.asMap().keySet().stream()
+                .filter(account -> account.startsWith(prefix))
+                .toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.florentdeborde.mayleo.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a byte stream on '\n' (an optional trailing '\r' is dropped) with a bounded
+ * line buffer: a line longer than `maxLineLength` is skipped to its end and reported
+ * through {@link #isTruncated()}, so memory stays constant whatever the input.
+ */
+public class NdjsonLineReader {
+
+    private final InputStream in;
+    private final int maxLineLength;
+    private final byte[] buffer = new byte[8192];
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private int position;
+    private int limit;
+    private boolean truncated;
+
+    public NdjsonLineReader(InputStream in, int maxLineLength) {
+        this.in = in;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * @return the next line without its terminator (empty if truncated), or null at end of stream
+     */
+    public byte[] nextLine() throws IOException {
+        line.reset();
+        truncated = false;
+        boolean readAnything = false;
+
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit == -1) {
+                    limit = 0;
+                    return readAnything ? currentLine() : null;
+                }
+            }
+            readAnything = true;
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            append(start, position - start);
+
+            if (position < limit) {
+                position++; // consume '\n'
+                return currentLine();
+            }
+        }
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    private void append(int offset, int length) {
+        if (truncated) {
+            return;
+        }
+        if (line.size() + length > maxLineLength + 1) { // +1 tolerates a trailing '\r'
+            truncated = true;
+            line.reset();
+            return;
+        }
+        line.write(buffer, offset, length);
+    }
+
+    private byte[] currentLine() {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        if (length > maxLineLength) {
+            truncated = true;
+            return new byte[0];
+        }
+        if (truncated || length == bytes.length) {
+            return bytes;
+        }
+        byte[] trimmed = new byte[length];
+        System.arraycopy(bytes, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
@@ -0,0 +1,249 @@
+package com.florentdeborde.mayleo.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * JavaMailSenderImpl opens, authenticates and closes a connection for every
+ * send. This one keeps connected transports between sends, so consecutive
+ * messages of a client skip the TCP, TLS and AUTH handshakes:
+ * - a transport is used for at most `maxMessagesPerConnection` messages, then closed;
+ * - at most `maxIdle` transports wait in the pool, most recently used first;
+ * - idle transports are kept alive with a NOOP and closed past `maxIdleMillis`
+ * (see {@link #keepAlive}, run by MailSenderFactory);
+ * - a pooled transport the server dropped while idle is replaced, and the message
+ * sent once more on a fresh connection.
+ * A transport is never shared: each send call borrows one for all its messages.
+ */
+@Slf4j
+class PooledJavaMailSender extends JavaMailSenderImpl {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final int maxMessagesPerConnection;
+    private final int maxIdle;
+    private final long keepAliveMillis;
+    private final long maxIdleMillis;
+    private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    PooledJavaMailSender(int maxMessagesPerConnection, int maxIdle, long keepAliveMillis, long maxIdleMillis) {
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.maxIdle = maxIdle;
+        this.keepAliveMillis = keepAliveMillis;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * All the messages go out over one borrowed connection, which is only
+     * replaced past its message limit or after a failed send: a group of N
+     * messages costs one handshake instead of N.
+     */
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport pooled = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessages[i];
+                Address[] recipients;
+                try {
+                    recipients = prepare(mimeMessages[i]);
+                } catch (MessagingException ex) {
+                    failedMessages.put(original, ex);
+                    continue;
+                }
+                if (pooled == null) {
+                    try {
+                        pooled = borrow();
+                    } catch (AuthenticationFailedException ex) {
+                        failRemaining(failedMessages, mimeMessages, originalMessages, i, new MailAuthenticationException(ex));
+                        break;
+                    } catch (MessagingException ex) {
+                        // Server unreachable: the remaining messages would not go through either
+                        failRemaining(failedMessages, mimeMessages, originalMessages, i, ex);
+                        break;
+                    }
+                }
+                PooledTransport current = pooled;
+                pooled = null; // Closed by send() when it fails
+                try {
+                    pooled = send(current, mimeMessages[i], recipients);
+                } catch (AuthenticationFailedException ex) {
+                    // Reconnecting: the messages sent on the previous connection did go out
+                    failRemaining(failedMessages, mimeMessages, originalMessages, i, new MailAuthenticationException(ex));
+                    break;
+                } catch (MessagingException ex) {
+                    failedMessages.put(original, ex);
+                }
+            }
+        } finally {
+            if (pooled != null) {
+                giveBack(pooled);
+            }
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    // The message at `from` and all the following ones, the previous ones keep their outcome
+    private static void failRemaining(Map<Object, Exception> failedMessages, MimeMessage[] mimeMessages,
+            @Nullable Object[] originalMessages, int from, Exception ex) {
+        for (int j = from; j < mimeMessages.length; j++) {
+            failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], ex);
+        }
+    }
+
+    // Same preparation as JavaMailSenderImpl
+    private Address[] prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+        Address[] addresses = mimeMessage.getAllRecipients();
+        return addresses != null ? addresses : new Address[0];
+    }
+
+    /**
+     * @return the transport to go on with, or null once it reached its message
+     * limit and was closed. The transport is closed when the send fails.
+     */
+    private PooledTransport send(PooledTransport pooled, MimeMessage mimeMessage, Address[] recipients)
+            throws MessagingException {
+        try {
+            pooled.transport.sendMessage(mimeMessage, recipients);
+        } catch (MessagingException ex) {
+            // Dropped by the server while idle: nothing was delivered on it
+            boolean stale = pooled.reused() && !(ex instanceof SendFailedException)
+                    && !pooled.transport.isConnected();
+            // The session state after a failed send is unknown: the connection is not reused
+            close(pooled);
+            if (!stale) {
+                throw ex;
+            }
+            log.debug("[SMTP] Pooled connection to {} was closed by the server, reconnecting", getHost());
+            pooled = open();
+            try {
+                pooled.transport.sendMessage(mimeMessage, recipients);
+            } catch (MessagingException retryEx) {
+                close(pooled);
+                throw retryEx;
+            }
+        }
+        pooled.messagesSent++;
+        if (pooled.messagesSent >= maxMessagesPerConnection) {
+            close(pooled);
+            return null;
+        }
+        return pooled;
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsedAt <= maxIdleMillis) {
+                return pooled;
+            }
+            close(pooled);
+        }
+        return open();
+    }
+
+    private PooledTransport open() throws MessagingException {
+        return new PooledTransport(connectTransport());
+    }
+
+    private void giveBack(PooledTransport pooled) {
+        pooled.lastUsedAt = System.currentTimeMillis();
+        pooled.lastCheckedAt = pooled.lastUsedAt;
+        if (closed || idle.size() >= maxIdle) {
+            close(pooled);
+            return;
+        }
+        idle.offerFirst(pooled);
+        if (closed) {
+            close(); // Raced with close(): do not leave it behind
+        }
+    }
+
+    /**
+     * Closes the transports idle for longer than the max idle time, and sends a
+     * NOOP on those idle for longer than the keepalive interval so that the
+     * server does not time them out. Transports failing the NOOP are closed.
+     */
+    void keepAlive() {
+        long now = System.currentTimeMillis();
+        // Snapshot: the transports put back below are not visited twice
+        for (PooledTransport pooled : List.copyOf(idle)) {
+            boolean expired = now - pooled.lastUsedAt > maxIdleMillis;
+            if (!expired && now - pooled.lastCheckedAt < keepAliveMillis || !idle.remove(pooled)) {
+                continue; // Recently used or checked, or borrowed in the meantime
+            }
+            // SMTPTransport.isConnected() issues a NOOP
+            if (expired || !pooled.transport.isConnected()) {
+                close(pooled);
+            } else {
+                pooled.lastCheckedAt = now;
+                idle.offerLast(pooled);
+            }
+        }
+    }
+
+    int idleConnections() {
+        return idle.size();
+    }
+
+    // Closes the idle transports: the borrowed ones are closed when given back
+    void close() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled);
+        }
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException ex) {
+            log.debug("[SMTP] Could not close connection to {}: {}", getHost(), ex.getMessage());
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int messagesSent;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private volatile long lastCheckedAt = lastUsedAt;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private boolean reused() {
+            return messagesSent > 0;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.florentdeborde.mayleo.service;
 
-import com.florentdeborde.mayleo.model.EmailRequest;
 import com.florentdeborde.mayleo.dto.internal.Postcard;
 import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSource;
 import org.springframework.core.io.ClassPathResource;
@@ -17,6 +17,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -33,17 +34,17 @@ public class PostcardRenderer {
         this.messageSource = messageSource;
     }
 
-    public PostcardHtml render(EmailRequest request, String smallNote) {
+    public PostcardHtml render(ClaimedEmailRequest request, String smallNote) {
         try {
-            String mainText = request.getMessage();
+            String mainText = request.message();
             Postcard postcard = resolvePostcard(request);
 
             String templatePath = postcard.isLandscape() ? "templates/postcard-email-landscape.html"
                     : "templates/postcard-email-portrait.html";
 
-            String template = loadTemplate(templatePath, request.getId());
+            String template = loadTemplate(templatePath, request.id());
 
-            String lang = request.getLangCode() != null ? request.getLangCode().toLowerCase() : "en";
+            String lang = request.langCode() != null ? request.langCode().toLowerCase() : "en";
             Locale locale = Locale.forLanguageTag(lang);
             String headerText = messageSource.getMessage("email.postcard.header.text", null, locale);
             String footerText = messageSource.getMessage("email.postcard.footer.text", null, locale);
@@ -61,23 +62,23 @@ public class PostcardRenderer {
 
         } catch (Exception e) {
             throw new RuntimeException(
-                    "[%s] Failed to load email template: %s".formatted(request.getId(), e.getMessage()));
+                    "[%s] Failed to load email template: %s".formatted(request.id(), e.getMessage()));
         }
     }
 
-    private Postcard resolvePostcard(EmailRequest request) throws IOException {
+    private Postcard resolvePostcard(ClaimedEmailRequest request) throws IOException {
         String localPath = "";
         String filename = null;
 
-        if (request.getImagePath() != null && !request.getImagePath().isBlank()) {
-            String imagePath = request.getImagePath();
+        if (request.imagePath() != null && !request.imagePath().isBlank()) {
+            String imagePath = request.imagePath();
 
             // TODO: Revisit validation logic when supporting CLIENT_STORAGE
             // (DEFAULT only for now)
             if (imagePath.contains("..")
                     || !imagePath.startsWith("postcards/") && !imagePath.startsWith("/postcards/")) {
                 log.warn("[{}] Invalid or unsafe image path provided: {}. Falling back to random image.",
-                        request.getId(), imagePath);
+                        request.id(), imagePath);
             } else {
                 if (imagePath.startsWith("/"))
                     imagePath = imagePath.substring(1);
@@ -86,7 +87,7 @@ public class PostcardRenderer {
                 if (new ClassPathResource(targetPath).exists()) {
                     filename = targetPath;
                 } else {
-                    log.warn("[{}] Requested image not found: {}. Falling back to random image.", request.getId(),
+                    log.warn("[{}] Requested image not found: {}. Falling back to random image.", request.id(),
                             targetPath);
                 }
             }
@@ -103,7 +104,7 @@ public class PostcardRenderer {
 
         ClassPathResource imageResource = new ClassPathResource(filename);
         if (imageResource.exists()) {
-            log.info("[{}] Decoding image metadata from disk: {}", request.getId(), filename);
+            log.info("[{}] Decoding image metadata from disk: {}", request.id(), filename);
             BufferedImage img = ImageIO.read(imageResource.getInputStream());
             boolean isLandscape = img.getWidth() >= img.getHeight();
 
@@ -111,10 +112,10 @@ public class PostcardRenderer {
             return new Postcard(filename, isLandscape);
         }
 
-        throw new IOException("[%s] Image not found: %s".formatted(request.getId(), filename));
+        throw new IOException("[%s] Image not found: %s".formatted(request.id(), filename));
     }
 
-    private String loadTemplate(String templatePath, String requestId) {
+    private String loadTemplate(String templatePath, UUID requestId) {
         return templateCache.computeIfAbsent(templatePath, path -> {
             try {
                 log.info("[{}] (First access) Loading template from disk to cache: {}", requestId, path);
@@ -0,0 +1,150 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.config.RecipientDomainProperties;
+import com.florentdeborde.mayleo.config.RecipientDomainProperties.Limit;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Concurrency and rate limits per recipient domain, across all clients: large
+ * sends to one domain (gmail.com, outlook.com, ...) get greylisted or deferred
+ * by its servers, and the retries waste SMTP capacity.
+ * - at most `max-concurrency` messages of a domain are in flight at once. The
+ * other claimed requests of the domain are handed back, still PENDING;
+ * - at most `per-minute` messages of a domain go out per minute, `burst` at
+ * once. The others are deferred to when the domain's bucket has a token again.
+ * Like SmtpAccountPacer, nothing waits here (see EmailRequestWorker), and the
+ * slots and buckets are local to the node: each of the `app.mail.instances`
+ * nodes takes its share of both limits, so the fleet stays under them.
+ */
+@Component
+public class RecipientDomainThrottle {
+
+    /**
+     * @param admitted requests that took their domain slot and token, to be released once sent
+     * @param busy requests whose domain has no free slot
+     * @param paced requests whose domain is out of tokens, by the instant the next token is due
+     */
+    public record Admission(List<ClaimedEmailRequest> admitted, List<ClaimedEmailRequest> busy,
+            Map<Instant, List<ClaimedEmailRequest>> paced) {
+    }
+
+    private final RecipientDomainProperties properties;
+    private final int instances;
+    private final Map<String, Semaphore> slots = new ConcurrentHashMap<>();
+
+    private final Cache<String, Bucket> buckets = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public RecipientDomainThrottle(RecipientDomainProperties properties,
+            @Value("${app.mail.instances:1}") int instances) {
+        this.properties = properties;
+        this.instances = Math.max(1, instances);
+    }
+
+    public Admission admit(List<ClaimedEmailRequest> requests) {
+        List<ClaimedEmailRequest> admitted = new ArrayList<>(requests.size());
+        List<ClaimedEmailRequest> busy = new ArrayList<>();
+        Map<Instant, List<ClaimedEmailRequest>> paced = new LinkedHashMap<>();
+        // One instant per domain, so a domain's requests are deferred together
+        Map<String, Instant> nextTokenAt = new HashMap<>();
+
+        for (ClaimedEmailRequest request : requests) {
+            String domain = request.recipientDomain();
+            Limit limit = properties.limitFor(domain);
+            if (domain == null || limit.isUnlimited()) {
+                admitted.add(request);
+                continue;
+            }
+            Semaphore domainSlots = slots(domain, limit);
+            if (domainSlots != null && !domainSlots.tryAcquire()) {
+                busy.add(request);
+                continue;
+            }
+            Bucket bucket = bucket(domain, limit);
+            if (bucket != null) {
+                ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+                if (!probe.isConsumed()) {
+                    if (domainSlots != null) {
+                        domainSlots.release();
+                    }
+                    Instant retryAt = nextTokenAt.computeIfAbsent(domain,
+                            key -> Instant.now().plusNanos(probe.getNanosToWaitForRefill()));
+                    paced.computeIfAbsent(retryAt, key -> new ArrayList<>()).add(request);
+                    continue;
+                }
+            }
+            admitted.add(request);
+        }
+        return new Admission(admitted, busy, paced);
+    }
+
+    // Once the admitted requests are done, sent or not
+    public void release(List<ClaimedEmailRequest> admitted) {
+        for (ClaimedEmailRequest request : admitted) {
+            Semaphore domainSlots = request.recipientDomain() == null ? null : slots.get(request.recipientDomain());
+            if (domainSlots != null) {
+                domainSlots.release();
+            }
+        }
+    }
+
+    // Admitted requests that will not be sent after all: slots and tokens are given back
+    public void cancel(List<ClaimedEmailRequest> admitted) {
+        release(admitted);
+        for (ClaimedEmailRequest request : admitted) {
+            Bucket bucket = request.recipientDomain() == null ? null : buckets.getIfPresent(request.recipientDomain());
+            if (bucket != null) {
+                bucket.addTokens(1);
+            }
+        }
+    }
+
+    public int inFlight(String domain) {
+        Semaphore domainSlots = slots.get(domain);
+        return domainSlots == null ? 0 : perNode(properties.limitFor(domain).getMaxConcurrency())
+                - domainSlots.availablePermits();
+    }
+
+    private Semaphore slots(String domain, Limit limit) {
+        if (limit.getMaxConcurrency() <= 0) {
+            return null;
+        }
+        return slots.computeIfAbsent(domain, key -> new Semaphore(perNode(limit.getMaxConcurrency())));
+    }
+
+    private Bucket bucket(String domain, Limit limit) {
+        if (limit.getPerMinute() <= 0) {
+            return null;
+        }
+        int perMinute = perNode(limit.getPerMinute());
+        return buckets.get(domain, key -> Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(Math.max(1, Math.min(perNode(properties.getBurst()), perMinute)))
+                        .refillGreedy(perMinute, Duration.ofMinutes(1))
+                        .build())
+                .build());
+    }
+
+    // This node's share of a limit, rounded up so that a low limit is not cut down to 0
+    private int perNode(int limit) {
+        return Math.ceilDiv(limit, instances);
+    }
+}
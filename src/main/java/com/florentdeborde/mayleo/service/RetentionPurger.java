@@ -0,0 +1,220 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.repository.EmailRequestKey;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Retention of terminal email requests (`app.mail.retention.*`):
+ * - SENT requests past `sent`, and FAILED requests past `failed` when set, are
+ * deleted by chunks of `chunk-size` rows walked in keyset order on
+ * (created_at, id), one short transaction per chunk and a `pause` in between,
+ * so locks and undo logs stay small and ingest is not stalled;
+ * - with `partitioned: true` (see db/upgrade/004_email_request_partitioning.sql),
+ * day partitions are created `partitions-ahead` days in advance, and a past day
+ * only holding expired requests is dropped as a whole before chunked deletes
+ * handle what is left;
+ * - with `app.mail.archive.enabled`, each chunk is first appended to the run's
+ * {@link EmailRequestArchive} segment, and is kept if that fails. Partitions are
+ * then only dropped once empty, since a dropped row could not be archived.
+ * A run stops after `max-run-time` (within the ShedLock lease), the next one
+ * resumes from the oldest rows.
+ */
+@Component
+@Slf4j
+public class RetentionPurger {
+
+    private static final String PARTITION_PREFIX = "p";
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final EmailRequestRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailRequestArchive archive;
+
+    @Value("${app.mail.retention.sent:1d}")
+    private Duration sentRetention;
+
+    @Value("${app.mail.retention.failed:#{null}}")
+    private Duration failedRetention;
+
+    @Value("${app.mail.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.mail.retention.pause:100ms}")
+    private Duration pause;
+
+    @Value("${app.mail.retention.max-run-time:9m}")
+    private Duration maxRunTime;
+
+    @Value("${app.mail.retention.partitioned:false}")
+    private boolean partitioned;
+
+    @Value("${app.mail.retention.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    public RetentionPurger(EmailRequestRepository repository, JdbcTemplate jdbcTemplate,
+            EmailRequestArchive archive) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.archive = archive;
+    }
+
+    /**
+     * @return the number of requests deleted by chunks (dropped partitions are logged apart)
+     */
+    public int purge() {
+        Instant now = Instant.now();
+        Instant deadline = now.plus(maxRunTime);
+        Instant sentCutoff = now.minus(sentRetention);
+        Instant failedCutoff = failedRetention != null ? now.minus(failedRetention) : null;
+
+        if (partitioned) {
+            createPartitionsAhead(now);
+            dropExpiredPartitions(sentCutoff, failedCutoff);
+        }
+
+        EmailRequestArchive.Segment segment = archive.isEnabled() ? archive.openSegment() : null;
+        try {
+            int deleted = purgeChunks(EmailRequestStatus.SENT, sentCutoff, deadline, segment);
+            if (failedCutoff != null) {
+                deleted += purgeChunks(EmailRequestStatus.FAILED, failedCutoff, deadline, segment);
+            }
+            return deleted;
+        } finally {
+            closeQuietly(segment);
+        }
+    }
+
+    private int purgeChunks(EmailRequestStatus status, Instant cutoff, Instant deadline,
+            EmailRequestArchive.Segment segment) {
+        int deleted = 0;
+        EmailRequestKey after = new EmailRequestKey(new UUID(0, 0), Instant.EPOCH);
+        while (true) {
+            List<EmailRequestKey> chunk = repository.findExpiredKeys(status, cutoff, after.createdAt(), after.id(),
+                    PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                return deleted;
+            }
+            List<UUID> ids = chunk.stream().map(EmailRequestKey::id).toList();
+            if (segment != null && !archive(segment, ids)) {
+                return deleted;
+            }
+            repository.deleteAllByIdInBatch(ids);
+            deleted += chunk.size();
+            after = chunk.get(chunk.size() - 1);
+
+            if (chunk.size() < chunkSize) {
+                return deleted;
+            }
+            if (Instant.now().isAfter(deadline) || !pause()) {
+                log.warn("[Clean Up] Retention run stopped after {} {} requests, resuming next run", deleted, status);
+                return deleted;
+            }
+        }
+    }
+
+    // Nothing is deleted unless it is on disk
+    private boolean archive(EmailRequestArchive.Segment segment, List<UUID> ids) {
+        try {
+            List<ArchivedEmailRequest> requests = repository.findArchivedByIdIn(ids);
+            segment.append(requests);
+            return true;
+        } catch (IOException e) {
+            log.error("[Clean Up] Archiving failed, retention run stopped: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void closeQuietly(EmailRequestArchive.Segment segment) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("[Clean Up] Failed to close archive segment: {}", e.getMessage());
+        }
+    }
+
+    // Splits the catch-all partition, which only holds future rows, so it stays cheap
+    void createPartitionsAhead(Instant now) {
+        LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        Set<String> existing = partitionBounds().keySet();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            String name = partitionName(day);
+            if (!existing.contains(name)) {
+                long upperBound = day.plusDays(1).toEpochSecond(LocalTime.MIDNIGHT, ZoneOffset.UTC);
+                jdbcTemplate.execute("ALTER TABLE email_request REORGANIZE PARTITION pmax INTO ("
+                        + "PARTITION " + name + " VALUES LESS THAN (" + upperBound + "), "
+                        + "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+                log.info("[Clean Up] Created partition {} of email_request", name);
+            }
+        }
+    }
+
+    // A day is dropped once every request in it is expired (archived: once empty); otherwise chunked deletes take over
+    void dropExpiredPartitions(Instant sentCutoff, Instant failedCutoff) {
+        partitionBounds().forEach((name, upperBound) -> {
+            Instant end = Instant.ofEpochSecond(upperBound);
+            if (end.isAfter(sentCutoff)) {
+                return;
+            }
+            boolean failedExpired = failedCutoff != null && !end.isAfter(failedCutoff);
+            String keptFilter = archive.isEnabled() ? ""
+                    : " WHERE status NOT IN (" + (failedExpired ? "'SENT', 'FAILED'" : "'SENT'") + ")";
+            Integer kept = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_request PARTITION (" + name + ")"
+                    + keptFilter, Integer.class);
+            if (kept != null && kept == 0) {
+                jdbcTemplate.execute("ALTER TABLE email_request DROP PARTITION " + name);
+                log.info("[Clean Up] Dropped partition {} of email_request", name);
+            }
+        });
+    }
+
+    // Day partitions by name, with their exclusive upper bound in epoch seconds (pmax excluded)
+    private Map<String, Long> partitionBounds() {
+        Map<String, Long> bounds = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'email_request' AND PARTITION_NAME <> 'pmax'"
+                + " ORDER BY PARTITION_ORDINAL_POSITION",
+                rs -> {
+                    bounds.put(rs.getString(1), Long.parseLong(rs.getString(2)));
+                });
+        return bounds;
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_DAY.format(day);
+    }
+
+    // Leaves room for ingest and replication between chunks; false when interrupted (shutdown)
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
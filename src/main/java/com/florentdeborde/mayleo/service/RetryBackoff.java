@@ -0,0 +1,38 @@
+package com.florentdeborde.mayleo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay before a failed request is claimed again: exponential in the number of
+ * attempts (`app.mail.retry.initial-backoff`, doubled per attempt, capped at
+ * `app.mail.retry.max-backoff`), with equal jitter: half of the delay is fixed,
+ * the other half random, so the requests of a failing burst are spread out
+ * instead of hitting the SMTP server again together.
+ */
+@Component
+public class RetryBackoff {
+
+    private final long initialMillis;
+    private final long maxMillis;
+
+    public RetryBackoff(@Value("${app.mail.retry.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${app.mail.retry.max-backoff:30m}") Duration maxBackoff) {
+        this.initialMillis = initialBackoff.toMillis();
+        this.maxMillis = maxBackoff.toMillis();
+    }
+
+    /**
+     * @param retryCount failed attempts so far, this one included (1 for the first failure)
+     */
+    public Instant nextAttemptAt(int retryCount, Instant now) {
+        int doublings = Math.min(Math.max(retryCount - 1, 0), 30); // 2^30 already exceeds any sensible cap
+        long ceiling = Math.min(maxMillis, initialMillis << doublings);
+        long half = ceiling / 2;
+        return now.plusMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+    }
+}
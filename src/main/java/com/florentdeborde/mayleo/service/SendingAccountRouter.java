@@ -0,0 +1,137 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.model.EmailConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes a client's sends over its sending accounts (its EmailConfig rows), so
+ * that one tenant's throughput is not capped by a single mailbox's provider
+ * limits.
+ * - weighted least-loaded: accounts are tried in increasing order of messages in
+ * flight divided by their `weight`. The worker takes from each what its pacing
+ * bucket grants (see EmailRequestWorker);
+ * - outlier ejection: an account whose groups fail at the transport level
+ * `app.mail.accounts.ejection.consecutive-failures` times in a row is left out
+ * for `ejection-duration`. Its next failure after that ejects it again, a
+ * success puts it back for good. When every account of a client is ejected they
+ * are all used, the client's circuit breaker takes over (see ClientCircuitBreaker).
+ */
+@Component
+@Slf4j
+public class SendingAccountRouter {
+
+    private final int consecutiveFailures;
+    private final Duration ejectionDuration;
+    private final MayleoMetrics metrics;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    public SendingAccountRouter(@Value("${app.mail.accounts.ejection.consecutive-failures:3}") int consecutiveFailures,
+            @Value("${app.mail.accounts.ejection.ejection-duration:60s}") Duration ejectionDuration,
+            MayleoMetrics metrics) {
+        this.consecutiveFailures = consecutiveFailures;
+        this.ejectionDuration = ejectionDuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the accounts to send with, least loaded first, without the ejected
+     * ones unless all are
+     */
+    public List<EmailConfig> rank(List<EmailConfig> configs) {
+        Instant now = Instant.now();
+        List<EmailConfig> healthy = new ArrayList<>(configs.size());
+        for (EmailConfig config : configs) {
+            if (!account(config).isEjected(now)) {
+                healthy.add(config);
+            }
+        }
+        List<EmailConfig> ranked = new ArrayList<>(healthy.isEmpty() ? configs : healthy);
+        // Loads read once: they change while sorting. Stable: equal loads keep the configuration order
+        Map<EmailConfig, Double> loads = new IdentityHashMap<>();
+        ranked.forEach(config -> loads.put(config, load(config)));
+        ranked.sort(Comparator.comparingDouble(loads::get));
+        return ranked;
+    }
+
+    // The worker hands `messages` to the executor with this account
+    public void dispatched(EmailConfig config, int messages) {
+        account(config).inFlight.addAndGet(messages);
+    }
+
+    // Once the dispatched messages are done, sent or not
+    public void completed(EmailConfig config, int messages) {
+        account(config).inFlight.addAndGet(-messages);
+    }
+
+    public void recordSuccess(EmailConfig config) {
+        Account account = account(config);
+        synchronized (account) {
+            account.consecutiveFailures = 0;
+            account.ejectedUntil = null;
+        }
+    }
+
+    public void recordFailure(EmailConfig config) {
+        Account account = account(config);
+        synchronized (account) {
+            account.consecutiveFailures++;
+            Instant now = Instant.now();
+            if (account.consecutiveFailures >= consecutiveFailures && !account.isEjected(now)) {
+                account.ejectedUntil = now.plus(ejectionDuration);
+                log.warn("[Accounts] Sending account {} of client {} ejected until {}", config.getId(),
+                        account.clientId, account.ejectedUntil);
+                metrics.recordAccountEjection(account.clientId, config.getId());
+            }
+        }
+    }
+
+    public int inFlight(EmailConfig config) {
+        Account account = accounts.get(config.getId());
+        return account == null ? 0 : account.inFlight.get();
+    }
+
+    boolean isEjected(EmailConfig config) {
+        return account(config).isEjected(Instant.now());
+    }
+
+    private double load(EmailConfig config) {
+        return (double) account(config).inFlight.get() / Math.max(1, config.getWeight());
+    }
+
+    private Account account(EmailConfig config) {
+        return accounts.computeIfAbsent(config.getId(), id -> {
+            String clientId = config.getApiClient() == null ? "unknown" : config.getApiClient().getId();
+            Account account = new Account(clientId);
+            metrics.registerSendingAccount(clientId, id, account.inFlight::get);
+            return account;
+        });
+    }
+
+    private static final class Account {
+        private final String clientId;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private int consecutiveFailures;
+        private Instant ejectedUntil;
+
+        private Account(String clientId) {
+            this.clientId = clientId;
+        }
+
+        private synchronized boolean isEjected(Instant now) {
+            return ejectedUntil != null && now.isBefore(ejectedUntil);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.EmailConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Outbound send rate per SMTP account, so that bursts stay under the provider's
+ * limits instead of coming back as 421/454 throttling and retries. Separate from
+ * the ingest RPM buckets of EmailRequestService, which limit what a client may
+ * submit, not how fast it goes out.
+ * One token bucket per account (provider, host and username), refilled with
+ * `app.mail.smtp.pacing.<provider>` messages per minute, at most `burst` at
+ * once. A rate of 0 leaves the account unpaced.
+ * Nothing waits here: the worker sends what the bucket grants and defers the
+ * rest to when tokens are back (see EmailRequestWorker).
+ * Buckets are local to the node: with `app.mail.instances` nodes, each one is
+ * given that share of the rate and burst, so the fleet as a whole stays under
+ * the configured limits. Keep it in line with the number of running nodes.
+ */
+@Component
+public class SmtpAccountPacer {
+
+    /**
+     * @param retryAt when the requests not granted can be sent, null if all were
+     */
+    public record Grant(int granted, Instant retryAt) {
+    }
+
+    private final int smtpPerMinute;
+    private final int googlePerMinute;
+    private final int microsoftPerMinute;
+    private final int burst;
+    private final int instances;
+
+    private final Cache<String, Bucket> buckets = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public SmtpAccountPacer(@Value("${app.mail.smtp.pacing.smtp:0}") int smtpPerMinute,
+            @Value("${app.mail.smtp.pacing.google:60}") int googlePerMinute,
+            @Value("${app.mail.smtp.pacing.microsoft:30}") int microsoftPerMinute,
+            @Value("${app.mail.smtp.pacing.burst:10}") int burst,
+            @Value("${app.mail.instances:1}") int instances) {
+        this.smtpPerMinute = smtpPerMinute;
+        this.googlePerMinute = googlePerMinute;
+        this.microsoftPerMinute = microsoftPerMinute;
+        this.burst = burst;
+        this.instances = Math.max(1, instances);
+    }
+
+    // Takes up to `requested` tokens of the account, without waiting
+    public Grant acquire(EmailConfig config, int requested) {
+        Bucket bucket = bucket(config);
+        if (bucket == null) {
+            return new Grant(requested, null);
+        }
+        int granted = (int) bucket.tryConsumeAsMuchAsPossible(requested);
+        if (granted == requested) {
+            return new Grant(granted, null);
+        }
+        long waitNanos = bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+        return new Grant(granted, Instant.now().plusNanos(waitNanos));
+    }
+
+    // Gives back the tokens of requests that were granted but not sent after all
+    public void refund(EmailConfig config, int tokens) {
+        Bucket bucket = bucket(config);
+        if (bucket != null && tokens > 0) {
+            bucket.addTokens(tokens);
+        }
+    }
+
+    private Bucket bucket(EmailConfig config) {
+        int perMinute = switch (config.getProvider()) {
+            case SMTP -> smtpPerMinute;
+            case GOOGLE -> googlePerMinute;
+            case MICROSOFT -> microsoftPerMinute;
+        };
+        if (perMinute <= 0) {
+            return null;
+        }
+        // This node's share, rounded up so that a low rate is not paced down to 0
+        int nodePerMinute = Math.ceilDiv(perMinute, instances);
+        int nodeBurst = Math.ceilDiv(burst, instances);
+        String account = config.getProvider() + "|" + config.getSmtpHost() + "|" + config.getSmtpUsername();
+        return buckets.get(account, key -> Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(Math.max(1, Math.min(nodeBurst, nodePerMinute)))
+                        .refillGreedy(nodePerMinute, Duration.ofMinutes(1))
+                        .build())
+                .build());
+    }
+}
@@ -0,0 +1,111 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.config.AsyncConfig;
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead per SMTP host, so that one slow provider cannot take the whole
+ * 'emailTaskExecutor':
+ * - at most `app.mail.smtp.max-concurrency-per-host` SMTP conversations are
+ * open at the same time towards a host;
+ * - the worker only submits a group of a host once it is admitted here, the
+ * others stay PENDING in the database (see EmailRequestWorker).
+ * With the platform pool, no more groups of a host are admitted than it has
+ * slots: a sender thread never waits for a slot, so a stuck host holds at most
+ * `max-concurrency-per-host` threads and the rest of the pool keeps serving the
+ * other hosts. It must stay below the pool size.
+ * With the virtual-thread executor, waiting is cheap: `app.mail.smtp.max-queued-per-host`
+ * more groups are admitted and wait at most `app.mail.smtp.host-wait` for a
+ * slot, the request is deferred past that (see EmailSenderService).
+ */
+@Component
+public class SmtpHostLimiter {
+
+    private final int permitsPerHost;
+    private final int admittedPerHost;
+    private final long waitNanos;
+    private final MayleoMetrics metrics;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public SmtpHostLimiter(@Value("${app.mail.smtp.max-concurrency-per-host:5}") int permitsPerHost,
+            @Value("${app.mail.smtp.max-queued-per-host:10}") int queuedPerHost,
+            @Value("${app.mail.smtp.host-wait:30s}") Duration wait,
+            @Value("${app.mail.executor.mode:platform}") String executorMode, MayleoMetrics metrics) {
+        boolean virtual = AsyncConfig.MODE_VIRTUAL.equalsIgnoreCase(executorMode);
+        this.permitsPerHost = permitsPerHost;
+        this.admittedPerHost = virtual ? permitsPerHost + queuedPerHost : permitsPerHost;
+        this.waitNanos = virtual ? wait.toNanos() : 0;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Admits one more group of the host to the executor, without waiting.
+     * @return false if the host already has its fill of running and queued groups,
+     * in which case nothing must be left
+     */
+    public boolean tryAdmit(String host) {
+        boolean admitted = bulkhead(host).admitted.tryAcquire();
+        if (!admitted) {
+            metrics.recordSmtpBulkheadRejected(host);
+        }
+        return admitted;
+    }
+
+    // Once the admitted group is done, sent or not
+    public void leave(String host) {
+        bulkhead(host).admitted.release();
+    }
+
+    /**
+     * Waits for a permit in virtual mode only, platform threads never do.
+     * @return false if no permit freed up in time, in which case nothing must be released
+     */
+    public boolean tryAcquire(String host) throws InterruptedException {
+        Semaphore sending = bulkhead(host).sending;
+        return waitNanos == 0 ? sending.tryAcquire() : sending.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void release(String host) {
+        bulkhead(host).sending.release();
+    }
+
+    public int inUse(String host) {
+        Bulkhead bulkhead = bulkheads.get(host);
+        return bulkhead == null ? 0 : bulkhead.sending();
+    }
+
+    public int admitted(String host) {
+        Bulkhead bulkhead = bulkheads.get(host);
+        return bulkhead == null ? 0 : bulkhead.admitted();
+    }
+
+    private Bulkhead bulkhead(String host) {
+        return bulkheads.computeIfAbsent(host, key -> {
+            Bulkhead bulkhead = new Bulkhead();
+            metrics.registerSmtpBulkhead(key, bulkhead::sending, bulkhead::admitted, permitsPerHost);
+            return bulkhead;
+        });
+    }
+
+    private final class Bulkhead {
+        // Fair: sends to a busy host go out in arrival order
+        private final Semaphore sending = new Semaphore(permitsPerHost, true);
+        private final Semaphore admitted = new Semaphore(admittedPerHost);
+
+        private int sending() {
+            return permitsPerHost - sending.availablePermits();
+        }
+
+        private int admitted() {
+            return admittedPerHost - admitted.availablePermits();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+/**
+ * One SSLContext shared by every sender (see MailSenderFactory), for SMTPS
+ * (port 465) as for STARTTLS.
+ * Its client session cache outlives pooled connections and senders: a
+ * reconnection to an SMTP host it already talked to within
+ * `app.mail.smtp.tls.session-timeout` resumes the TLS session instead of doing a
+ * full handshake. The JDK keys cached sessions by host and port, so accounts on
+ * the same host share them.
+ * Each handshake is timed per host. Whether it resumed a session is not told
+ * apart: a TLS 1.3 resumption yields a new session and creation times are too
+ * coarse to compare, but resumed handshakes show up as the fast mode of the
+ * timer.
+ */
+@Component
+public class SmtpTlsContext {
+
+    private final SSLContext sslContext;
+    private final SSLSocketFactory socketFactory;
+    private final MayleoMetrics metrics;
+
+    public SmtpTlsContext(@Value("${app.mail.smtp.tls.session-cache-size:1000}") int sessionCacheSize,
+            @Value("${app.mail.smtp.tls.session-timeout:24h}") Duration sessionTimeout,
+            MayleoMetrics metrics) {
+        this.metrics = metrics;
+        try {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null); // JDK trust store
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize the SMTP TLS context", e);
+        }
+        SSLSessionContext sessions = sslContext.getClientSessionContext();
+        sessions.setSessionCacheSize(sessionCacheSize);
+        sessions.setSessionTimeout((int) sessionTimeout.toSeconds());
+        this.socketFactory = new MeteredSocketFactory(sslContext.getSocketFactory());
+    }
+
+    // Set as `mail.smtp.ssl.socketFactory`: JavaMail uses it for SMTPS and STARTTLS alike
+    public SSLSocketFactory socketFactory() {
+        return socketFactory;
+    }
+
+    SSLContext sslContext() {
+        return sslContext;
+    }
+
+    /**
+     * For SMTPS the socket is created before connecting, so the time also covers
+     * the TCP connection; for STARTTLS only the handshake.
+     */
+    void handshakeCompleted(SSLSession session, long socketCreatedAtNanos) {
+        Duration duration = Duration.ofNanos(System.nanoTime() - socketCreatedAtNanos);
+        String host = session.getPeerHost() == null ? "unknown" : session.getPeerHost();
+        metrics.recordSmtpTlsHandshake(host, duration);
+    }
+
+    private Socket metered(Socket socket) {
+        if (socket instanceof SSLSocket ssl) {
+            long createdAtNanos = System.nanoTime();
+            ssl.addHandshakeCompletedListener(event -> handshakeCompleted(event.getSession(), createdAtNanos));
+        }
+        return socket;
+    }
+
+    private final class MeteredSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        private MeteredSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        // SMTPS: unconnected, JavaMail connects it with its own timeout
+        @Override
+        public Socket createSocket() throws IOException {
+            return metered(delegate.createSocket());
+        }
+
+        // STARTTLS: layered over the plain connection
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return metered(delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return metered(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return metered(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return metered(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return metered(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
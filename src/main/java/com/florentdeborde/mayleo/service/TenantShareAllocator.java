@@ -0,0 +1,64 @@
+package com.florentdeborde.mayleo.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Deficit round-robin across API clients, used to split a claim between the
+ * tenants that have PENDING requests:
+ * - each claim credits every tenant with `slots * weight / totalWeight`;
+ * - a tenant is granted the whole part of its credit, the remaining slots going
+ * to the largest credits, and what it actually claims is debited;
+ * - a tenant that could not use its share (queue drained, rows locked by another
+ * instance) loses its credit, as in DRR an empty queue does not save up.
+ * Fractional credits carry over between claims, so small tenants still get their
+ * turn when there are more tenants than slots.
+ * State is local to the instance.
+ */
+public class TenantShareAllocator {
+
+    private final Map<String, Double> deficits = new HashMap<>();
+
+    /**
+     * @param weights tenants with PENDING requests and their dispatch weight
+     * @return slots granted per tenant, in the order of `weights`
+     */
+    public synchronized Map<String, Integer> allocate(Map<String, Integer> weights, int slots) {
+        deficits.keySet().retainAll(weights.keySet());
+
+        double totalWeight = weights.values().stream().mapToInt(TenantShareAllocator::normalize).sum();
+        Map<String, Integer> shares = new LinkedHashMap<>();
+        int granted = 0;
+        for (Map.Entry<String, Integer> tenant : weights.entrySet()) {
+            double deficit = deficits.merge(tenant.getKey(), slots * normalize(tenant.getValue()) / totalWeight,
+                    Double::sum);
+            int share = (int) Math.max(0, Math.floor(deficit));
+            shares.put(tenant.getKey(), share);
+            granted += share;
+        }
+
+        // Rounding leftovers go to the tenants owed the most; their credit may go slightly negative
+        int leftover = slots - granted;
+        if (leftover > 0) {
+            weights.keySet().stream()
+                    .sorted(Comparator.comparingDouble((String id) -> deficits.get(id) - shares.get(id)).reversed())
+                    .limit(leftover)
+                    .forEach(id -> shares.merge(id, 1, Integer::sum));
+        }
+        return shares;
+    }
+
+    /**
+     * Debits what a tenant actually claimed. Claiming less than its share means
+     * the tenant had nothing more to give: its credit is reset.
+     */
+    public synchronized void record(String tenant, int share, int claimed) {
+        deficits.computeIfPresent(tenant, (id, deficit) -> claimed < share ? 0.0 : deficit - claimed);
+    }
+
+    private static int normalize(Integer weight) {
+        return weight == null ? 1 : Math.max(1, weight);
+    }
+}
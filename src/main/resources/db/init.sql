@@ -35,6 +35,9 @@ CREATE TABLE IF NOT EXISTS api_client (
     rpm_limit INT DEFAULT 10
             COMMENT 'Requests Per Minute limit (Anti-spam)',
 
+    dispatch_weight INT NOT NULL DEFAULT 1
+        COMMENT 'Relative share of the dispatch worker claims when several clients have a backlog',
+
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
         COMMENT 'Timestamp when the client was created',
 
@@ -124,6 +127,10 @@ CREATE TABLE IF NOT EXISTS email_config (
     enabled BOOLEAN NOT NULL DEFAULT TRUE
         COMMENT 'Indicates whether this email configuration is active',
 
+    weight INT NOT NULL DEFAULT 1
+        COMMENT 'Share of the client sends routed to this account, relative to its other accounts',
+        CHECK (weight > 0),
+
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
         COMMENT 'Timestamp when the configuration was created',
 
@@ -131,13 +138,13 @@ CREATE TABLE IF NOT EXISTS email_config (
         COMMENT 'Timestamp of the last update',
 
     PRIMARY KEY (id),
-    UNIQUE KEY uk_email_config_client (api_client_id),
+    KEY idx_email_config_client (api_client_id),
     CONSTRAINT fk_email_config_client
         FOREIGN KEY (api_client_id)
         REFERENCES api_client (id)
         ON DELETE CASCADE
 ) ENGINE=InnoDB
-COMMENT='Email configuration associated with an API client';
+COMMENT='Sending accounts of an API client (one or more)';
 
 -- =============================================================================
 -- Table: storage_config
@@ -178,8 +185,8 @@ CREATE TABLE storage_config (
 -- Stores incoming email requests to be processed asynchronously
 -- =============================================================================
 CREATE TABLE IF NOT EXISTS email_request (
-    id CHAR(36) NOT NULL
-        COMMENT 'Technical UUID identifier of the email request',
+    id BINARY(16) NOT NULL
+        COMMENT 'Time-ordered UUIDv7 of the email request (canonical string form in the API)',
 
     api_client_id CHAR(36) NOT NULL
         COMMENT 'Reference to the API client who sent the request',
@@ -187,6 +194,9 @@ CREATE TABLE IF NOT EXISTS email_request (
     to_email VARCHAR(255) NOT NULL
         COMMENT 'Destination email address',
 
+    recipient_domain VARCHAR(255) DEFAULT NULL
+        COMMENT 'Lower-cased domain of to_email, for per-domain throttling',
+
     lang_code VARCHAR(5) DEFAULT NULL
         COMMENT 'Requested language code (NULL = use client default language)',
 
@@ -203,8 +213,8 @@ CREATE TABLE IF NOT EXISTS email_request (
         COMMENT 'Relative image path or filename (ex: postcard-01.jpg)',
 
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING'
-        COMMENT 'Processing status (PENDING, SENDING, SENT, FAILED)',
-    CHECK (status IN ('PENDING', 'SENDING', 'SENT', 'FAILED')),
+        COMMENT 'Processing status (STAGED, PENDING, SENDING, SENT, FAILED)',
+    CONSTRAINT chk_email_request_status CHECK (status IN ('STAGED', 'PENDING', 'SENDING', 'SENT', 'FAILED')),
 
     error_message TEXT DEFAULT NULL
         COMMENT 'Error message if the email processing failed',
@@ -218,6 +228,15 @@ CREATE TABLE IF NOT EXISTS email_request (
     processed_at TIMESTAMP DEFAULT NULL
         COMMENT 'Timestamp when the request was processed',
 
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+        COMMENT 'Not claimed before this instant: creation time, then pushed back by the retry backoff',
+
+    claimed_by VARCHAR(64) DEFAULT NULL
+        COMMENT 'Claim token of the worker sending the request, or of the ingest staging it (NULL unless SENDING or STAGED)',
+
+    lease_until TIMESTAMP NULL DEFAULT NULL
+        COMMENT 'Claim expiry: past this instant the request is re-queued (SENDING) or deleted (STAGED) by the self-healing job',
+
     idempotency_key CHAR(64)
         COMMENT 'Optional key provided by client to ensure request idempotency',
 
@@ -241,6 +260,21 @@ ON email_request (api_client_id, created_at);
 CREATE INDEX idx_email_request_status_created
 ON email_request (status, created_at);
 
+CREATE INDEX idx_email_request_status_due
+ON email_request (status, next_attempt_at);
+
+CREATE INDEX idx_email_request_status_client
+ON email_request (status, api_client_id, next_attempt_at);
+
+CREATE INDEX idx_email_request_status_domain
+ON email_request (status, recipient_domain, next_attempt_at);
+
+CREATE INDEX idx_email_request_claim
+ON email_request (claimed_by, lease_until);
+
+CREATE INDEX idx_email_request_lease
+ON email_request (status, lease_until);
+
 -- =============================================================================
 -- Table: shedlock
 -- Used by ShedLock to synchronize scheduled tasks across multiple instances.
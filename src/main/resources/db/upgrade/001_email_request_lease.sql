@@ -0,0 +1,25 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: dedicated claim / lease columns on email_request (MySQL)
+-- Workers used to store their instance id in error_message (TEXT, not indexed).
+-- =============================================================================
+
+ALTER TABLE email_request
+    ADD COLUMN claimed_by VARCHAR(64) DEFAULT NULL
+        COMMENT 'Claim token of the worker sending the request (NULL unless SENDING)'
+        AFTER processed_at,
+    ADD COLUMN lease_until TIMESTAMP NULL DEFAULT NULL
+        COMMENT 'Claim expiry: past this instant the request is re-queued by the self-healing job'
+        AFTER claimed_by;
+
+CREATE INDEX idx_email_request_claim
+ON email_request (claimed_by, lease_until);
+
+CREATE INDEX idx_email_request_lease
+ON email_request (status, lease_until);
+
+-- Requests in flight during the upgrade get the former 5 minutes recovery delay
+UPDATE email_request
+SET lease_until = TIMESTAMPADD(MINUTE, 5, processed_at),
+    error_message = NULL
+WHERE status = 'SENDING';
@@ -0,0 +1,13 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: per-tenant fair scheduling of the dispatch worker (MySQL)
+-- Claims used to be strict FIFO on created_at across all clients.
+-- =============================================================================
+
+ALTER TABLE api_client
+    ADD COLUMN dispatch_weight INT NOT NULL DEFAULT 1
+        COMMENT 'Relative share of the dispatch worker claims when several clients have a backlog'
+        AFTER rpm_limit;
+
+CREATE INDEX idx_email_request_status_client
+ON email_request (status, api_client_id, created_at);
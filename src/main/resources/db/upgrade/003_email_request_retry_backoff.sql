@@ -0,0 +1,23 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: retry backoff on email_request (MySQL)
+-- Failed sends used to be re-queued as immediately claimable.
+-- =============================================================================
+
+ALTER TABLE email_request
+    ADD COLUMN next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+        COMMENT 'Not claimed before this instant: creation time, then pushed back by the retry backoff'
+        AFTER processed_at;
+
+-- Existing requests keep their FIFO position
+UPDATE email_request
+SET next_attempt_at = created_at;
+
+CREATE INDEX idx_email_request_status_due
+ON email_request (status, next_attempt_at);
+
+-- Per-tenant claims now filter and order on next_attempt_at
+DROP INDEX idx_email_request_status_client ON email_request;
+
+CREATE INDEX idx_email_request_status_client
+ON email_request (status, api_client_id, next_attempt_at);
@@ -0,0 +1,31 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade (optional): day partitions on email_request (MySQL)
+-- Lets the retention job drop a past day in O(1) instead of deleting its rows.
+-- Enable with app.mail.retention.partitioned=true once this script has run:
+-- the job then keeps creating the next days' partitions out of pmax.
+--
+-- MySQL requirements for partitioned InnoDB tables, to review before running:
+-- - every unique key includes created_at: the idempotency key is then only
+--   unique per (client, key, created_at), duplicates are still caught by the
+--   lookup done before insert, but no longer by the database under a race;
+-- - foreign keys are not supported: fk_email_request_client is dropped and
+--   ON DELETE CASCADE from api_client no longer applies to email_request.
+-- Run with a UTC session (SET time_zone = '+00:00') and set the day below to
+-- the day after the upgrade; phistory holds everything before it and is
+-- dropped once all its requests are past retention.
+-- =============================================================================
+
+ALTER TABLE email_request DROP FOREIGN KEY fk_email_request_client;
+
+ALTER TABLE email_request
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at),
+    DROP INDEX uk_email_request_idempotency,
+    ADD UNIQUE KEY uk_email_request_idempotency (api_client_id, idempotency_key, created_at);
+
+ALTER TABLE email_request
+    PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (
+        PARTITION phistory VALUES LESS THAN (UNIX_TIMESTAMP('2026-01-02 00:00:00')),
+        PARTITION pmax VALUES LESS THAN MAXVALUE
+    );
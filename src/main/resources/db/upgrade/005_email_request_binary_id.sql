@@ -0,0 +1,30 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: BINARY(16) primary key on email_request (MySQL 8)
+-- Ids used to be random UUIDv4 strings in CHAR(36): inserts split random pages
+-- of the clustered index and every secondary index carried the 36-byte key.
+-- The application now generates time-ordered UUIDv7 ids stored as BINARY(16);
+-- the API keeps returning and accepting the canonical string form.
+--
+-- Existing ids are converted in place with UUID_TO_BIN (no swap flag: the
+-- application stores the RFC byte order), they keep their value in the API.
+-- Stop the workers and the API during the upgrade: the table is rebuilt.
+-- If 004_email_request_partitioning.sql has run, the primary key to restore
+-- below is (id, created_at).
+-- =============================================================================
+
+ALTER TABLE email_request
+    ADD COLUMN id_bin BINARY(16) NULL AFTER id;
+
+UPDATE email_request
+SET id_bin = UUID_TO_BIN(id);
+
+ALTER TABLE email_request
+    DROP PRIMARY KEY,
+    DROP COLUMN id;
+
+ALTER TABLE email_request
+    CHANGE COLUMN id_bin id BINARY(16) NOT NULL
+        COMMENT 'Time-ordered UUIDv7 of the email request (canonical string form in the API)'
+        FIRST,
+    ADD PRIMARY KEY (id);
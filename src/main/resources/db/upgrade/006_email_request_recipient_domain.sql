@@ -0,0 +1,20 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: recipient domain on email_request (MySQL)
+-- The dispatch pipeline throttles and interleaves sends per recipient domain
+-- (gmail.com, outlook.com, ...). The domain is extracted once at ingest
+-- instead of being parsed from to_email by every claim.
+-- =============================================================================
+
+ALTER TABLE email_request
+    ADD COLUMN recipient_domain VARCHAR(255) DEFAULT NULL
+        COMMENT 'Lower-cased domain of to_email, for per-domain throttling'
+        AFTER to_email;
+
+-- Backfill, so the requests already queued are throttled too
+UPDATE email_request
+SET recipient_domain = LOWER(SUBSTRING_INDEX(to_email, '@', -1))
+WHERE to_email LIKE '%@%';
+
+CREATE INDEX idx_email_request_status_domain
+ON email_request (status, recipient_domain, next_attempt_at);
@@ -0,0 +1,20 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: several sending accounts per client (MySQL)
+-- A client may now have more than one email_config row. Sends are routed over
+-- them by weight and load, so one tenant is no longer capped by the provider
+-- limits of a single mailbox. Existing clients keep their single account.
+-- =============================================================================
+
+ALTER TABLE email_config
+    ADD COLUMN weight INT NOT NULL DEFAULT 1
+        COMMENT 'Share of the client sends routed to this account, relative to its other accounts'
+        AFTER enabled,
+    ADD CONSTRAINT chk_email_config_weight CHECK (weight > 0);
+
+-- The foreign key needs an index on api_client_id: added before the unique key goes
+CREATE INDEX idx_email_config_client ON email_config (api_client_id);
+
+ALTER TABLE email_config DROP INDEX uk_email_config_client;
+
+ALTER TABLE email_config COMMENT = 'Sending accounts of an API client (one or more)';
@@ -0,0 +1,33 @@
+-- =============================================================================
+-- Mayleo Email Gateway
+-- Upgrade: staged NDJSON ingest (MySQL)
+-- A streamed upload no longer holds one transaction (and one connection) while
+-- the client sends its body: each chunk is committed as STAGED rows, claimed by
+-- the ingest, and flipped to PENDING in one UPDATE once the signature is
+-- verified. STAGED rows are never claimed by the workers.
+-- =============================================================================
+
+-- The status check was created unnamed: its generated name is looked up first
+SET @status_check = (
+    SELECT cc.CONSTRAINT_NAME
+    FROM information_schema.CHECK_CONSTRAINTS cc
+    JOIN information_schema.TABLE_CONSTRAINTS tc
+        ON tc.CONSTRAINT_SCHEMA = cc.CONSTRAINT_SCHEMA AND tc.CONSTRAINT_NAME = cc.CONSTRAINT_NAME
+    WHERE tc.TABLE_SCHEMA = DATABASE() AND tc.TABLE_NAME = 'email_request'
+        AND tc.CONSTRAINT_TYPE = 'CHECK' AND cc.CHECK_CLAUSE LIKE '%status%'
+    LIMIT 1);
+
+SET @drop_check = CONCAT('ALTER TABLE email_request DROP CHECK `', @status_check, '`');
+PREPARE stmt FROM @drop_check;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE email_request
+    MODIFY COLUMN status VARCHAR(20) NOT NULL DEFAULT 'PENDING'
+        COMMENT 'Processing status (STAGED, PENDING, SENDING, SENT, FAILED)',
+    MODIFY COLUMN claimed_by VARCHAR(64) DEFAULT NULL
+        COMMENT 'Claim token of the worker sending the request, or of the ingest staging it (NULL unless SENDING or STAGED)',
+    MODIFY COLUMN lease_until TIMESTAMP NULL DEFAULT NULL
+        COMMENT 'Claim expiry: past this instant the request is re-queued (SENDING) or deleted (STAGED) by the self-healing job',
+    ADD CONSTRAINT chk_email_request_status
+        CHECK (status IN ('STAGED', 'PENDING', 'SENDING', 'SENT', 'FAILED'));
@@ -0,0 +1,89 @@
+package com.florentdeborde.mayleo.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Unit Test - AsyncConfig")
+class AsyncConfigTest {
+
+    @Test
+    @DisplayName("✅ getAsyncExecutor: Should run sends on virtual threads in virtual mode")
+    void getAsyncExecutor_VirtualMode() throws Exception {
+        // GIVEN
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "executorMode", "virtual");
+        ReflectionTestUtils.setField(config, "virtualMaxInFlight", 50);
+
+        // WHEN
+        SendTaskExecutor executor = config.getAsyncExecutor();
+        Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        // THEN: A new virtual thread per send, bounded by in-flight sends, nothing queued behind them
+        assertThat(executor).isInstanceOf(VirtualSendExecutor.class);
+        assertThat(thread.isVirtual()).isTrue();
+        assertThat(thread.getName()).startsWith("EmailTask-");
+        assertThat(executor.concurrency()).isEqualTo(50);
+        assertThat(executor.remainingQueueCapacity()).isZero();
+    }
+
+    @Test
+    @DisplayName("❌ VirtualSendExecutor: Should reject sends past the max in flight, until one completes")
+    void virtualSendExecutor_MaxInFlight() throws Exception {
+        // GIVEN: One send in flight at most, and it is blocked
+        VirtualSendExecutor executor = new VirtualSendExecutor("EmailTask-", 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> blocked = executor.submit(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // WHEN & THEN
+        assertThat(executor.running()).isEqualTo(1);
+        assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+
+        // WHEN & THEN: The slot is free again once the send is done
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.running() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(executor.running()).isZero();
+        assertThat(executor.submit(() -> "sent").get(5, TimeUnit.SECONDS)).isEqualTo("sent");
+    }
+
+    @Test
+    @DisplayName("✅ getAsyncExecutor: Should keep the platform thread pool by default")
+    void getAsyncExecutor_PlatformMode() throws Exception {
+        // GIVEN
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "executorMode", "platform");
+
+        // WHEN
+        PlatformSendExecutor executor = (PlatformSendExecutor) config.getAsyncExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            // THEN
+            assertThat(thread.isVirtual()).isFalse();
+            assertThat(executor.getMaxPoolSize()).isEqualTo(20);
+            assertThat(executor.getQueueCapacity()).isEqualTo(500);
+            assertThat(executor.concurrency()).isEqualTo(10);
+            assertThat(executor.remainingQueueCapacity()).isEqualTo(500);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
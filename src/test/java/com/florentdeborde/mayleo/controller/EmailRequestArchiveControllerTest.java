@@ -0,0 +1,100 @@
+package com.florentdeborde.mayleo.controller;
+
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.model.ImageSource;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import com.florentdeborde.mayleo.service.EmailRequestArchive;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(EmailRequestArchiveController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@DisplayName("Unit Test - EmailRequestArchiveController")
+class EmailRequestArchiveControllerTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @MockitoBean
+        private EmailRequestArchive archive;
+
+        @MockitoBean
+        private ApiClientRepository apiClientRepository;
+
+        private final ApiClient client = ApiClient.builder().id("test-id").name("test-client").build();
+        private final UUID requestId = UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057");
+
+        @Test
+        @DisplayName("✅ Should return 200 OK and the archived request of the authenticated client")
+        void getArchivedRequest_Found() throws Exception {
+                // GIVEN
+                when(archive.findById("test-id", requestId)).thenReturn(Optional.of(archived()));
+
+                // WHEN & THEN
+                mockMvc.perform(get("/email-request/archive/" + requestId).requestAttr("authenticatedClient", client))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.id").value(requestId.toString()))
+                                .andExpect(jsonPath("$.status").value("SENT"));
+        }
+
+        @Test
+        @DisplayName("❌ Should return 404 NOT FOUND when the request is not archived for this client")
+        void getArchivedRequest_NotFound() throws Exception {
+                // GIVEN
+                when(archive.findById("test-id", requestId)).thenReturn(Optional.empty());
+
+                // WHEN & THEN
+                mockMvc.perform(get("/email-request/archive/" + requestId).requestAttr("authenticatedClient", client))
+                                .andExpect(status().isNotFound())
+                                .andExpect(jsonPath("$.error").value("ARCHIVED_REQUEST_NOT_FOUND"));
+        }
+
+        @Test
+        @DisplayName("❌ Should return 404 NOT FOUND when the id is not a UUID")
+        void getArchivedRequest_MalformedId() throws Exception {
+                // WHEN & THEN
+                mockMvc.perform(get("/email-request/archive/not-a-uuid").requestAttr("authenticatedClient", client))
+                                .andExpect(status().isNotFound());
+                verifyNoInteractions(archive);
+        }
+
+        @Test
+        @DisplayName("✅ Should return the requests of a day, with the limit capped")
+        void getArchivedRequestsByDate_CappedLimit() throws Exception {
+                // GIVEN
+                when(archive.findByClientAndDate("test-id", LocalDate.parse("2026-01-01"), 1000))
+                                .thenReturn(List.of(archived()));
+
+                // WHEN & THEN
+                mockMvc.perform(get("/email-request/archive")
+                                .param("date", "2026-01-01")
+                                .param("limit", "50000")
+                                .requestAttr("authenticatedClient", client))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].id").value(requestId.toString()));
+        }
+
+        private ArchivedEmailRequest archived() {
+                return new ArchivedEmailRequest(requestId, "test-id", "to@example.com", "en", "Subject", "Message",
+                                ImageSource.DEFAULT, null, EmailRequestStatus.SENT, null, 0,
+                                Instant.parse("2026-01-01T10:00:00Z"), Instant.parse("2026-01-01T10:00:05Z"), null);
+        }
+}
@@ -1,6 +1,7 @@
 package com.florentdeborde.mayleo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.florentdeborde.mayleo.dto.request.EmailRequestBatchDto;
 import com.florentdeborde.mayleo.dto.request.EmailRequestDto;
 import com.florentdeborde.mayleo.model.ApiClient;
 import com.florentdeborde.mayleo.model.EmailConfig;
@@ -8,6 +9,8 @@ import com.florentdeborde.mayleo.model.EmailProvider;
 import com.florentdeborde.mayleo.model.ImageSource;
 import com.florentdeborde.mayleo.repository.ApiClientRepository;
 import com.florentdeborde.mayleo.repository.EmailConfigRepository;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.florentdeborde.mayleo.security.ApiClientAuthCache;
 import com.florentdeborde.mayleo.security.ApiKeyEncoder;
 import com.florentdeborde.mayleo.service.EmailRequestService;
 import com.florentdeborde.mayleo.service.HmacService;
@@ -26,6 +29,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -62,6 +66,12 @@ class EmailRequestControllerIT {
         @Autowired
         private EmailRequestService emailRequestService;
 
+        @Autowired
+        private ApiClientAuthCache apiClientAuthCache;
+
+        @Autowired
+        private EmailRequestRepository emailRequestRepository;
+
         @Value("${app.security.key-salt}")
         private String salt;
 
@@ -93,6 +103,8 @@ class EmailRequestControllerIT {
         void setupSpringSecurityAndDatabase() {
                 apiClientRepository.deleteAll();
                 emailConfigRepository.deleteAll();
+                // Clients are re-created with new ids for each test
+                apiClientAuthCache.evictAll();
 
                 mockMvc = MockMvcBuilders
                                 .webAppContextSetup(context)
@@ -347,6 +359,7 @@ class EmailRequestControllerIT {
                 // Increment quota
                 client.setDailyQuota(100);
                 apiClientRepository.saveAndFlush(client);
+                apiClientAuthCache.evictClient(client.getId());
                 emailRequestService.evictBuckets(client.getId());
 
                 // 3rd request
@@ -432,4 +445,79 @@ class EmailRequestControllerIT {
                 // the only one created in this transaction context context
                 // Actually, let's use the ID from response
         }
-}
\ No newline at end of file
+
+        @Test
+        @DisplayName("✅ Should persist valid batch items and report invalid ones under a single signature")
+        void should_create_batch_and_report_invalid_items() throws Exception {
+                // GIVEN: One valid item (rpmLimit is 1) and one invalid recipient
+                EmailRequestDto invalidDto = EmailRequestDto.builder()
+                                .toEmail("not-an-email")
+                                .imageSource(ImageSource.DEFAULT)
+                                .imagePath("postcards/postcard-0.jpg")
+                                .build();
+                EmailRequestBatchDto batchDto = EmailRequestBatchDto.builder()
+                                .requests(List.of(dto, invalidDto))
+                                .build();
+                String signature = generateTestSignature(batchDto, CLIENT_SPECIFIC_SECRET);
+
+                // WHEN
+                String response = mockMvc.perform(post(urlTemplate + "/batch")
+                                .header(headerKeyName, PLAIN_API_KEY)
+                                .header(headerHmacName, signature)
+                                .header("Origin", allowedDomain)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(batchDto)))
+                                .andExpect(status().isAccepted())
+                                .andReturn().getResponse().getContentAsString();
+
+                // THEN
+                var body = objectMapper.readTree(response);
+                assertThat(body.get("accepted").asInt()).isEqualTo(1);
+                assertThat(body.get("rejected").asInt()).isEqualTo(1);
+                String id = body.get("items").get(0).get("id").asText();
+                assertThat(emailRequestRepository.findById(UUID.fromString(id))).isPresent();
+                assertThat(body.get("items").get(1).get("error").asText()).isEqualTo("INVALID_REQUEST");
+        }
+
+        @Test
+        @DisplayName("✅ Should ingest an NDJSON stream above MAX_BODY_SIZE, signed as a whole")
+        void should_ingest_ndjson_stream_above_body_limit() throws Exception {
+                // GIVEN: One valid record (rpmLimit is 1) padded with blank lines beyond 256KB
+                String ndjson = objectMapper.writeValueAsString(dto) + "\n" + (" ".repeat(1023) + "\n").repeat(300);
+                byte[] body = ndjson.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                String signature = hmacService.calculateHmac(body, CLIENT_SPECIFIC_SECRET);
+
+                // WHEN
+                String response = mockMvc.perform(post(urlTemplate + "/stream")
+                                .header(headerKeyName, PLAIN_API_KEY)
+                                .header(headerHmacName, signature)
+                                .header("Origin", allowedDomain)
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content(body))
+                                .andExpect(status().isAccepted())
+                                .andReturn().getResponse().getContentAsString();
+
+                // THEN
+                var result = objectMapper.readTree(response);
+                assertThat(result.get("accepted").asInt()).isEqualTo(1);
+                assertThat(result.get("rejected").asInt()).isEqualTo(0);
+                assertThat(emailRequestRepository.count()).isEqualTo(1L);
+        }
+
+        @Test
+        @DisplayName("❌ Should return 401 and persist nothing when an NDJSON stream is tampered")
+        void should_return_401_when_ndjson_stream_is_tampered() throws Exception {
+                // GIVEN
+                String ndjson = objectMapper.writeValueAsString(dto) + "\n";
+                String signature = hmacService.calculateHmac("{}".getBytes(), CLIENT_SPECIFIC_SECRET);
+
+                // WHEN & THEN
+                mockMvc.perform(post(urlTemplate + "/stream")
+                                .header(headerKeyName, PLAIN_API_KEY)
+                                .header(headerHmacName, signature)
+                                .header("Origin", allowedDomain)
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content(ndjson))
+                                .andExpect(status().isUnauthorized());
+        }
+}
@@ -1,7 +1,9 @@
 package com.florentdeborde.mayleo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.florentdeborde.mayleo.dto.request.EmailRequestBatchDto;
 import com.florentdeborde.mayleo.dto.request.EmailRequestDto;
+import com.florentdeborde.mayleo.dto.response.EmailRequestBatchResponse;
 import com.florentdeborde.mayleo.model.ApiClient;
 import com.florentdeborde.mayleo.model.ImageSource;
 import com.florentdeborde.mayleo.repository.ApiClientRepository;
@@ -15,9 +17,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -145,4 +150,44 @@ class EmailRequestControllerTest {
                                 .content(objectMapper.writeValueAsString(dto)))
                                 .andExpect(status().isBadRequest());
         }
-}
\ No newline at end of file
+
+        @Test
+        @DisplayName("✅ Should return 202 ACCEPTED with per-item results for a batch")
+        void createEmailRequests_Success() throws Exception {
+                // GIVEN
+                EmailRequestBatchDto batchDto = EmailRequestBatchDto.builder()
+                                .requests(List.of(createValidDto(), createValidDto()))
+                                .build();
+                EmailRequestBatchResponse batchResponse = new EmailRequestBatchResponse(1, 1, List.of(
+                                EmailRequestBatchResponse.Item.accepted(0, "id-0"),
+                                EmailRequestBatchResponse.Item.rejected(1, "INVALID_REQUEST", "toEmail: invalid")));
+
+                when(emailRequestService.createEmailRequests(any(ApiClient.class), anyList(), eq("batch-key")))
+                                .thenReturn(batchResponse);
+
+                // WHEN & THEN
+                mockMvc.perform(post("/email-request/batch")
+                                .requestAttr("authenticatedClient", createMockClient())
+                                .header("Origin", allowedDomain)
+                                .header("X-Idempotency-Key", "batch-key")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(batchDto)))
+                                .andExpect(status().isAccepted())
+                                .andExpect(jsonPath("$.accepted").value(1))
+                                .andExpect(jsonPath("$.items[0].id").value("id-0"))
+                                .andExpect(jsonPath("$.items[0].error").doesNotExist())
+                                .andExpect(jsonPath("$.items[1].error").value("INVALID_REQUEST"));
+        }
+
+        @Test
+        @DisplayName("❌ Should return 400 BAD REQUEST when the batch is empty")
+        void createEmailRequests_EmptyBatch() throws Exception {
+                // WHEN & THEN
+                mockMvc.perform(post("/email-request/batch")
+                                .requestAttr("authenticatedClient", createMockClient())
+                                .header("Origin", allowedDomain)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"requests\":[]}"))
+                                .andExpect(status().isBadRequest());
+        }
+}
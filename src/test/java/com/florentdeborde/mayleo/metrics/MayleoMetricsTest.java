@@ -6,6 +6,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DisplayName("Unit Test - MayleoMetrics")
@@ -53,4 +57,157 @@ class MayleoMetricsTest {
 
         assertThat(count).isEqualTo(1.0);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("✅ recordQueueWait: Should record the wait time per client")
+    void recordQueueWait_ShouldWork() {
+        // WHEN: A request of a client waited 2 seconds in PENDING
+        mayleoMetrics.recordQueueWait("TEST_CLIENT", Duration.ofSeconds(2));
+
+        // THEN: The per-client timer holds the sample
+        var timer = registry.get("mayleo.dispatch.queue.wait")
+                .tag("client", "TEST_CLIENT")
+                .timer();
+
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordStuckRecovery: Should add the number of re-queued requests")
+    void recordStuckRecovery_ShouldWork() {
+        // WHEN: Two recovery runs
+        mayleoMetrics.recordStuckRecovery(120);
+        mayleoMetrics.recordStuckRecovery(3);
+
+        // THEN
+        double count = registry.get("mayleo.worker.recovered").counter().count();
+
+        assertThat(count).isEqualTo(123.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordVirtualThreadPinned: Should time pins, tagged by JavaMail involvement")
+    void recordVirtualThreadPinned_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordVirtualThreadPinned(true, Duration.ofMillis(40));
+
+        // THEN
+        var timer = registry.get("mayleo.executor.vthread.pinned")
+                .tag("javamail", "true")
+                .timer();
+
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordSmtpSendDeferred: Should count deferred sends per SMTP host")
+    void recordSmtpSendDeferred_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordSmtpSendDeferred("smtp.test.com");
+
+        // THEN
+        double count = registry.get("mayleo.smtp.deferred").tag("host", "smtp.test.com").counter().count();
+
+        assertThat(count).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("✅ registerSmtpBulkhead: Should expose active, queued and utilization gauges per SMTP host")
+    void registerSmtpBulkhead_ShouldWork() {
+        // WHEN: 2 of 4 slots in use, 5 groups admitted
+        mayleoMetrics.registerSmtpBulkhead("smtp.test.com", () -> 2, () -> 5, 4);
+
+        // THEN
+        assertThat(registry.get("mayleo.smtp.bulkhead.active").tag("host", "smtp.test.com").gauge().value())
+                .isEqualTo(2.0);
+        assertThat(registry.get("mayleo.smtp.bulkhead.queued").tag("host", "smtp.test.com").gauge().value())
+                .isEqualTo(3.0);
+        assertThat(registry.get("mayleo.smtp.bulkhead.utilization").tag("host", "smtp.test.com").gauge().value())
+                .isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("✅ recordCircuitTransition: Should count circuit state changes per client")
+    void recordCircuitTransition_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordCircuitTransition("client-1", "open");
+        mayleoMetrics.recordCircuitDeferred("client-1", 7);
+
+        // THEN
+        assertThat(registry.get("mayleo.circuit.transitions").tag("client", "client-1").tag("state", "open")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("mayleo.circuit.deferred").tag("client", "client-1").counter().count())
+                .isEqualTo(7.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordSmtpPacingDeferred: Should count paced requests per client")
+    void recordSmtpPacingDeferred_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordSmtpPacingDeferred("client-1", 4);
+
+        // THEN
+        assertThat(registry.get("mayleo.smtp.pacing.deferred").tag("client", "client-1").counter().count())
+                .isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordRecipientDomainDeferred: Should count paced requests per recipient domain")
+    void recordRecipientDomainDeferred_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordRecipientDomainDeferred("gmail.com", 3);
+
+        // THEN
+        assertThat(registry.get("mayleo.domain.deferred").tag("domain", "gmail.com").counter().count())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordAccountDelivery: Should count deliveries per sending account")
+    void recordAccountDelivery_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordAccountDelivery("client-1", "account-1", MayleoMetrics.STATUS_SENT, 3);
+        mayleoMetrics.recordAccountDelivery("client-1", "account-2", MayleoMetrics.STATUS_FAILED, 1);
+
+        // THEN
+        assertThat(registry.get("mayleo.account.delivery").tag("account", "account-1")
+                .tag("status", MayleoMetrics.STATUS_SENT).counter().count()).isEqualTo(3.0);
+        assertThat(registry.get("mayleo.account.delivery").tag("account", "account-2")
+                .tag("status", MayleoMetrics.STATUS_FAILED).counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("✅ registerSendingAccount: Should expose the messages in flight of an account")
+    void registerSendingAccount_ShouldWork() {
+        // GIVEN
+        AtomicInteger inFlight = new AtomicInteger(4);
+
+        // WHEN
+        mayleoMetrics.registerSendingAccount("client-1", "account-1", inFlight::get);
+        mayleoMetrics.recordAccountEjection("client-1", "account-1");
+
+        // THEN
+        assertThat(registry.get("mayleo.account.in_flight").tag("account", "account-1").gauge().value())
+                .isEqualTo(4.0);
+        assertThat(registry.get("mayleo.account.ejections").tag("account", "account-1").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("✅ recordSmtpTlsHandshake: Should count and time handshakes per SMTP host")
+    void recordSmtpTlsHandshake_ShouldWork() {
+        // WHEN
+        mayleoMetrics.recordSmtpTlsHandshake("smtp.test.com", Duration.ofMillis(120));
+        mayleoMetrics.recordSmtpTlsHandshake("smtp.test.com", Duration.ofMillis(30));
+        mayleoMetrics.recordSmtpTlsHandshake("smtp.other.com", Duration.ofMillis(80));
+
+        // THEN
+        var handshakes = registry.get("mayleo.smtp.tls.handshake").tag("host", "smtp.test.com").timer();
+
+        assertThat(handshakes.count()).isEqualTo(2);
+        assertThat(handshakes.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(150.0);
+        assertThat(handshakes.max(TimeUnit.MILLISECONDS)).isEqualTo(120.0);
+    }
+}
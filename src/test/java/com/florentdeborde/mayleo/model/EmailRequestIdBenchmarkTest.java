@@ -0,0 +1,100 @@
+package com.florentdeborde.mayleo.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert throughput of email_request-like rows keyed by a random CHAR(36) UUIDv4
+ * (before) and by a BINARY(16) UUIDv7 (after), with the same secondary indexes.
+ * Opt-in, and meant to be run against a MySQL scratch schema:
+ * mvn test -Dtest=EmailRequestIdBenchmarkTest -Dbenchmark=true
+ * -Dbenchmark.url="jdbc:mysql://localhost:3306/scratch?rewriteBatchedStatements=true"
+ * -Dbenchmark.user=... -Dbenchmark.password=... [-Dbenchmark.rows=500000]
+ * Without `benchmark.url` it runs on in-memory H2, which only checks the harness:
+ * clustered index fragmentation is an InnoDB effect.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Benchmark - EmailRequestId inserts")
+class EmailRequestIdBenchmarkTest {
+
+        private static final int BATCH_SIZE = 1000;
+
+        @Test
+        @DisplayName("✅ Should report insert throughput for CHAR(36) UUIDv4 and BINARY(16) UUIDv7 keys")
+        void insertThroughput() throws Exception {
+                String url = System.getProperty("benchmark.url", "jdbc:h2:mem:benchmark;MODE=MySQL");
+                int rows = Integer.getInteger("benchmark.rows", 200_000);
+
+                try (Connection connection = DriverManager.getConnection(url,
+                                System.getProperty("benchmark.user", "sa"), System.getProperty("benchmark.password", ""))) {
+                        double before = run(connection, "bench_email_request_char36", "CHAR(36)", rows, false);
+                        double after = run(connection, "bench_email_request_binary16", "BINARY(16)", rows, true);
+
+                        log.info("[Benchmark] {} rows on {}: CHAR(36) UUIDv4 {} rows/s, BINARY(16) UUIDv7 {} rows/s (x{})",
+                                        rows, connection.getMetaData().getDatabaseProductName(), Math.round(before),
+                                        Math.round(after), String.format("%.2f", after / before));
+                }
+        }
+
+        private double run(Connection connection, String table, String idType, int rows, boolean timeOrdered)
+                        throws Exception {
+                try (Statement statement = connection.createStatement()) {
+                        statement.execute("DROP TABLE IF EXISTS " + table);
+                        statement.execute("CREATE TABLE " + table + " (id " + idType + " NOT NULL, "
+                                        + "api_client_id CHAR(36) NOT NULL, status VARCHAR(20) NOT NULL, "
+                                        + "message TEXT NOT NULL, created_at TIMESTAMP(6) NOT NULL, PRIMARY KEY (id))");
+                        statement.execute("CREATE INDEX idx_" + table + "_client ON " + table + " (api_client_id, created_at)");
+                        statement.execute("CREATE INDEX idx_" + table + "_status ON " + table + " (status, created_at)");
+                }
+
+                String[] clients = { UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                UUID.randomUUID().toString() };
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                long start = System.nanoTime();
+                try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                                + " (id, api_client_id, status, message, created_at) VALUES (?, ?, 'PENDING', ?, ?)")) {
+                        for (int i = 1; i <= rows; i++) {
+                                if (timeOrdered) {
+                                        insert.setBytes(1, EmailRequestId.toBytes(EmailRequestId.next()));
+                                } else {
+                                        insert.setString(1, UUID.randomUUID().toString());
+                                }
+                                insert.setString(2, clients[i % clients.length]);
+                                insert.setString(3, "Hello from the benchmark");
+                                insert.setTimestamp(4, Timestamp.from(Instant.now()));
+                                insert.addBatch();
+                                if (i % BATCH_SIZE == 0) {
+                                        insert.executeBatch();
+                                        connection.commit();
+                                }
+                        }
+                        insert.executeBatch();
+                        connection.commit();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                connection.setAutoCommit(autoCommit);
+
+                try (Statement statement = connection.createStatement();
+                                ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                        count.next();
+                        assertEquals(rows, count.getInt(1));
+                        statement.execute("DROP TABLE " + table);
+                }
+                return rows / seconds;
+        }
+}
@@ -0,0 +1,61 @@
+package com.florentdeborde.mayleo.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Unit Test - EmailRequestId")
+class EmailRequestIdTest {
+
+        @Test
+        @DisplayName("✅ next: Should generate RFC 9562 version 7 UUIDs carrying the current time")
+        void next_Version7() {
+                // GIVEN
+                long before = System.currentTimeMillis();
+
+                // WHEN
+                UUID id = EmailRequestId.next();
+
+                // THEN
+                assertEquals(7, id.version());
+                assertEquals(2, id.variant());
+                long timestamp = id.getMostSignificantBits() >>> 16;
+                assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 1);
+        }
+
+        @Test
+        @DisplayName("✅ next: Should generate strictly increasing ids in their binary form")
+        void next_Monotonic() {
+                // GIVEN
+                byte[] previous = EmailRequestId.toBytes(EmailRequestId.next());
+
+                for (int i = 0; i < 10_000; i++) {
+                        // WHEN: Many ids within the same millisecond
+                        byte[] current = EmailRequestId.toBytes(EmailRequestId.next());
+
+                        // THEN: BINARY(16) order, as compared by the database
+                        assertTrue(Arrays.compareUnsigned(previous, current) < 0);
+                        previous = current;
+                }
+        }
+
+        @Test
+        @DisplayName("✅ toBytes / fromBytes: Should round-trip the 16 bytes in RFC order")
+        void toBytes_RoundTrip() {
+                // GIVEN
+                UUID id = UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057");
+
+                // WHEN
+                byte[] bytes = EmailRequestId.toBytes(id);
+
+                // THEN
+                assertEquals(16, bytes.length);
+                assertEquals((byte) 0x01, bytes[0]);
+                assertEquals((byte) 0x57, bytes[15]);
+                assertEquals(id, EmailRequestId.fromBytes(bytes));
+        }
+}
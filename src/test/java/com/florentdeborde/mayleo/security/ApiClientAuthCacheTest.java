@@ -0,0 +1,141 @@
+package com.florentdeborde.mayleo.security;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Unit Test - ApiClientAuthCache")
+class ApiClientAuthCacheTest {
+
+    @Mock
+    private ApiClientRepository apiClientRepository;
+
+    private MeterRegistry registry;
+    private ApiClientAuthCache authCache;
+
+    private final String HASHED_KEY = "hashed-key";
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        authCache = new ApiClientAuthCache(apiClientRepository, new MayleoMetrics(registry),
+                Duration.ofMinutes(5), Duration.ofSeconds(30), 100);
+    }
+
+    private ApiClient buildClient(String id) {
+        return ApiClient.builder()
+                .id(id)
+                .name("cached-client")
+                .apiKey(HASHED_KEY)
+                .hmacSecretKey("plain-secret")
+                .enabled(true)
+                .allowedDomains(new HashSet<>(Set.of("https://authorized.com")))
+                .build();
+    }
+
+    private double lookups(String result) {
+        return registry.get("mayleo.security.auth.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("✅ resolve: Should hit the database only once for repeated lookups")
+    void resolve_ShouldServeRepeatedLookupsFromCache() {
+        // GIVEN
+        when(apiClientRepository.findByApiKeyWithDomains(HASHED_KEY)).thenReturn(Optional.of(buildClient("c-1")));
+
+        // WHEN
+        AuthenticatedClient first = authCache.resolve(HASHED_KEY).orElseThrow();
+        AuthenticatedClient second = authCache.resolve(HASHED_KEY).orElseThrow();
+
+        // THEN
+        assertThat(second).isSameAs(first);
+        assertThat(first.hmacSecretKey()).isEqualTo("plain-secret");
+        assertThat(first.allowedDomains()).containsExactly("https://authorized.com");
+        verify(apiClientRepository, times(1)).findByApiKeyWithDomains(HASHED_KEY);
+        assertThat(lookups(MayleoMetrics.CACHE_MISS)).isEqualTo(1.0);
+        assertThat(lookups(MayleoMetrics.CACHE_HIT)).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("✅ resolve: Should expose allowed domains as an immutable copy")
+    void resolve_ShouldExposeImmutableDomains() {
+        // GIVEN
+        ApiClient client = buildClient("c-1");
+        when(apiClientRepository.findByApiKeyWithDomains(HASHED_KEY)).thenReturn(Optional.of(client));
+
+        // WHEN
+        AuthenticatedClient resolved = authCache.resolve(HASHED_KEY).orElseThrow();
+        client.getAllowedDomains().add("https://added-later.com");
+
+        // THEN
+        assertThat(resolved.allowedDomains()).containsExactly("https://authorized.com");
+        assertThatThrownBy(() -> resolved.allowedDomains().add("https://hacker.com"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("❌ resolve: Should cache unknown keys as negative entries")
+    void resolve_ShouldCacheUnknownKeys() {
+        // GIVEN
+        when(apiClientRepository.findByApiKeyWithDomains("unknown")).thenReturn(Optional.empty());
+
+        // WHEN
+        assertThat(authCache.resolve("unknown")).isEmpty();
+        assertThat(authCache.resolve("unknown")).isEmpty();
+
+        // THEN
+        verify(apiClientRepository, times(1)).findByApiKeyWithDomains("unknown");
+        assertThat(lookups(MayleoMetrics.CACHE_NEGATIVE_HIT)).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("♻ evictClient: Should reload the client after invalidation by id")
+    void evictClient_ShouldForceReload() {
+        // GIVEN
+        when(apiClientRepository.findByApiKeyWithDomains(HASHED_KEY)).thenReturn(Optional.of(buildClient("c-1")));
+        authCache.resolve(HASHED_KEY);
+
+        // WHEN
+        authCache.evictClient("other-client");
+        authCache.resolve(HASHED_KEY);
+        authCache.evictClient("c-1");
+        authCache.resolve(HASHED_KEY);
+
+        // THEN
+        verify(apiClientRepository, times(2)).findByApiKeyWithDomains(HASHED_KEY);
+    }
+
+    @Test
+    @DisplayName("♻ evict: Should drop a negative entry once the key is provisioned")
+    void evict_ShouldDropNegativeEntry() {
+        // GIVEN
+        when(apiClientRepository.findByApiKeyWithDomains(HASHED_KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(buildClient("c-1")));
+        assertThat(authCache.resolve(HASHED_KEY)).isEmpty();
+
+        // WHEN
+        authCache.evict(HASHED_KEY);
+
+        // THEN
+        assertThat(authCache.resolve(HASHED_KEY)).isPresent();
+    }
+}
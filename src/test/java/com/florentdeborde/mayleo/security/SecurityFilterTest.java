@@ -1,8 +1,10 @@
 package com.florentdeborde.mayleo.security;
 
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
 import com.florentdeborde.mayleo.model.ApiClient;
 import com.florentdeborde.mayleo.repository.ApiClientRepository;
 import com.florentdeborde.mayleo.service.HmacService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,6 +21,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.Set;
 
@@ -50,7 +53,9 @@ class SecurityFilterTest {
     @BeforeEach
     void setUp() {
         SecurityRegistry securityRegistry = new SecurityRegistry();
-        securityFilter = new SecurityFilter(apiClientRepository, securityRegistry, hmacService, TEST_SALT, true);
+        ApiClientAuthCache apiClientAuthCache = new ApiClientAuthCache(apiClientRepository,
+                new MayleoMetrics(new SimpleMeterRegistry()), Duration.ofMinutes(5), Duration.ofSeconds(30), 100);
+        securityFilter = new SecurityFilter(apiClientAuthCache, securityRegistry, hmacService, TEST_SALT, true);
         hashedApiKey = ApiKeyEncoder.hashSha256(PLAIN_API_KEY, TEST_SALT);
     }
 
@@ -205,6 +210,56 @@ class SecurityFilterTest {
         verify(writer).write(contains("INVALID_SIGNATURE"));
     }
 
+    // --- PHASE 2-3 (STREAMING) ---
+
+    @Test
+    @DisplayName("✅ should stream NDJSON bodies without size limit nor upfront HMAC check")
+    void shouldForwardNdjsonStreamWithoutBuffering() throws Exception {
+        setupValidAuthMock();
+        mockRequest("{}", "stream-sig", "https://authorized.com", "POST");
+        when(request.getServletPath()).thenReturn("/email-request/stream");
+        when(request.getContentType()).thenReturn("application/x-ndjson");
+        lenient().when(request.getContentLengthLong()).thenReturn((long) SecurityFilter.MAX_BODY_SIZE * 10);
+        when(hmacService.initMac("secret")).thenReturn(new HmacService().initMac("secret"));
+
+        securityFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(any(StreamingBodyHttpServletRequest.class), any());
+        verify(request).setAttribute(eq(HmacVerifyingInputStream.ATTRIBUTE), any(HmacVerifyingInputStream.class));
+        verify(hmacService, never()).verifySignature(any(byte[].class), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("❌ should return 401 when an NDJSON stream is not signed")
+    void shouldReturn401WhenNdjsonStreamIsNotSigned() throws Exception {
+        setupValidAuthMock();
+        mockRequest("{}", null, "https://authorized.com", "POST");
+        when(request.getServletPath()).thenReturn("/email-request/stream");
+        when(request.getContentType()).thenReturn("application/x-ndjson");
+        when(response.getWriter()).thenReturn(writer);
+
+        securityFilter.doFilterInternal(request, response, filterChain);
+
+        verify(response).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("❌ should keep the size limit for NDJSON bodies sent to another route")
+    void shouldBufferNdjsonOutsideStreamRoute() throws Exception {
+        setupValidAuthMock();
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getServletPath()).thenReturn("/email-request");
+        lenient().when(request.getContentType()).thenReturn("application/x-ndjson");
+        when(request.getContentLengthLong()).thenReturn((long) SecurityFilter.MAX_BODY_SIZE + 1);
+        when(response.getWriter()).thenReturn(writer);
+
+        securityFilter.doFilterInternal(request, response, filterChain);
+
+        verify(response).setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
     // --- PHASE 4 & 5 : SUCCESS ---
 
     @Test
@@ -0,0 +1,134 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.config.PlatformSendExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Unit Test - ClaimSizer")
+class ClaimSizerTest {
+
+        private PlatformSendExecutor executor;
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @BeforeEach
+        void setUp() {
+                executor = new PlatformSendExecutor();
+                executor.setCorePoolSize(2);
+                executor.setMaxPoolSize(2);
+                executor.setQueueCapacity(10);
+                executor.initialize();
+        }
+
+        @AfterEach
+        void tearDown() {
+                release.countDown();
+                executor.shutdown();
+        }
+
+        @Test
+        @DisplayName("✅ nextBatchSize: Should grow with a faster drain rate and stay within the queue capacity")
+        void nextBatchSize_FollowsLatency() {
+                // GIVEN: 2 idle threads, 10 queue slots, a 2s target queue delay
+                ClaimSizer sizer = new ClaimSizer(executor, 100, Duration.ofSeconds(2), Duration.ofSeconds(1), 1);
+
+                // THEN: 1s per send -> 2 idle threads + 4 queued sends
+                assertEquals(6, sizer.nextBatchSize());
+
+                // WHEN: The SMTP relay turns out to be fast
+                for (int i = 0; i < 50; i++) {
+                        sizer.recordSendLatency(TimeUnit.MILLISECONDS.toNanos(10));
+                }
+
+                // THEN: Bounded by what the queue can hold
+                assertEquals(12, sizer.nextBatchSize());
+                assertTrue(sizer.getAverageLatency().toMillis() < 20);
+        }
+
+        @Test
+        @DisplayName("✅ nextBatchSize: Should count threads and queue slots in send groups")
+        void nextBatchSize_SendGroups() throws Exception {
+                // GIVEN: Groups of 5, 2 idle threads, 10 queue slots, 0.1s per request, a 2s target queue delay
+                ClaimSizer sizer = new ClaimSizer(executor, 1000, Duration.ofSeconds(2), Duration.ofMillis(100), 5);
+
+                // THEN: 2 groups started right away + 40 requests drained within 2s
+                assertEquals(10 + 40, sizer.nextBatchSize());
+
+                // WHEN: Both threads busy and 3 groups queued
+                CountDownLatch started = new CountDownLatch(2);
+                for (int i = 0; i < 5; i++) {
+                        executor.execute(() -> {
+                                started.countDown();
+                                awaitRelease();
+                        });
+                }
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+
+                // THEN: Up to 15 requests already queued, 25 more can drain within 2s
+                assertEquals(25, sizer.nextBatchSize());
+
+                // WHEN: The SMTP relay turns out to be fast
+                for (int i = 0; i < 50; i++) {
+                        sizer.recordSendLatency(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+
+                // THEN: Bounded by the 7 free queue slots of 5 requests each
+                assertEquals(35, sizer.nextBatchSize());
+        }
+
+        @Test
+        @DisplayName("✅ nextBatchSize: Should never exceed the configured maximum")
+        void nextBatchSize_CappedByMaximum() {
+                // GIVEN
+                ClaimSizer sizer = new ClaimSizer(executor, 5, Duration.ofSeconds(2), Duration.ofMillis(1), 1);
+
+                // THEN
+                assertEquals(5, sizer.nextBatchSize());
+        }
+
+        @Test
+        @DisplayName("❌ nextBatchSize: Should return 0 while every thread is busy and the queue holds enough work")
+        void nextBatchSize_Saturated() throws Exception {
+                // GIVEN: Both threads blocked and 4 tasks queued (1s per send, 2s target)
+                ClaimSizer sizer = new ClaimSizer(executor, 100, Duration.ofSeconds(2), Duration.ofSeconds(1), 1);
+                CountDownLatch started = new CountDownLatch(2);
+                for (int i = 0; i < 6; i++) {
+                        executor.execute(() -> {
+                                started.countDown();
+                                awaitRelease();
+                        });
+                }
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+
+                // WHEN / THEN: A full claim stays flagged, but there is no capacity to resume it
+                assertEquals(0, sizer.nextBatchSize());
+                sizer.recordClaim(10, 10);
+                assertFalse(sizer.isBacklogWaitingForCapacity());
+
+                // WHEN: The pool drains
+                release.countDown();
+                executor.getThreadPoolExecutor().getQueue().clear();
+
+                // THEN
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (!sizer.isBacklogWaitingForCapacity() && System.nanoTime() < deadline) {
+                        Thread.sleep(10);
+                }
+                assertTrue(sizer.isBacklogWaitingForCapacity());
+        }
+
+        private void awaitRelease() {
+                try {
+                        release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+        }
+}
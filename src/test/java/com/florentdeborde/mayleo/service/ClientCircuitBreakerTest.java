@@ -0,0 +1,95 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.service.ClientCircuitBreaker.Decision;
+import com.florentdeborde.mayleo.service.ClientCircuitBreaker.State;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("Unit Test - ClientCircuitBreaker")
+class ClientCircuitBreakerTest {
+
+        private static final String CLIENT_ID = "client-1";
+
+        private final MayleoMetrics metrics = mock(MayleoMetrics.class);
+
+        @Test
+        @DisplayName("✅ recordFailure: Should open the circuit after consecutive failures")
+        void recordFailure_ConsecutiveFailuresOpen() {
+                // GIVEN
+                ClientCircuitBreaker breaker = new ClientCircuitBreaker(3, 20, 0.5, Duration.ofMinutes(1), metrics);
+
+                // WHEN
+                breaker.recordFailure(CLIENT_ID);
+                breaker.recordFailure(CLIENT_ID);
+                assertEquals(Decision.ALLOW, breaker.acquire(CLIENT_ID));
+                breaker.recordFailure(CLIENT_ID);
+
+                // THEN: Claims are deferred to the end of the open period, other clients unaffected
+                assertEquals(Decision.REJECT, breaker.acquire(CLIENT_ID));
+                assertTrue(breaker.retryAt(CLIENT_ID).isAfter(Instant.now().plusSeconds(50)));
+                assertEquals(Decision.ALLOW, breaker.acquire("client-2"));
+                verify(metrics).recordCircuitTransition(CLIENT_ID, "open");
+        }
+
+        @Test
+        @DisplayName("✅ recordFailure: Should open the circuit when the failure rate over the window is reached")
+        void recordFailure_FailureRateOpens() {
+                // GIVEN: Alternating outcomes never make 2 failures in a row
+                ClientCircuitBreaker breaker = new ClientCircuitBreaker(2, 4, 0.5, Duration.ofMinutes(1), metrics);
+
+                // WHEN
+                breaker.recordSuccess(CLIENT_ID);
+                breaker.recordFailure(CLIENT_ID);
+                breaker.recordSuccess(CLIENT_ID);
+                assertEquals(State.CLOSED, breaker.state(CLIENT_ID));
+                breaker.recordFailure(CLIENT_ID);
+
+                // THEN: 2 failures out of the last 4
+                assertEquals(State.OPEN, breaker.state(CLIENT_ID));
+        }
+
+        @Test
+        @DisplayName("✅ acquire: Should let a single probe through once the open period is over, and close on success")
+        void acquire_HalfOpenProbeCloses() {
+                // GIVEN: An open circuit whose open period is already over
+                ClientCircuitBreaker breaker = new ClientCircuitBreaker(1, 20, 0.5, Duration.ZERO, metrics);
+                breaker.recordFailure(CLIENT_ID);
+
+                // WHEN
+                Decision probe = breaker.acquire(CLIENT_ID);
+
+                // THEN
+                assertEquals(Decision.PROBE, probe);
+                assertEquals(State.HALF_OPEN, breaker.state(CLIENT_ID));
+
+                // WHEN & THEN: The probe got through
+                breaker.recordSuccess(CLIENT_ID);
+                assertEquals(State.CLOSED, breaker.state(CLIENT_ID));
+                assertEquals(Decision.ALLOW, breaker.acquire(CLIENT_ID));
+        }
+
+        @Test
+        @DisplayName("❌ recordFailure: Should open the circuit again when the probe fails")
+        void recordFailure_HalfOpenProbeFails() {
+                // GIVEN: A probe in flight
+                ClientCircuitBreaker breaker = new ClientCircuitBreaker(1, 20, 0.5, Duration.ZERO, metrics);
+                breaker.recordFailure(CLIENT_ID);
+                assertEquals(Decision.PROBE, breaker.acquire(CLIENT_ID));
+
+                // WHEN
+                breaker.recordFailure(CLIENT_ID);
+
+                // THEN
+                assertEquals(State.OPEN, breaker.state(CLIENT_ID));
+                verify(metrics, times(2)).recordCircuitTransition(CLIENT_ID, "open");
+        }
+}
@@ -0,0 +1,85 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.model.EmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.model.ImageSource;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// The fixed-delay poll is pushed back: only the wake-up path can pick the request up in time
+@SpringBootTest(properties = {
+                "app.mail.process-delay=3600000",
+                "app.mail.wakeup.enabled=true",
+                "app.mail.wakeup.marker-poll-delay=100"
+})
+@ActiveProfiles("it")
+@DisplayName("Integration Test - Dispatch Wake-Up")
+class EmailDispatchTriggerIT {
+
+        @Autowired
+        private EmailRequestRepository repository;
+
+        @Autowired
+        private ApiClientRepository apiClientRepository;
+
+        @MockitoBean
+        private EmailSenderService emailSenderService;
+
+        private ApiClient client;
+
+        @BeforeEach
+        void setup() {
+                repository.deleteAll();
+                apiClientRepository.deleteAll();
+
+                client = apiClientRepository.save(ApiClient.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("wakeup-test-client")
+                                .apiKey("wakeup-api-key")
+                                .hmacSecretKey("wakeup-hmac-secret")
+                                .createdAt(Instant.now())
+                                .updatedAt(Instant.now())
+                                .enabled(true)
+                                .dailyQuota(100)
+                                .rpmLimit(100)
+                                .build());
+        }
+
+        @Test
+        @DisplayName("✅ Wake-up: A request inserted by another node should be dispatched within 500ms")
+        void inserted_request_should_be_dispatched_without_waiting_for_the_poll() {
+                // GIVEN: A PENDING row written straight to the table, as another instance would
+                EmailRequest request = repository.saveAndFlush(EmailRequest.builder()
+                                .id(EmailRequestId.next())
+                                .apiClient(client)
+                                .toEmail("wakeup@example.com")
+                                .message("Wake up")
+                                .imageSource(ImageSource.DEFAULT)
+                                .langCode("en")
+                                .createdAt(Instant.now())
+                                .status(EmailRequestStatus.PENDING)
+                                .retryCount(0)
+                                .build());
+
+                // THEN: The change marker is seen and the worker is woken up
+                verify(emailSenderService, timeout(500)).sendEmails(
+                                argThat(group -> group.stream().anyMatch(sent -> sent.id().equals(request.getId()))), any(), any());
+        }
+}
@@ -0,0 +1,101 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Unit Test - EmailDispatchTrigger")
+class EmailDispatchTriggerTest {
+
+        @Mock
+        private EmailRequestWorker worker;
+        @Mock
+        private EmailRequestRepository repository;
+        @Mock
+        private ClaimSizer claimSizer;
+
+        private EmailDispatchTrigger trigger;
+
+        @BeforeEach
+        void setUp() {
+                // Runs wake-ups on the calling thread
+                trigger = new EmailDispatchTrigger(worker, repository, Runnable::run, claimSizer);
+        }
+
+        @Test
+        @DisplayName("✅ onEmailRequestsCreated: Should run the worker right away")
+        void onEmailRequestsCreated_WakesWorkerUp() {
+                // WHEN: Requests were committed on this node
+                trigger.onEmailRequestsCreated(new EmailRequestsCreatedEvent("client-123", 3));
+
+                // THEN
+                verify(worker).processPendingRequestsAutomatically();
+        }
+
+        @Test
+        @DisplayName("✅ pollPendingMarker: Should only wake the worker up when the marker moves forward")
+        void pollPendingMarker_WakesUpOnNewMarkerOnly() {
+                // GIVEN: Another node inserts once between the second and third polls
+                Instant first = Instant.parse("2026-01-01T10:00:00Z");
+                Instant second = first.plusMillis(120);
+                when(repository.findLatestCreatedAt(EmailRequestStatus.PENDING))
+                                .thenReturn(Optional.of(first), Optional.of(first), Optional.of(second));
+
+                // WHEN
+                trigger.pollPendingMarker();
+                trigger.pollPendingMarker();
+                trigger.pollPendingMarker();
+
+                // THEN: Startup marker + the new insert, the unchanged marker is ignored
+                verify(worker, times(2)).processPendingRequestsAutomatically();
+        }
+
+        @Test
+        @DisplayName("✅ pollPendingMarker: Should stay idle when nothing is pending")
+        void pollPendingMarker_NothingPending() {
+                // GIVEN
+                when(repository.findLatestCreatedAt(EmailRequestStatus.PENDING)).thenReturn(Optional.empty());
+
+                // WHEN
+                trigger.pollPendingMarker();
+
+                // THEN
+                verifyNoInteractions(worker);
+        }
+
+        @Test
+        @DisplayName("✅ pollPendingMarker: Should resume a worker held back by a saturated executor")
+        void pollPendingMarker_ResumesOnFreedCapacity() {
+                // GIVEN: The last claim was full and the executor has room again
+                when(claimSizer.isBacklogWaitingForCapacity()).thenReturn(true);
+
+                // WHEN
+                trigger.pollPendingMarker();
+
+                // THEN
+                verify(worker).processPendingRequestsAutomatically();
+                verifyNoInteractions(repository);
+        }
+
+        @Test
+        @DisplayName("❌ wakeUp: Should contain worker failures so later wake-ups keep working")
+        void wakeUp_WorkerFailure() {
+                // GIVEN
+                doThrow(new RuntimeException("DB down")).when(worker).processPendingRequestsAutomatically();
+
+                // WHEN / THEN
+                assertDoesNotThrow(trigger::wakeUp);
+        }
+}
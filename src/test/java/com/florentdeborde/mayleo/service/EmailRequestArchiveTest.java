@@ -0,0 +1,170 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.model.ImageSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Unit Test - EmailRequestArchive")
+class EmailRequestArchiveTest {
+
+        @TempDir
+        private Path directory;
+
+        private EmailRequestArchive archive;
+
+        @BeforeEach
+        void setUp() {
+                archive = new EmailRequestArchive();
+                ReflectionTestUtils.setField(archive, "enabled", true);
+                ReflectionTestUtils.setField(archive, "directory", directory);
+        }
+
+        @Test
+        @DisplayName("✅ findById: Should read a request back from any chunk of a segment")
+        void findById_AcrossChunks() throws Exception {
+                // GIVEN: Two chunks, i.e. two gzip members of the same segment
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of(archived("a", "client-1", "2026-01-01T10:00:00Z")));
+                        segment.append(List.of(archived("b", "client-1", "2026-01-01T11:00:00Z")));
+                }
+
+                // WHEN
+                Optional<ArchivedEmailRequest> found = archive.findById("client-1", id("b"));
+
+                // THEN
+                assertTrue(found.isPresent());
+                assertEquals(archived("b", "client-1", "2026-01-01T11:00:00Z"), found.get());
+        }
+
+        @Test
+        @DisplayName("❌ findById: Should not return a request of another client")
+        void findById_OtherClient() throws Exception {
+                // GIVEN
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of(archived("a", "client-1", "2026-01-01T10:00:00Z")));
+                }
+
+                // WHEN & THEN
+                assertTrue(archive.findById("client-2", id("a")).isEmpty());
+        }
+
+        @Test
+        @DisplayName("✅ findByClientAndDate: Should return the client's requests of that UTC day, oldest first")
+        void findByClientAndDate_FiltersAndOrders() throws Exception {
+                // GIVEN
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of(
+                                        archived("late", "client-1", "2026-01-01T23:59:59Z"),
+                                        archived("other-client", "client-2", "2026-01-01T12:00:00Z"),
+                                        archived("next-day", "client-1", "2026-01-02T00:00:00Z")));
+                        segment.append(List.of(archived("early", "client-1", "2026-01-01T00:00:00Z")));
+                }
+
+                // WHEN
+                List<ArchivedEmailRequest> found = archive.findByClientAndDate("client-1", LocalDate.parse("2026-01-01"),
+                                10);
+
+                // THEN
+                assertEquals(List.of(id("early"), id("late")), found.stream().map(ArchivedEmailRequest::id).toList());
+                assertEquals(1, archive.findByClientAndDate("client-1", LocalDate.parse("2026-01-01"), 1).size());
+        }
+
+        @Test
+        @DisplayName("✅ findById: Should skip an index line torn by a crash")
+        void findById_TornIndexLine() throws Exception {
+                // GIVEN: A crash left half an index line behind
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of(archived("a", "client-1", "2026-01-01T10:00:00Z")));
+                }
+                Path index = file(".idx");
+                Files.writeString(index, id("b") + "\tclient-1\t17", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+                // WHEN & THEN
+                assertTrue(archive.findById("client-1", id("a")).isPresent());
+                assertTrue(archive.findById("client-1", id("b")).isEmpty());
+        }
+
+        @Test
+        @DisplayName("✅ findById: Should skip a segment whose summary rules out the client")
+        void findById_SkipsSegmentBySummary() throws Exception {
+                // GIVEN: An index line of client-2 pointing to a member that does not exist, the summary only
+                // listing client-1
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of(archived("a", "client-1", "2026-01-01T10:00:00Z")));
+                }
+                Path index = file(".idx");
+                Files.writeString(index, id("b") + "\tclient-2\t1767261600000\t999999\t10\n", StandardCharsets.UTF_8,
+                                StandardOpenOption.APPEND);
+                Path summary = file(".sum");
+                Files.writeString(summary, Files.readString(summary, StandardCharsets.UTF_8)
+                                .replaceFirst("index-bytes\t\\d+", "index-bytes\t" + Files.size(index)),
+                                StandardCharsets.UTF_8);
+
+                // WHEN & THEN: Neither the index nor the segment is read for client-2
+                assertTrue(archive.findById("client-2", id("b")).isEmpty());
+                assertTrue(archive.findByClientAndDate("client-2", LocalDate.parse("2026-01-01"), 10).isEmpty());
+                assertTrue(archive.findById("client-1", id("a")).isPresent());
+        }
+
+        @Test
+        @DisplayName("✅ findByClientAndDate: Should scan a segment without summary")
+        void findByClientAndDate_WithoutSummary() throws Exception {
+                // GIVEN: A segment archived before summaries existed
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of(archived("a", "client-1", "2026-01-01T10:00:00Z")));
+                }
+                Files.delete(file(".sum"));
+
+                // WHEN & THEN
+                assertEquals(1, archive.findByClientAndDate("client-1", LocalDate.parse("2026-01-01"), 10).size());
+                assertTrue(archive.findById("client-1", id("a")).isPresent());
+        }
+
+        @Test
+        @DisplayName("✅ openSegment: Should not create any file for a run with nothing to archive")
+        void openSegment_NothingArchived() throws Exception {
+                // WHEN
+                try (EmailRequestArchive.Segment segment = archive.openSegment()) {
+                        segment.append(List.of());
+                }
+
+                // THEN
+                try (Stream<Path> files = Files.list(directory)) {
+                        assertEquals(0, files.count());
+                }
+        }
+
+        private Path file(String suffix) throws Exception {
+                try (Stream<Path> files = Files.list(directory)) {
+                        return files.filter(file -> file.toString().endsWith(suffix)).findFirst().orElseThrow();
+                }
+        }
+
+        private ArchivedEmailRequest archived(String name, String clientId, String createdAt) {
+                return new ArchivedEmailRequest(id(name), clientId, "to@example.com", "en", "Subject", "Message",
+                                ImageSource.DEFAULT, null, EmailRequestStatus.SENT, null, 0, Instant.parse(createdAt),
+                                Instant.parse(createdAt).plusSeconds(5), "key-" + name);
+        }
+
+        private UUID id(String name) {
+                return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+        }
+}
@@ -0,0 +1,237 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.model.EmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.model.ImageSource;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.florentdeborde.mayleo.repository.PendingTenant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The scheduled worker is pushed back so that only the test threads claim rows
+@SpringBootTest(properties = "app.mail.process-delay=3600000")
+@ActiveProfiles("it")
+@DisplayName("Integration Test - Concurrent Email Request Claiming")
+class EmailRequestClaimerIT {
+
+        private static final int TOTAL_REQUESTS = 300;
+        private static final int WORKERS = 8;
+        private static final int BATCH_SIZE = 10;
+
+        @Autowired
+        private EmailRequestClaimer claimer;
+
+        @Autowired
+        private EmailRequestRepository repository;
+
+        @Autowired
+        private ApiClientRepository apiClientRepository;
+
+        @BeforeEach
+        void setup() {
+                repository.deleteAll();
+                apiClientRepository.deleteAll();
+
+                ApiClient client = apiClientRepository.save(ApiClient.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("claimer-test-client")
+                                .apiKey("claimer-api-key")
+                                .hmacSecretKey("claimer-hmac-secret")
+                                .createdAt(Instant.now())
+                                .updatedAt(Instant.now())
+                                .enabled(true)
+                                .dailyQuota(1000)
+                                .rpmLimit(1000)
+                                .build());
+
+                List<EmailRequest> requests = new ArrayList<>();
+                for (int i = 0; i < TOTAL_REQUESTS; i++) {
+                        requests.add(pendingRequest(client, i));
+                }
+                repository.insertAll(requests);
+        }
+
+        @Test
+        @DisplayName("✅ Claimer: A client with a large backlog should not starve a newer, smaller client")
+        void claims_should_be_shared_between_clients() {
+                // GIVEN: A second client queuing 5 requests behind the 300 of the first one
+                ApiClient smallClient = apiClientRepository.save(ApiClient.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("claimer-small-client")
+                                .apiKey("claimer-small-api-key")
+                                .hmacSecretKey("claimer-hmac-secret")
+                                .createdAt(Instant.now())
+                                .updatedAt(Instant.now())
+                                .enabled(true)
+                                .dailyQuota(1000)
+                                .rpmLimit(1000)
+                                .build());
+                List<EmailRequest> requests = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                        requests.add(pendingRequest(smallClient, i));
+                }
+                repository.insertAll(requests);
+
+                // WHEN
+                List<ClaimedEmailRequest> claimed = claimer.claimBatch("worker", BATCH_SIZE);
+
+                // THEN: Equal weights, equal shares, tenants interleaved
+                assertThat(claimed).hasSize(BATCH_SIZE);
+                assertThat(claimed).filteredOn(request -> request.apiClientId().equals(smallClient.getId()))
+                                .hasSize(5);
+                assertThat(claimed.get(0).apiClientId()).isNotEqualTo(claimed.get(1).apiClientId());
+        }
+
+        @Test
+        @DisplayName("✅ Claimer: A request backing off should not be claimed before its next attempt")
+        void claims_should_skip_requests_backing_off() {
+                // GIVEN: Every request is backing off but one
+                List<EmailRequest> all = repository.findAll();
+                all.forEach(request -> request.setNextAttemptAt(Instant.now().plusSeconds(60)));
+                all.get(0).setNextAttemptAt(Instant.now().minusSeconds(1));
+                repository.saveAll(all);
+
+                // WHEN
+                List<ClaimedEmailRequest> claimed = claimer.claimBatch("worker", BATCH_SIZE);
+
+                // THEN
+                assertThat(claimed).extracting(ClaimedEmailRequest::id).containsExactly(all.get(0).getId());
+        }
+
+        @Test
+        @DisplayName("✅ findPendingTenants: Should only return clients with a request due")
+        void pending_tenants_should_only_include_clients_with_due_requests() {
+                // GIVEN: A second client whose only request is backing off
+                ApiClient idleClient = apiClientRepository.save(ApiClient.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("claimer-idle-client")
+                                .apiKey("claimer-idle-api-key")
+                                .hmacSecretKey("claimer-hmac-secret")
+                                .createdAt(Instant.now())
+                                .updatedAt(Instant.now())
+                                .enabled(true)
+                                .dailyQuota(1000)
+                                .rpmLimit(1000)
+                                .dispatchWeight(3)
+                                .build());
+                EmailRequest backingOff = pendingRequest(idleClient, 0);
+                backingOff.setNextAttemptAt(Instant.now().plusSeconds(60));
+                repository.insertAll(List.of(backingOff));
+
+                // WHEN
+                List<PendingTenant> tenants = repository.findPendingTenants(Instant.now());
+
+                // THEN: One row for the client with 300 due requests, with its weight
+                assertThat(tenants).hasSize(1);
+                assertThat(tenants.get(0).getClientId()).isNotEqualTo(idleClient.getId());
+                assertThat(tenants.get(0).getWeight()).isEqualTo(1);
+
+                // WHEN: Its request becomes due
+                List<PendingTenant> later = repository.findPendingTenants(Instant.now().plusSeconds(120));
+
+                // THEN
+                assertThat(later).extracting(PendingTenant::getClientId).contains(idleClient.getId());
+                assertThat(later).filteredOn(tenant -> tenant.getClientId().equals(idleClient.getId()))
+                                .extracting(PendingTenant::getWeight).containsExactly(3);
+        }
+
+        @Test
+        @DisplayName("✅ Claimer: Requests of a client should be interleaved by recipient domain")
+        void claims_should_interleave_recipient_domains() {
+                // GIVEN: 3 due requests to example.com, then 3 to other.org
+                List<EmailRequest> all = repository.findAll();
+                all.forEach(request -> request.setNextAttemptAt(Instant.now().plusSeconds(60)));
+                all.subList(0, 3).forEach(request -> request.setNextAttemptAt(Instant.now().minusSeconds(1)));
+                repository.saveAll(all);
+                List<EmailRequest> others = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                        EmailRequest request = pendingRequest(all.get(0).getApiClient(), i);
+                        request.setToEmail("user" + i + "@Other.org");
+                        others.add(request);
+                }
+                repository.insertAll(others);
+
+                // WHEN
+                List<ClaimedEmailRequest> claimed = claimer.claimBatch("worker", BATCH_SIZE);
+
+                // THEN: Domains alternate, lower-cased at ingest
+                assertThat(claimed).extracting(ClaimedEmailRequest::recipientDomain)
+                                .containsExactly("example.com", "other.org", "example.com", "other.org",
+                                                "example.com", "other.org");
+        }
+
+        private EmailRequest pendingRequest(ApiClient owner, int i) {
+                return EmailRequest.builder()
+                                .id(EmailRequestId.next())
+                                .apiClient(owner)
+                                .toEmail("user" + i + "@example.com")
+                                .message("Message " + i)
+                                .imageSource(ImageSource.DEFAULT)
+                                .createdAt(Instant.now())
+                                .status(EmailRequestStatus.PENDING)
+                                .build();
+        }
+
+        @Test
+        @DisplayName("✅ Claimer: Concurrent workers should claim every request exactly once")
+        void concurrent_claims_should_never_overlap() throws Exception {
+                // GIVEN: N workers started at the same time against the same table
+                Queue<UUID> claimedIds = new ConcurrentLinkedQueue<>();
+                CountDownLatch start = new CountDownLatch(1);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+                ExecutorService pool = Executors.newFixedThreadPool(WORKERS);
+
+                // WHEN: Each worker keeps claiming until the queue is drained
+                List<Future<?>> workers = new ArrayList<>();
+                for (int i = 0; i < WORKERS; i++) {
+                        String owner = "worker-" + i;
+                        workers.add(pool.submit(() -> {
+                                start.await();
+                                while (claimedIds.size() < TOTAL_REQUESTS && System.nanoTime() < deadline) {
+                                        List<ClaimedEmailRequest> claimed = claimer.claimBatch(owner, BATCH_SIZE);
+                                        claimed.forEach(request -> claimedIds.add(request.id()));
+                                        if (claimed.isEmpty()) {
+                                                Thread.sleep(10); // Every row in reach is locked by another worker
+                                        }
+                                }
+                                return null;
+                        }));
+                }
+                start.countDown();
+                for (Future<?> worker : workers) {
+                        worker.get(90, TimeUnit.SECONDS);
+                }
+                pool.shutdown();
+
+                // THEN: No request was handed out twice, and none was left behind
+                assertThat(claimedIds).hasSize(TOTAL_REQUESTS);
+                assertThat(new HashSet<>(claimedIds)).hasSize(TOTAL_REQUESTS);
+                assertThat(repository.findAll())
+                                .allMatch(request -> request.getStatus() == EmailRequestStatus.SENDING)
+                                .allMatch(request -> request.getProcessedAt() != null)
+                                .allMatch(request -> request.getClaimedBy() != null && request.getLeaseUntil() != null);
+        }
+}
@@ -1,13 +1,16 @@
 package com.florentdeborde.mayleo.service;
 
 import com.florentdeborde.mayleo.dto.request.EmailRequestDto;
-
+import com.florentdeborde.mayleo.dto.response.EmailRequestBatchResponse;
+import com.florentdeborde.mayleo.dto.response.EmailRequestStreamResponse;
 import com.florentdeborde.mayleo.exception.ExceptionCode;
 import com.florentdeborde.mayleo.exception.MayleoException;
 import com.florentdeborde.mayleo.metrics.MayleoMetrics;
 import com.florentdeborde.mayleo.model.*;
 import com.florentdeborde.mayleo.repository.EmailConfigRepository;
 import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.florentdeborde.mayleo.security.ApiKeyEncoder;
+import com.florentdeborde.mayleo.security.HmacVerifyingInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,10 +18,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,6 +49,10 @@ class EmailRequestServiceTest {
         private EmailConfigRepository emailConfigRepository;
         @Mock
         private MayleoMetrics metrics;
+        @Mock
+        private ApplicationEventPublisher eventPublisher;
+        @Spy
+        private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
         @InjectMocks
         private EmailRequestService emailRequestService;
@@ -81,7 +99,7 @@ class EmailRequestServiceTest {
                                 .langCode("en")
                                 .build();
                 // No UsageStats mocking needed since Bucket4j handles it in memory
-                when(emailConfigRepository.findByApiClient(apiClient)).thenReturn(Optional.of(emailConfig));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
                 when(repository.save(any(EmailRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // WHEN: Creating the request
@@ -106,6 +124,7 @@ class EmailRequestServiceTest {
 
                 verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED);
                 verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED);
+                verify(eventPublisher).publishEvent(new EmailRequestsCreatedEvent(apiClient.getId(), 1));
         }
 
         @Test
@@ -130,7 +149,7 @@ class EmailRequestServiceTest {
                 apiClient.setRpmLimit(1);
                 apiClient.setDailyQuota(10);
 
-                when(emailConfigRepository.findByApiClient(apiClient)).thenReturn(Optional.of(emailConfig));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
                 when(repository.save(any(EmailRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // WHEN: Consume the 1 allowed request per minute
@@ -143,7 +162,7 @@ class EmailRequestServiceTest {
 
                 verify(repository, times(1)).save(any());
                 verify(metrics, times(2)).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED);
-                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM);
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM, 1);
                 verify(metrics, times(1)).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED);
         }
 
@@ -155,7 +174,7 @@ class EmailRequestServiceTest {
                 apiClient.setRpmLimit(10);
                 apiClient.setDailyQuota(1);
 
-                when(emailConfigRepository.findByApiClient(apiClient)).thenReturn(Optional.of(emailConfig));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
                 when(repository.save(any(EmailRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // WHEN: Consume the 1 allowed request per day
@@ -168,7 +187,7 @@ class EmailRequestServiceTest {
 
                 verify(repository, times(1)).save(any());
                 verify(metrics, times(2)).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED);
-                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_DAILY_QUOTA);
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_DAILY_QUOTA, 1);
                 verify(metrics, times(1)).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED);
         }
 
@@ -177,7 +196,7 @@ class EmailRequestServiceTest {
         void createEmailRequest_Idempotency_Found() {
                 // GIVEN
                 String key = "unique-key-123";
-                String existingId = "req-already-exists";
+                UUID existingId = EmailRequestId.next();
                 EmailRequest existingRequest = EmailRequest.builder().id(existingId).build();
                 EmailRequestDto dto = new EmailRequestDto();
 
@@ -188,7 +207,7 @@ class EmailRequestServiceTest {
                 String resultId = emailRequestService.createEmailRequest(apiClient, dto, key);
 
                 // THEN
-                assertEquals(existingId, resultId);
+                assertEquals(existingId.toString(), resultId);
                 verify(repository, never()).save(any());
                 verify(metrics, never()).recordApiRequest(any(), any());
         }
@@ -198,7 +217,7 @@ class EmailRequestServiceTest {
         void createEmailRequest_Idempotency_RaceCondition() {
                 // GIVEN: Prepare data for a simulated collision
                 String key = "race-key";
-                String existingId = "id-saved-by-concurrent-thread";
+                UUID existingId = EmailRequestId.next(); // saved by the concurrent thread
                 EmailRequest existingRequest = EmailRequest.builder().id(existingId).build();
                 // MOCK: First call (initial check) returns empty,
                 // second call (inside catch block) returns the request saved by the other
@@ -207,7 +226,7 @@ class EmailRequestServiceTest {
                                 .thenReturn(Optional.empty())
                                 .thenReturn(Optional.of(existingRequest));
 
-                when(emailConfigRepository.findByApiClient(apiClient)).thenReturn(Optional.of(emailConfig));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
 
                 // MOCK: Simulate the DB rejecting the insert due to the UNIQUE constraint
                 when(repository.save(any(EmailRequest.class)))
@@ -219,7 +238,7 @@ class EmailRequestServiceTest {
 
                 // THEN: The service should gracefully recover and return the ID from the
                 // database
-                assertThat(resultId).isEqualTo(existingId);
+                assertThat(resultId).isEqualTo(existingId.toString());
 
                 // VERIFY: Ensure findBy was called twice (Initial + Recovery) and save was
                 // attempted once
@@ -244,7 +263,7 @@ class EmailRequestServiceTest {
                                 .build();
 
                 // Mock setup
-                when(emailConfigRepository.findByApiClient(apiClient)).thenReturn(Optional.of(emailConfig));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
                 when(repository.save(any(EmailRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // WHEN
@@ -259,4 +278,232 @@ class EmailRequestServiceTest {
                 assertEquals("Click here", saved.getMessage());
         }
 
-}
\ No newline at end of file
+        private EmailRequestDto validBatchItem(String toEmail) {
+                return EmailRequestDto.builder()
+                                .toEmail(toEmail)
+                                .langCode("en")
+                                .imageSource(ImageSource.DEFAULT)
+                                .imagePath("postcards/postcard-1.jpg")
+                                .build();
+        }
+
+        @Test
+        @DisplayName("✅ createEmailRequests: Should insert valid items in one batch and report invalid ones")
+        void createEmailRequests_PartialSuccess() {
+                // GIVEN: 2 valid items around an invalid one, quota large enough for the batch
+                apiClient.setRpmLimit(10);
+                List<EmailRequestDto> dtos = List.of(
+                                validBatchItem("first@example.com"),
+                                validBatchItem("not-an-email"),
+                                validBatchItem("third@example.com"));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
+
+                // WHEN
+                EmailRequestBatchResponse response = emailRequestService.createEmailRequests(apiClient, dtos, null);
+
+                // THEN
+                @SuppressWarnings("unchecked")
+                ArgumentCaptor<List<EmailRequest>> captor = ArgumentCaptor.forClass(List.class);
+                verify(repository).insertAll(captor.capture());
+                List<EmailRequest> inserted = captor.getValue();
+
+                assertEquals(2, response.accepted());
+                assertEquals(1, response.rejected());
+                assertEquals(inserted.get(0).getId().toString(), response.items().get(0).id());
+                assertEquals(ExceptionCode.INVALID_REQUEST.name(), response.items().get(1).error());
+                assertTrue(response.items().get(1).message().contains("toEmail"));
+                assertEquals(inserted.get(1).getId().toString(), response.items().get(2).id());
+                assertEquals("third@example.com", inserted.get(1).getToEmail());
+                assertNull(inserted.get(0).getIdempotencyKey());
+
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED, 2);
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED, 2);
+                verify(repository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("✅ createEmailRequests: Should return existing IDs without consuming quota on replay")
+        void createEmailRequests_Idempotency_Replay() {
+                // GIVEN: The first item of the batch was already created under its derived key
+                apiClient.setRpmLimit(10);
+                String key = "batch-key";
+                List<EmailRequestDto> dtos = List.of(validBatchItem("first@example.com"),
+                                validBatchItem("second@example.com"));
+                String firstItemKey = ApiKeyEncoder.hashSha256(key, "#0");
+                EmailRequest existing = EmailRequest.builder().id(EmailRequestId.next()).idempotencyKey(firstItemKey).build();
+
+                when(repository.findByApiClientAndIdempotencyKeyIn(eq(apiClient), any()))
+                                .thenReturn(List.of(existing));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
+
+                // WHEN
+                EmailRequestBatchResponse response = emailRequestService.createEmailRequests(apiClient, dtos, key);
+
+                // THEN: Only the second item is inserted and counted against the quota
+                @SuppressWarnings("unchecked")
+                ArgumentCaptor<List<EmailRequest>> captor = ArgumentCaptor.forClass(List.class);
+                verify(repository).insertAll(captor.capture());
+                assertEquals(1, captor.getValue().size());
+                assertEquals(ApiKeyEncoder.hashSha256(key, "#1"),
+                                captor.getValue().get(0).getIdempotencyKey());
+
+                assertEquals(2, response.accepted());
+                assertEquals(existing.getId().toString(), response.items().get(0).id());
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_RECEIVED, 1);
+        }
+
+        @Test
+        @DisplayName("❌ createEmailRequests: Should give the quota back when the client has no configuration")
+        void createEmailRequests_NoConfig_RefundsQuota() {
+                // GIVEN: rpmLimit is 2 and the batch holds 2 valid items
+                apiClient.setRpmLimit(2);
+                List<EmailRequestDto> dtos = List.of(validBatchItem("first@example.com"),
+                                validBatchItem("second@example.com"));
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient))
+                                .thenReturn(Optional.empty())
+                                .thenReturn(Optional.of(emailConfig));
+
+                // WHEN
+                MayleoException ex = assertThrows(MayleoException.class,
+                                () -> emailRequestService.createEmailRequests(apiClient, dtos, null));
+
+                // THEN: Both tokens are available again once the configuration exists
+                assertEquals(ExceptionCode.EMAIL_CONFIG_NOT_FOUND, ex.getExceptionCode());
+                assertEquals(2, emailRequestService.createEmailRequests(apiClient, dtos, null).accepted());
+        }
+
+        @Test
+        @DisplayName("♻ createEmailRequests: Should give the quota back when a concurrent replay inserted the rows")
+        void createEmailRequests_ConcurrentReplay_RefundsQuota() {
+                // GIVEN: The other call inserts the same batch between the lookup and the insert
+                apiClient.setRpmLimit(2);
+                String key = "batch-key";
+                List<EmailRequestDto> dtos = List.of(validBatchItem("first@example.com"),
+                                validBatchItem("second@example.com"));
+                List<EmailRequest> existing = List.of(
+                                EmailRequest.builder().id(EmailRequestId.next())
+                                                .idempotencyKey(ApiKeyEncoder.hashSha256(key, "#0")).build(),
+                                EmailRequest.builder().id(EmailRequestId.next())
+                                                .idempotencyKey(ApiKeyEncoder.hashSha256(key, "#1")).build());
+                when(repository.findByApiClientAndIdempotencyKeyIn(eq(apiClient), any()))
+                                .thenReturn(List.of())
+                                .thenReturn(existing);
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
+                doThrow(new DataIntegrityViolationException("uk_email_request_idempotency"))
+                                .doNothing()
+                                .when(repository).insertAll(any());
+
+                // WHEN
+                EmailRequestBatchResponse replay = emailRequestService.createEmailRequests(apiClient, dtos, key);
+
+                // THEN: The replay gets the other call's ids and its 2 tokens back
+                assertEquals(existing.get(0).getId().toString(), replay.items().get(0).id());
+                assertEquals(existing.get(1).getId().toString(), replay.items().get(1).id());
+                when(repository.findByApiClientAndIdempotencyKeyIn(eq(apiClient), any())).thenReturn(List.of());
+                assertEquals(2, emailRequestService.createEmailRequests(apiClient, dtos, "other-key").accepted());
+        }
+
+        @Test
+        @DisplayName("❌ createEmailRequests: Should reject the whole batch when quota cannot cover it")
+        void createEmailRequests_RpmLimitExceeded() {
+                // GIVEN: rpmLimit is 1 and the batch holds 2 valid items
+                List<EmailRequestDto> dtos = List.of(validBatchItem("first@example.com"),
+                                validBatchItem("second@example.com"));
+
+                // WHEN & THEN
+                MayleoException ex = assertThrows(MayleoException.class,
+                                () -> emailRequestService.createEmailRequests(apiClient, dtos, null));
+                assertEquals(ExceptionCode.RPM_LIMIT_EXCEEDED, ex.getExceptionCode());
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ERR_RPM, 2);
+                verify(repository, never()).insertAll(any());
+        }
+
+        @Test
+        @DisplayName("❌ createEmailRequests: Should reject batches above the configured maximum size")
+        void createEmailRequests_BatchTooLarge() {
+                // GIVEN
+                ReflectionTestUtils.setField(emailRequestService, "batchMaxSize", 1);
+                List<EmailRequestDto> dtos = List.of(validBatchItem("first@example.com"),
+                                validBatchItem("second@example.com"));
+
+                // WHEN & THEN
+                MayleoException ex = assertThrows(MayleoException.class,
+                                () -> emailRequestService.createEmailRequests(apiClient, dtos, null));
+                assertEquals(ExceptionCode.BATCH_TOO_LARGE, ex.getExceptionCode());
+                verifyNoInteractions(repository);
+        }
+
+        private HmacVerifyingInputStream signedStream(String ndjson, String signedWith) {
+                HmacService hmacService = new HmacService();
+                byte[] body = ndjson.getBytes(StandardCharsets.UTF_8);
+                String signature = hmacService.calculateHmac(signedWith.getBytes(StandardCharsets.UTF_8), "secret");
+                return new HmacVerifyingInputStream(new ByteArrayInputStream(body), hmacService.initMac("secret"),
+                                signature, hmacService);
+        }
+
+        private String ndjsonLine(String toEmail) {
+                return "{\"toEmail\":\"" + toEmail + "\",\"imageSource\":\"DEFAULT\",\"imagePath\":\"p.jpg\"}\n";
+        }
+
+        @Test
+        @DisplayName("✅ ingestStream: Should insert valid lines in chunks and report invalid ones")
+        void ingestStream_InsertsInChunks() throws Exception {
+                // GIVEN: Chunks of 2, 3 valid lines around a malformed one and an invalid email
+                apiClient.setRpmLimit(10);
+                ReflectionTestUtils.setField(emailRequestService, "batchMaxSize", 2);
+                String ndjson = ndjsonLine("a@example.com") + "{not json\n" + ndjsonLine("b@example.com")
+                                + ndjsonLine("invalid") + "\n" + ndjsonLine("c@example.com");
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
+
+                // WHEN
+                EmailRequestStreamResponse response = emailRequestService.ingestStream(apiClient,
+                                signedStream(ndjson, ndjson), null);
+
+                // THEN
+                assertEquals(3, response.accepted());
+                assertEquals(2, response.rejected());
+                assertEquals(1, response.errors().get(0).index());
+                assertEquals("malformed JSON", response.errors().get(0).message());
+                assertEquals(3, response.errors().get(1).index());
+
+                @SuppressWarnings("unchecked")
+                ArgumentCaptor<List<EmailRequest>> captor = ArgumentCaptor.forClass(List.class);
+                verify(repository, times(2)).insertAll(captor.capture());
+                assertEquals(2, captor.getAllValues().get(0).size());
+                assertEquals("c@example.com", captor.getAllValues().get(1).get(0).getToEmail());
+
+                // Every chunk is inserted STAGED under one ingest token, published at once after the signature check
+                EmailRequest staged = captor.getAllValues().get(1).get(0);
+                assertEquals(EmailRequestStatus.STAGED, staged.getStatus());
+                assertTrue(staged.getClaimedBy().startsWith("ingest#"));
+                assertNotNull(staged.getLeaseUntil());
+                assertEquals(staged.getClaimedBy(), captor.getAllValues().get(0).get(0).getClaimedBy());
+                verify(repository).publishStaged(staged.getClaimedBy());
+                verify(repository, never()).deleteStaged(anyString());
+                verify(emailConfigRepository, times(1)).findFirstByApiClientOrderByCreatedAtAsc(apiClient);
+                verify(metrics).recordApiRequest(apiClient.getName(), MayleoMetrics.OUTCOME_ACCEPTED, 3);
+                verify(eventPublisher).publishEvent(new EmailRequestsCreatedEvent(apiClient.getId(), 3));
+        }
+
+        @Test
+        @DisplayName("❌ ingestStream: Should fail on a tampered stream and give the quota back")
+        void ingestStream_InvalidSignature() {
+                // GIVEN: The signature was computed over a different body
+                String ndjson = ndjsonLine("a@example.com");
+                when(emailConfigRepository.findFirstByApiClientOrderByCreatedAtAsc(apiClient)).thenReturn(Optional.of(emailConfig));
+
+                // WHEN
+                MayleoException ex = assertThrows(MayleoException.class,
+                                () -> emailRequestService.ingestStream(apiClient,
+                                                signedStream(ndjson, ndjsonLine("b@example.com")), null));
+
+                // THEN: The staged rows are deleted, never published, and the single RPM token is available again
+                assertEquals(ExceptionCode.INVALID_SIGNATURE, ex.getExceptionCode());
+                verify(repository).deleteStaged(startsWith("ingest#"));
+                verify(repository, never()).publishStaged(anyString());
+                verifyNoInteractions(eventPublisher);
+                when(repository.save(any(EmailRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+                assertDoesNotThrow(() -> emailRequestService.createEmailRequest(apiClient,
+                                validBatchItem("a@example.com"), null));
+        }
+}
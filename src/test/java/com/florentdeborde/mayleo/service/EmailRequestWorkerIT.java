@@ -3,9 +3,9 @@ package com.florentdeborde.mayleo.service;
 import net.javacrumbs.shedlock.core.LockProvider;
 import net.javacrumbs.shedlock.core.SimpleLock;
 import java.util.Optional;
-import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
 import com.florentdeborde.mayleo.model.ApiClient;
 import com.florentdeborde.mayleo.model.EmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
 import com.florentdeborde.mayleo.model.EmailRequestStatus;
 import com.florentdeborde.mayleo.model.ImageSource;
 import com.florentdeborde.mayleo.repository.ApiClientRepository;
@@ -25,6 +25,7 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest(properties = "spring.main.allow-bean-definition-overriding=true")
@@ -82,7 +83,7 @@ class EmailRequestWorkerIT {
         void should_process_pending_requests() throws Exception {
                 // Given: Create a PENDING email request
                 EmailRequest pendingRequest = EmailRequest.builder()
-                                .id(UUID.randomUUID().toString())
+                                .id(EmailRequestId.next())
                                 .apiClient(testClient)
                                 .toEmail("test@example.com")
                                 .subject("Test Subject")
@@ -108,56 +109,19 @@ class EmailRequestWorkerIT {
 
                 assertThat(processedRequest.getStatus()).isEqualTo(EmailRequestStatus.SENDING);
                 assertThat(processedRequest.getProcessedAt()).isNotNull();
+                assertThat(processedRequest.getClaimedBy()).isNotNull();
+                assertThat(processedRequest.getLeaseUntil()).isAfter(processedRequest.getProcessedAt());
 
                 // Verify the email sender service was called
-                verify(emailSenderService, times(1)).sendEmail(any(EmailRequest.class), any(PostcardHtml.class));
-        }
-
-        @Test
-        @DisplayName("❌ Worker: Should mark as FAILED and increment retry count on error")
-        void should_handle_processing_errors() throws Exception {
-                // Given: Create a PENDING email request
-                EmailRequest pendingRequest = EmailRequest.builder()
-                                .id(UUID.randomUUID().toString())
-                                .apiClient(testClient)
-                                .toEmail("test@example.com")
-                                .subject("Test Subject")
-                                .message("Test Message")
-                                .imageSource(ImageSource.DEFAULT)
-                                .langCode("en")
-                                .createdAt(Instant.now())
-                                .status(EmailRequestStatus.PENDING)
-                                .retryCount(0)
-                                .build();
-                repository.save(pendingRequest);
-
-                // And: The email sender service will throw an exception
-                doThrow(new RuntimeException("SMTP connection failed"))
-                                .when(emailSenderService)
-                                .sendEmail(any(EmailRequest.class), any(PostcardHtml.class));
-
-                // When: The worker processes pending requests
-                emailRequestWorker.processPendingRequestsAutomatically();
-
-                // Then: The request should be marked as FAILED
-                entityManager.clear(); // Clear persistence context to force fresh read
-                EmailRequest failedRequest = repository.findById(pendingRequest.getId()).orElseThrow();
-
-                assertThat(failedRequest.getStatus()).isEqualTo(EmailRequestStatus.FAILED);
-                assertThat(failedRequest.getRetryCount()).isEqualTo(1);
-                assertThat(failedRequest.getErrorMessage()).contains("RuntimeException");
-                assertThat(failedRequest.getErrorMessage()).contains("SMTP connection failed");
-
-                // Verify the email sender service was called
-                verify(emailSenderService, times(1)).sendEmail(any(EmailRequest.class), any(PostcardHtml.class));
+                verify(emailSenderService, times(1)).sendEmails(anyList(), any(), any());
         }
 
         @Test
         @DisplayName("✅ Worker: Should reset emails stuck in SENDING for too long (Self-Healing)")
         void should_reset_stuck_requests() {
-                // Given: A request in SENDING state for > 5 minutes
+                // Given: A request in SENDING state whose lease expired
                 EmailRequest stuckRequest = EmailRequest.builder()
-                                .id(UUID.randomUUID().toString())
+                                .id(EmailRequestId.next())
                                 .apiClient(testClient)
                                 .toEmail("stuck@example.com")
                                 .subject("Stuck Email")
@@ -166,6 +130,8 @@ class EmailRequestWorkerIT {
                                 .langCode("en")
                                 .createdAt(Instant.now().minus(10, java.time.temporal.ChronoUnit.MINUTES))
                                 .processedAt(Instant.now().minus(10, java.time.temporal.ChronoUnit.MINUTES))
+                                .claimedBy("crashed-worker#1")
+                                .leaseUntil(Instant.now().minus(5, java.time.temporal.ChronoUnit.MINUTES))
                                 .status(EmailRequestStatus.SENDING)
                                 .retryCount(0)
                                 .build();
@@ -181,6 +147,7 @@ class EmailRequestWorkerIT {
                 assertThat(healedRequest.getStatus()).isEqualTo(EmailRequestStatus.PENDING);
                 assertThat(healedRequest.getRetryCount()).isEqualTo(1);
                 assertThat(healedRequest.getErrorMessage()).contains("Self-Healing");
+                assertThat(healedRequest.getClaimedBy()).isNull();
         }
 
         @Test
@@ -188,7 +155,7 @@ class EmailRequestWorkerIT {
         void should_delete_old_sent_requests() {
                 // Given: An old SENT request (2 days old)
                 EmailRequest oldSentRequest = EmailRequest.builder()
-                                .id(UUID.randomUUID().toString())
+                                .id(EmailRequestId.next())
                                 .apiClient(testClient)
                                 .toEmail("old@example.com")
                                 .subject("Old Email")
@@ -203,7 +170,7 @@ class EmailRequestWorkerIT {
 
                 // Given: A recent SENT request (12 hours old)
                 EmailRequest recentSentRequest = EmailRequest.builder()
-                                .id(UUID.randomUUID().toString())
+                                .id(EmailRequestId.next())
                                 .apiClient(testClient)
                                 .toEmail("recent@example.com")
                                 .subject("Recent Email")
@@ -218,7 +185,7 @@ class EmailRequestWorkerIT {
 
                 // Given: An old FAILED request (2 days old)
                 EmailRequest oldFailedRequest = EmailRequest.builder()
-                                .id(UUID.randomUUID().toString())
+                                .id(EmailRequestId.next())
                                 .apiClient(testClient)
                                 .toEmail("failed@example.com")
                                 .subject("Failed Email")
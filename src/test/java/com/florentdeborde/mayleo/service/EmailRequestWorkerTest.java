@@ -1,33 +1,48 @@
 package com.florentdeborde.mayleo.service;
 
-import com.florentdeborde.mayleo.dto.internal.Postcard;
-import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
-import com.florentdeborde.mayleo.model.ApiClient;
-import com.florentdeborde.mayleo.model.EmailRequest;
-import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.config.RecipientDomainProperties;
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.model.EmailConfig;
+import com.florentdeborde.mayleo.model.EmailProvider;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
 import com.florentdeborde.mayleo.repository.EmailRequestRepository;
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Method;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("Unit Test - EmailRequestWorker")
@@ -36,151 +51,403 @@ class EmailRequestWorkerTest {
         @Mock
         private EmailRequestRepository repository;
         @Mock
+        private EmailRequestClaimer claimer;
+        @Mock
         private EmailSenderService emailSenderService;
         @Mock
-        private PostcardRenderer postcardRenderer;
+        private ClaimSizer claimSizer;
+        @Mock
+        private MayleoMetrics metrics;
+        @Mock
+        private RetentionPurger retentionPurger;
+        @Mock
+        private SmtpHostLimiter hostLimiter;
+        @Mock
+        private ClientCircuitBreaker circuitBreaker;
+        @Mock
+        private SmtpAccountPacer pacer;
+        @Mock
+        private RecipientDomainThrottle domainThrottle;
+        @Mock
+        private RecipientDomainProperties domainProperties;
+        @Mock
+        private SendingAccountRouter accountRouter;
 
         @InjectMocks
         private EmailRequestWorker emailRequestWorker;
 
-        private ApiClient apiClient;
-
         @BeforeEach
         void setUp() {
-                apiClient = ApiClient.builder()
-                                .id("client-123")
-                                .name("Test Client")
-                                .enabled(true)
-                                .dailyQuota(24)
-                                .rpmLimit(1)
-                                .build();
+                ReflectionTestUtils.setField(emailRequestWorker, "recoveryChunkSize", 2);
+                ReflectionTestUtils.setField(emailRequestWorker, "sendGroupSize", 2);
+                lenient().when(circuitBreaker.acquire(anyString())).thenReturn(ClientCircuitBreaker.Decision.ALLOW);
+                lenient().when(domainThrottle.admit(anyList())).thenAnswer(invocation ->
+                                new RecipientDomainThrottle.Admission(invocation.getArgument(0), List.of(), Map.of()));
+                lenient().when(accountRouter.rank(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+                lenient().when(pacer.acquire(any(), anyInt())).thenAnswer(invocation ->
+                                new SmtpAccountPacer.Grant(invocation.getArgument(1), null));
         }
 
         @Test
-        @DisplayName("✅ processPendingRequestsAutomatically: Should delegate rendering and simplified dispatch")
+        @DisplayName("✅ processPendingRequestsAutomatically: Should hand claimed requests to the async sender")
         void processPendingRequestsAutomatically_Success() {
                 // GIVEN
-                EmailRequest request = EmailRequest.builder()
-                                .id("req-123")
-                                .status(EmailRequestStatus.SENDING)
-                                .apiClient(apiClient)
-                                .langCode("en")
-                                .build();
+                ClaimedEmailRequest request = claimed("owner#1");
+
+                when(claimSizer.nextBatchSize()).thenReturn(100);
+                when(claimer.claimBatch(anyString(), eq(100))).thenReturn(List.of(request));
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
 
-                PostcardHtml mockHtml = new PostcardHtml("<html></html>", new Postcard("img.jpg", true));
+                // THEN: Rendering happens on the executor, nothing is written from the worker thread
+                verify(emailSenderService).sendEmails(List.of(request), null, null);
+                verify(repository, never()).save(any());
+                verify(repository, never()).releaseClaims(anyCollection(), anyString());
+        }
 
-                when(repository.lockBatchForSending(any(Instant.class), anyString(), eq(100))).thenReturn(1);
-                when(repository.findByStatusAndErrorMessage(eq(EmailRequestStatus.SENDING), anyString()))
-                                .thenReturn(List.of(request));
-                when(postcardRenderer.render(eq(request), anyString())).thenReturn(mockHtml);
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should do nothing when no request is claimed")
+        void processPendingRequestsAutomatically_NothingClaimed() {
+                // GIVEN
+                when(claimSizer.nextBatchSize()).thenReturn(100);
+                when(claimer.claimBatch(anyString(), eq(100))).thenReturn(Collections.emptyList());
 
                 // WHEN
                 emailRequestWorker.processPendingRequestsAutomatically();
 
                 // THEN
-                verify(postcardRenderer).render(request, "From Mayleo");
-                verify(emailSenderService).sendEmail(request, mockHtml);
-                assertEquals(EmailRequestStatus.SENDING, request.getStatus());
-                verify(repository).save(request);
+                verify(emailSenderService, never()).sendEmails(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should not claim anything while the executor is saturated")
+        void processPendingRequestsAutomatically_ExecutorSaturated() {
+                // GIVEN
+                when(claimSizer.nextBatchSize()).thenReturn(0);
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: Rows stay PENDING, the sizer knows a backlog may be waiting
+                verify(claimer, never()).claimBatch(anyString(), anyInt());
+                verify(claimSizer).recordClaim(0, 0);
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should claim again right away after a full claim")
+        void processPendingRequestsAutomatically_FullClaimLoops() {
+                // GIVEN: A first full claim of 2, then capacity for 5 but only 1 row left
+                ClaimedEmailRequest first = claimed("owner#1");
+                ClaimedEmailRequest second = claimed("owner#1");
+                ClaimedEmailRequest third = claimed("owner#2");
+                when(claimSizer.nextBatchSize()).thenReturn(2, 5);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(first, second));
+                when(claimer.claimBatch(anyString(), eq(5))).thenReturn(List.of(third));
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: The partial claim ends the run
+                verify(emailSenderService).sendEmails(List.of(first, second), null, null);
+                verify(emailSenderService).sendEmails(List.of(third), null, null);
+                verify(claimSizer).recordClaim(2, 2);
+                verify(claimSizer).recordClaim(5, 1);
+                verify(claimSizer, times(2)).nextBatchSize();
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should hand requests over in capped groups per client")
+        void processPendingRequestsAutomatically_GroupsByClient() {
+                // GIVEN: Interleaved claim of two clients, groups of 2
+                ClaimedEmailRequest a1 = claimed("owner#1", "client-a");
+                ClaimedEmailRequest b1 = claimed("owner#1", "client-b");
+                ClaimedEmailRequest a2 = claimed("owner#1", "client-a");
+                ClaimedEmailRequest a3 = claimed("owner#1", "client-a");
+                when(claimSizer.nextBatchSize()).thenReturn(10);
+                when(claimer.claimBatch(anyString(), eq(10))).thenReturn(List.of(a1, b1, a2, a3));
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: One send per group, in claim order
+                InOrder inOrder = inOrder(emailSenderService);
+                inOrder.verify(emailSenderService).sendEmails(List.of(a1, a2), null, null);
+                inOrder.verify(emailSenderService).sendEmails(List.of(b1), null, null);
+                inOrder.verify(emailSenderService).sendEmails(List.of(a3), null, null);
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should leave the requests of a saturated SMTP host PENDING")
+        void processPendingRequestsAutomatically_HostSaturated() {
+                // GIVEN: client-a sends through a host whose bulkhead is full
+                ClaimedEmailRequest slow = claimed("owner#1", "client-a");
+                ClaimedEmailRequest other = claimed("owner#1", "client-b");
+                when(claimSizer.nextBatchSize()).thenReturn(2);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(slow, other));
+                EmailConfig slowAccount = account("account-a");
+                EmailConfig otherAccount = account("account-b");
+                when(emailSenderService.findAccounts("client-a")).thenReturn(List.of(slowAccount));
+                when(emailSenderService.findAccounts("client-b")).thenReturn(List.of(otherAccount));
+                when(emailSenderService.resolveHost(slowAccount)).thenReturn("smtp.slow.com");
+                when(emailSenderService.resolveHost(otherAccount)).thenReturn("smtp.other.com");
+                when(hostLimiter.tryAdmit("smtp.slow.com")).thenReturn(false);
+                when(hostLimiter.tryAdmit("smtp.other.com")).thenReturn(true);
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: The other host is served, the slow one's claims are handed back and not claimed again
+                verify(emailSenderService).sendEmails(List.of(other), otherAccount, "smtp.other.com");
+                verify(emailSenderService, never()).sendEmails(eq(List.of(slow)), any(), any());
+                verify(repository).releaseClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids)).equals(List.of(slow.id()))),
+                                eq("owner#1"));
+                verify(claimSizer, times(1)).nextBatchSize();
         }
 
         @Test
-        @DisplayName("❌ processPendingRequestsAutomatically: Should mark as FAILED if rendering or dispatch fails")
-        void processPendingRequestsAutomatically_Failure() {
+        @DisplayName("✅ processPendingRequestsAutomatically: Should defer the claims of a client whose circuit is open")
+        void processPendingRequestsAutomatically_CircuitOpen() {
                 // GIVEN
-                EmailRequest request = EmailRequest.builder()
-                                .id("fail")
-                                .status(EmailRequestStatus.SENDING)
-                                .apiClient(apiClient)
-                                .retryCount(0)
-                                .build();
+                ClaimedEmailRequest failing = claimed("owner#1", "client-a");
+                ClaimedEmailRequest healthy = claimed("owner#1", "client-b");
+                Instant retryAt = Instant.now().plusSeconds(60);
+                when(claimSizer.nextBatchSize()).thenReturn(2);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(failing, healthy), List.of());
+                when(circuitBreaker.acquire("client-a")).thenReturn(ClientCircuitBreaker.Decision.REJECT);
+                when(circuitBreaker.retryAt("client-a")).thenReturn(retryAt);
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
 
-                when(repository.lockBatchForSending(any(Instant.class), anyString(), eq(100))).thenReturn(1);
-                when(repository.findByStatusAndErrorMessage(eq(EmailRequestStatus.SENDING), anyString()))
-                                .thenReturn(List.of(request));
+                // THEN: Not claimable before the circuit may close, no retry counted, the other client is sent
+                verify(repository).deferClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids)).equals(List.of(failing.id()))),
+                                eq("owner#1"), eq(retryAt), anyString());
+                verify(emailSenderService).sendEmails(List.of(healthy), null, null);
+                verify(emailSenderService, never()).sendEmails(eq(List.of(failing)), any(), any());
+                verify(metrics).recordCircuitDeferred("client-a", 1);
+        }
 
-                when(postcardRenderer.render(any(), any())).thenThrow(new RuntimeException("Render error"));
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should only send a probe while the circuit is half-open")
+        void processPendingRequestsAutomatically_CircuitProbe() {
+                // GIVEN
+                ClaimedEmailRequest probe = claimed("owner#1", "client-a");
+                ClaimedEmailRequest waiting = claimed("owner#1", "client-a");
+                Instant retryAt = Instant.now().plusSeconds(60);
+                when(claimSizer.nextBatchSize()).thenReturn(2);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(probe, waiting), List.of());
+                when(circuitBreaker.acquire("client-a")).thenReturn(ClientCircuitBreaker.Decision.PROBE);
+                when(circuitBreaker.retryAt("client-a")).thenReturn(retryAt);
 
                 // WHEN
                 emailRequestWorker.processPendingRequestsAutomatically();
 
                 // THEN
-                assertEquals(EmailRequestStatus.FAILED, request.getStatus());
-                assertTrue(request.getErrorMessage().contains("Render error"));
-                assertEquals(1, request.getRetryCount());
-                verify(repository, org.mockito.Mockito.times(2)).save(request);
+                verify(emailSenderService).sendEmails(List.of(probe), null, null);
+                verify(repository).deferClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids)).equals(List.of(waiting.id()))),
+                                eq("owner#1"), eq(retryAt), anyString());
         }
 
         @Test
-        @DisplayName("✅ processPendingRequestsAutomatically: Check ShedLock annotation presence")
-        void processPendingRequestsAutomatically_shouldHaveShedLockAnnotation() throws NoSuchMethodException {
+        @DisplayName("✅ processPendingRequestsAutomatically: Should defer what the SMTP account's send rate does not allow yet")
+        void processPendingRequestsAutomatically_Paced() {
+                // GIVEN: One token left for the account of client-123
+                ClaimedEmailRequest first = claimed("owner#1");
+                ClaimedEmailRequest second = claimed("owner#1");
+                EmailConfig config = EmailConfig.builder().provider(EmailProvider.MICROSOFT).build();
+                Instant tokenAt = Instant.now().plusSeconds(2);
+                when(claimSizer.nextBatchSize()).thenReturn(2);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(first, second), List.of());
+                when(emailSenderService.findAccounts("client-123")).thenReturn(List.of(config));
+                when(pacer.acquire(config, 2)).thenReturn(new SmtpAccountPacer.Grant(1, tokenAt));
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: No thread waits for the token, the request is not claimable before it
+                verify(emailSenderService).sendEmails(List.of(first), config, null);
+                verify(repository).deferClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids)).equals(List.of(second.id()))),
+                                eq("owner#1"), eq(tokenAt), eq("Deferred: SMTP account send rate"));
+                verify(metrics).recordSmtpPacingDeferred("client-123", 1);
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should spill a group over the client's next account when the first runs out of tokens")
+        void processPendingRequestsAutomatically_RoutedOverAccounts() {
+                // GIVEN: The least loaded account has one token left, the other has plenty
+                ClaimedEmailRequest first = claimed("owner#1");
+                ClaimedEmailRequest second = claimed("owner#1");
+                EmailConfig busy = account("account-1");
+                EmailConfig spare = account("account-2");
+                when(claimSizer.nextBatchSize()).thenReturn(2);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(first, second), List.of());
+                when(emailSenderService.findAccounts("client-123")).thenReturn(List.of(spare, busy));
+                when(accountRouter.rank(List.of(spare, busy))).thenReturn(List.of(busy, spare));
+                when(pacer.acquire(busy, 2)).thenReturn(new SmtpAccountPacer.Grant(1, Instant.now().plusSeconds(2)));
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: Nothing deferred, each account counts what it was handed
+                verify(emailSenderService).sendEmails(List.of(first), busy, null);
+                verify(emailSenderService).sendEmails(List.of(second), spare, null);
+                verify(accountRouter).dispatched(busy, 1);
+                verify(accountRouter).dispatched(spare, 1);
+                verify(repository, never()).deferClaims(anyCollection(), anyString(), any(), anyString());
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should hold back busy recipient domains and defer paced ones")
+        void processPendingRequestsAutomatically_DomainThrottled() {
+                // GIVEN: One request admitted, one to a domain at its concurrency limit, one to a domain out of tokens
+                ReflectionTestUtils.setField(emailRequestWorker, "sendGroupSize", 3);
+                ClaimedEmailRequest admitted = claimed("owner#1");
+                ClaimedEmailRequest busy = claimed("owner#1");
+                ClaimedEmailRequest paced = claimed("owner#1");
+                Instant tokenAt = Instant.now().plusSeconds(5);
+                when(claimSizer.nextBatchSize()).thenReturn(3);
+                when(claimer.claimBatch(anyString(), eq(3))).thenReturn(List.of(admitted, busy, paced));
+                when(domainThrottle.admit(List.of(admitted, busy, paced))).thenReturn(new RecipientDomainThrottle.Admission(
+                                List.of(admitted), List.of(busy), Map.of(tokenAt, List.of(paced))));
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: Busy stays claimable, paced waits for its domain's token, no further claim
+                verify(emailSenderService).sendEmails(List.of(admitted), null, null);
+                verify(repository).releaseClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids)).equals(List.of(busy.id()))),
+                                eq("owner#1"));
+                verify(repository).deferClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids)).equals(List.of(paced.id()))),
+                                eq("owner#1"), eq(tokenAt), eq("Deferred: recipient domain send rate"));
+                verify(metrics).recordRecipientDomainDeferred("default", 1);
+                verify(claimSizer, times(1)).nextBatchSize();
+        }
+
+        @Test
+        @DisplayName("♻ processPendingRequestsAutomatically: Should give back the domain slots of a group its SMTP host holds back")
+        void processPendingRequestsAutomatically_DomainSlotsCancelled() {
+                // GIVEN
+                ClaimedEmailRequest request = claimed("owner#1");
+                when(claimSizer.nextBatchSize()).thenReturn(2);
+                when(claimer.claimBatch(anyString(), eq(2))).thenReturn(List.of(request));
+                EmailConfig account = account("account-1");
+                when(emailSenderService.findAccounts("client-123")).thenReturn(List.of(account));
+                when(emailSenderService.resolveHost(account)).thenReturn("smtp.test.com");
+                when(hostLimiter.tryAdmit("smtp.test.com")).thenReturn(false);
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN
+                verify(domainThrottle).cancel(List.of(request));
+                verify(pacer).refund(account, 1);
+                verify(emailSenderService, never()).sendEmails(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("❌ processPendingRequestsAutomatically: Should release the remaining claims when the executor rejects a task")
+        void processPendingRequestsAutomatically_TaskRejected() {
+                // GIVEN: The second group is rejected
+                ClaimedEmailRequest first = claimed("owner#1", "client-a");
+                ClaimedEmailRequest second = claimed("owner#1", "client-b");
+                ClaimedEmailRequest third = claimed("owner#1", "client-c");
+                when(claimSizer.nextBatchSize()).thenReturn(3);
+                when(claimer.claimBatch(anyString(), eq(3))).thenReturn(List.of(first, second, third));
+                doNothing().doThrow(new TaskRejectedException("queue full"))
+                                .when(emailSenderService).sendEmails(any(), any(), any());
+
+                // WHEN
+                emailRequestWorker.processPendingRequestsAutomatically();
+
+                // THEN: Back to PENDING without a retry being counted, and no further claim
+                verify(repository).releaseClaims(
+                                argThat(ids -> EmailRequestId.fromBytes(new ArrayList<>(ids))
+                                                .equals(List.of(second.id(), third.id()))),
+                                eq("owner#1"));
+                verify(repository, never()).save(any());
+                verify(emailSenderService, times(2)).sendEmails(any(), any(), any());
+                verify(claimSizer, times(1)).nextBatchSize();
+        }
+
+        @Test
+        @DisplayName("✅ processPendingRequestsAutomatically: Should run on every instance (no ShedLock)")
+        void processPendingRequestsAutomatically_shouldNotHaveShedLockAnnotation() throws NoSuchMethodException {
                 // GIVEN: Retrieve the method from the worker class
                 Method method = EmailRequestWorker.class.getDeclaredMethod("processPendingRequestsAutomatically");
 
                 // WHEN: Look for the @SchedulerLock annotation
                 SchedulerLock annotation = method.getAnnotation(SchedulerLock.class);
 
-                // THEN: Ensure the annotation is present and correctly configured
+                // THEN: Claiming relies on SKIP LOCKED, a global lock would serialize instances
                 assertThat(annotation)
-                                .as("@SchedulerLock annotation is missing on the method")
-                                .isNotNull();
-
-                assertThat(annotation.name())
-                                .as("The lock name must match the service and method name")
-                                .isEqualTo("EmailRequestService_processPendingEmails");
-
-                assertThat(annotation.lockAtMostFor())
-                                .as("lockAtMostFor must be defined to prevent deadlocks")
-                                .isNotBlank();
+                                .as("@SchedulerLock would prevent instances from claiming concurrently")
+                                .isNull();
         }
 
         @Test
-        @DisplayName("✅ cleanupStuckRequests: Should reset stuck SENDING requests to PENDING")
+        @DisplayName("✅ cleanupStuckRequests: Should re-queue stuck SENDING requests by chunks")
         void cleanupStuckRequests_Success() {
-                // GIVEN: 2 requests stuck in SENDING for more than 5 minutes
-                EmailRequest stuck1 = EmailRequest.builder()
-                                .id("stuck-1")
-                                .status(EmailRequestStatus.SENDING)
-                                .retryCount(0)
-                                .build();
-
-                EmailRequest stuck2 = EmailRequest.builder()
-                                .id("stuck-2")
-                                .status(EmailRequestStatus.SENDING)
-                                .retryCount(1)
-                                .build();
-
-                when(repository.findByStatusAndProcessedAtBefore(eq(EmailRequestStatus.SENDING), any(Instant.class)))
-                                .thenReturn(List.of(stuck1, stuck2));
+                // GIVEN: 3 requests stuck in SENDING with an expired lease, chunks of 2
+                byte[] stuck1 = EmailRequestId.toBytes(EmailRequestId.next());
+                byte[] stuck2 = EmailRequestId.toBytes(EmailRequestId.next());
+                byte[] stuck3 = EmailRequestId.toBytes(EmailRequestId.next());
+                when(repository.findExpiredLeaseIds(any(Instant.class), eq(2)))
+                                .thenReturn(List.of(stuck1, stuck2), List.of(stuck3));
+                when(repository.requeueExpiredLeases(anyCollection(), any(Instant.class), anyString()))
+                                .thenReturn(2, 1);
 
                 // WHEN
                 emailRequestWorker.cleanupStuckRequests();
 
-                // THEN: Verify status reset, retry count incremented and error message set
-                assertEquals(EmailRequestStatus.PENDING, stuck1.getStatus());
-                assertEquals(1, stuck1.getRetryCount());
-                assertEquals("Self-Healing: Reset from SENDING (Stuck)", stuck1.getErrorMessage());
+                // THEN: One UPDATE per chunk, no entity loaded or saved
+                verify(repository).requeueExpiredLeases(eq(List.of(stuck1, stuck2)), any(Instant.class),
+                                eq("Self-Healing: Reset from SENDING (Stuck)"));
+                verify(repository).requeueExpiredLeases(eq(List.of(stuck3)), any(Instant.class),
+                                eq("Self-Healing: Reset from SENDING (Stuck)"));
+                verify(repository, never()).save(any());
+                verify(metrics).recordStuckRecovery(3);
+        }
 
-                assertEquals(EmailRequestStatus.PENDING, stuck2.getStatus());
-                assertEquals(2, stuck2.getRetryCount());
+        @Test
+        @DisplayName("♻ cleanupStuckRequests: Should delete rows left STAGED by an unfinished stream ingest")
+        void cleanupStuckRequests_DeletesExpiredStaged() {
+                // GIVEN: 3 staged rows past their expiry, chunks of 2
+                byte[] staged1 = EmailRequestId.toBytes(EmailRequestId.next());
+                byte[] staged2 = EmailRequestId.toBytes(EmailRequestId.next());
+                byte[] staged3 = EmailRequestId.toBytes(EmailRequestId.next());
+                when(repository.findExpiredStagedIds(any(Instant.class), eq(2)))
+                                .thenReturn(List.of(staged1, staged2), List.of(staged3));
+                when(repository.deleteStagedByIds(anyCollection())).thenReturn(2, 1);
 
-                // Verify they were saved back to repository
-                verify(repository).save(stuck1);
-                verify(repository).save(stuck2);
+                // WHEN
+                emailRequestWorker.cleanupStuckRequests();
+
+                // THEN: One DELETE per chunk, nothing re-queued
+                verify(repository).deleteStagedByIds(List.of(staged1, staged2));
+                verify(repository).deleteStagedByIds(List.of(staged3));
+                verify(repository, never()).requeueExpiredLeases(anyCollection(), any(), any());
+                verifyNoInteractions(metrics);
         }
 
         @Test
         @DisplayName("✅ cleanupStuckRequests: Should do nothing if no stuck requests found")
         void cleanupStuckRequests_NoStuckRequests() {
                 // GIVEN
-                when(repository.findByStatusAndProcessedAtBefore(eq(EmailRequestStatus.SENDING), any(Instant.class)))
-                                .thenReturn(Collections.emptyList());
+                when(repository.findExpiredLeaseIds(any(Instant.class), eq(2))).thenReturn(Collections.emptyList());
 
                 // WHEN
                 emailRequestWorker.cleanupStuckRequests();
 
                 // THEN
-                verify(repository, never()).save(any());
+                verify(repository, never()).requeueExpiredLeases(anyCollection(), any(), any());
+                verifyNoInteractions(metrics);
         }
 
         @Test
@@ -205,16 +472,16 @@ class EmailRequestWorkerTest {
         }
 
         @Test
-        @DisplayName("✅ deleteOldRequests: Should delegate deletion to the repository with a cutoff of 30 days and status SENT")
+        @DisplayName("✅ deleteOldRequests: Should delegate the chunked purge to the RetentionPurger")
         void deleteOldRequests_Success() {
                 // GIVEN
-                when(repository.deleteOldRequests(any(Instant.class), eq(EmailRequestStatus.SENT))).thenReturn(5);
+                when(retentionPurger.purge()).thenReturn(5);
 
                 // WHEN
                 emailRequestWorker.deleteOldRequests();
 
                 // THEN
-                verify(repository).deleteOldRequests(any(Instant.class), eq(EmailRequestStatus.SENT));
+                verify(retentionPurger).purge();
         }
 
         @Test
@@ -232,4 +499,18 @@ class EmailRequestWorkerTest {
                 assertThat(annotation.lockAtMostFor()).isEqualTo("10m");
                 assertThat(annotation.lockAtLeastFor()).isEqualTo("1m");
         }
+
+        private EmailConfig account(String id) {
+                return EmailConfig.builder().id(id).provider(EmailProvider.SMTP).weight(1).build();
+        }
+
+        private ClaimedEmailRequest claimed(String claimedBy) {
+                return claimed(claimedBy, "client-123");
+        }
+
+        private ClaimedEmailRequest claimed(String claimedBy, String clientId) {
+                Instant now = Instant.now();
+                return new ClaimedEmailRequest(EmailRequestId.next(), clientId, "to@example.com", "example.com", "en", "Subject",
+                                "Message", null, 0, now, now, claimedBy);
+        }
 }
@@ -4,24 +4,32 @@ import com.florentdeborde.mayleo.dto.internal.Postcard;
 import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
 import com.florentdeborde.mayleo.metrics.MayleoMetrics;
 import com.florentdeborde.mayleo.model.*;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
 import com.florentdeborde.mayleo.repository.EmailConfigRepository;
-import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import com.florentdeborde.mayleo.repository.DispatchOutcome;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Optional;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import static org.hibernate.validator.internal.util.Contracts.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -32,43 +40,54 @@ class EmailSenderServiceTest {
     @Mock
     private MailSenderFactory mailSenderFactory;
     @Mock
-    private EmailRequestRepository emailRequestRepository;
+    private EmailStatusWriter statusWriter;
     @Mock
     private EmailConfigRepository emailConfigRepository;
     @Mock
     private JavaMailSender mockMailSender;
     @Mock
     private MayleoMetrics metrics;
+    @Mock
+    private ClaimSizer claimSizer;
+    @Mock
+    private RetryBackoff retryBackoff;
+    @Mock
+    private PostcardRenderer postcardRenderer;
+    @Mock
+    private SmtpHostLimiter hostLimiter;
+    @Mock
+    private ClientCircuitBreaker circuitBreaker;
+    @Mock
+    private RecipientDomainThrottle domainThrottle;
+    @Mock
+    private SendingAccountRouter accountRouter;
 
     @InjectMocks
     private EmailSenderService emailSenderService;
 
-    private EmailRequest request;
+    private ClaimedEmailRequest request;
     private PostcardHtml postcardHtml;
     private EmailConfig emailConfig;
 
-    private final String REQUEST_ID = "req-123";
+    private final UUID REQUEST_ID = EmailRequestId.next();
     private final String CLIENT_ID = "client-789";
     private final int MAX_RETRIES = 3;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         ReflectionTestUtils.setField(emailSenderService, "maxRetries", MAX_RETRIES);
 
         ApiClient apiClient = ApiClient.builder().id(CLIENT_ID).build();
 
-        request = EmailRequest.builder()
-                .id(REQUEST_ID)
-                .apiClient(apiClient)
-                .toEmail("recipient@example.com")
-                .subject("Hello")
-                .retryCount(0)
-                .status(EmailRequestStatus.SENDING)
-                .build();
+        request = claimed(0, "owner#1");
 
         postcardHtml = new PostcardHtml("<html></html>", new Postcard("path/to/img.jpg", true));
+        lenient().when(postcardRenderer.render(any(), anyString())).thenReturn(postcardHtml);
+        lenient().when(mailSenderFactory.resolveHost(any())).thenReturn("smtp.test.com");
+        lenient().when(hostLimiter.tryAcquire("smtp.test.com")).thenReturn(true);
 
         emailConfig = EmailConfig.builder()
+                .id("account-1")
                 .apiClient(apiClient)
                 .senderEmail("sender@client.com")
                 .provider(EmailProvider.SMTP)
@@ -81,73 +100,262 @@ class EmailSenderServiceTest {
     }
 
     @Test
-    @DisplayName("✅ sendEmail: Should send successfully and update status to SENT")
+    @DisplayName("✅ sendEmails: Should send successfully and update status to SENT")
     void sendEmail_Success_ShouldUpdateStatusToSent() {
         // GIVEN
         MimeMessage mockMimeMessage = mock(MimeMessage.class);
 
-        when(emailConfigRepository.findByApiClient(any())).thenReturn(Optional.of(emailConfig));
         when(mailSenderFactory.getSender(eq(CLIENT_ID), eq(emailConfig))).thenReturn(mockMailSender);
         when(mockMailSender.createMimeMessage()).thenReturn(mockMimeMessage);
-        when(emailRequestRepository.findById(REQUEST_ID)).thenReturn(Optional.of(request));
 
         // WHEN
-        emailSenderService.sendEmail(request, postcardHtml);
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN
+        verify(mockMailSender).send(any(MimeMessage[].class));
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.SENT
+                && outcome.requestId().equals(REQUEST_ID)));
+        verify(metrics).recordEmailDelivery(MayleoMetrics.STATUS_SENT);
+        verify(circuitBreaker).recordSuccess(CLIENT_ID);
+        verify(metrics).recordAccountDelivery(CLIENT_ID, "account-1", MayleoMetrics.STATUS_SENT, 1);
+        verify(accountRouter).recordSuccess(emailConfig);
+        verify(accountRouter).completed(emailConfig, 1);
+    }
+
+    @Test
+    @DisplayName("✅ sendEmails: Should send a group in one call and write back each outcome")
+    void sendEmails_Group_ShouldSendOnce() throws Exception {
+        // GIVEN
+        ClaimedEmailRequest first = claimed(EmailRequestId.next(), 0);
+        ClaimedEmailRequest second = claimed(EmailRequestId.next(), 0);
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class), mock(MimeMessage.class));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(first, second), emailConfig, null);
+
+        // THEN: One SMTP host slot and one send for the group, one outcome per request
+        verify(mockMailSender).send(any(MimeMessage.class), any(MimeMessage.class));
+        verify(hostLimiter).tryAcquire("smtp.test.com");
+        verify(hostLimiter).release("smtp.test.com");
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.SENT
+                && outcome.requestId().equals(first.id())));
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.SENT
+                && outcome.requestId().equals(second.id())));
+        verify(claimSizer).recordSendLatency(anyLong());
+    }
+
+    @Test
+    @DisplayName("❌ sendEmails: Should only reschedule the messages of a group the server rejected")
+    void sendEmails_GroupPartialFailure_ShouldReportEachOutcome() {
+        // GIVEN: The second message is rejected
+        ClaimedEmailRequest first = claimed(EmailRequestId.next(), 0);
+        ClaimedEmailRequest second = claimed(EmailRequestId.next(), 0);
+        MimeMessage rejected = mock(MimeMessage.class);
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class), rejected);
+        when(retryBackoff.nextAttemptAt(eq(1), any())).thenReturn(Instant.now().plusSeconds(30));
+        doThrow(new MailSendException(Map.<Object, Exception>of(rejected, new SendFailedException("550 No such user"))))
+                .when(mockMailSender).send(any(MimeMessage[].class));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(first, second), emailConfig, null);
 
         // THEN
-        verify(mockMailSender).send(any(MimeMessage.class));
-        verify(emailRequestRepository).save(argThat(req -> req.getStatus() == EmailRequestStatus.SENT));
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.SENT
+                && outcome.requestId().equals(first.id())));
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.PENDING
+                && outcome.requestId().equals(second.id()) && outcome.retryCount() == 1));
         verify(metrics).recordEmailDelivery(MayleoMetrics.STATUS_SENT);
+        verify(metrics).recordEmailDelivery(MayleoMetrics.STATUS_FAILED);
+        verify(circuitBreaker).recordSuccess(CLIENT_ID);
+    }
+
+    @Test
+    @DisplayName("✅ sendEmails: Should not count rejected recipients as a failure of the client's account")
+    void sendEmails_RecipientRejected_KeepsCircuitClosed() {
+        // GIVEN
+        MimeMessage rejected = mock(MimeMessage.class);
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(rejected);
+        doThrow(new MailSendException(Map.<Object, Exception>of(rejected, new SendFailedException("550 No such user"))))
+                .when(mockMailSender).send(any(MimeMessage[].class));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN
+        verify(circuitBreaker).recordSuccess(CLIENT_ID);
+        verify(circuitBreaker, never()).recordFailure(anyString());
+    }
+
+    @Test
+    @DisplayName("♻ sendEmails: Should leave the SMTP host bulkhead and the recipient domain slots of the group")
+    void sendEmails_LeavesBulkhead() {
+        // GIVEN: The client has no sending account, the send fails
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), null, "smtp.test.com");
+
+        // THEN: Left anyway
+        verify(hostLimiter).leave("smtp.test.com");
+        verify(domainThrottle).release(List.of(request));
+        verifyNoInteractions(accountRouter);
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.PENDING));
+    }
+
+    @Test
+    @DisplayName("✅ findAccounts: Should load the client's sending accounts once, or none without a configuration")
+    void findAccounts_FromConfig() {
+        // GIVEN
+        EmailConfig second = EmailConfig.builder().id("account-2").build();
+        when(emailConfigRepository.findByApiClientIdOrderByCreatedAtAsc(CLIENT_ID)).thenReturn(List.of(emailConfig, second));
+        when(emailConfigRepository.findByApiClientIdOrderByCreatedAtAsc("unknown")).thenReturn(List.of());
+
+        // WHEN & THEN
+        assertEquals(List.of(emailConfig, second), emailSenderService.findAccounts(CLIENT_ID));
+        assertEquals(List.of(emailConfig, second), emailSenderService.findAccounts(CLIENT_ID));
+        assertTrue(emailSenderService.findAccounts("unknown").isEmpty(), "No account without a configuration");
+        verify(emailConfigRepository, times(1)).findByApiClientIdOrderByCreatedAtAsc(CLIENT_ID);
+        assertEquals("smtp.test.com", emailSenderService.resolveHost(emailConfig));
+    }
+
+    @Test
+    @DisplayName("✅ sendEmails: Should render the postcard on the sender thread")
+    void sendEmail_RendersBeforeSending() {
+        // GIVEN
+        request = claimed(0, "owner#1");
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN
+        verify(postcardRenderer).render(request, "From Mayleo");
+        verify(mockMailSender).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    @DisplayName("❌ sendEmails: Should mark as FAILED without retry if rendering fails")
+    void sendEmail_RenderFailure_ShouldMarkAsFailed() {
+        // GIVEN
+        when(postcardRenderer.render(any(), anyString())).thenThrow(new RuntimeException("Render error"));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN: Written back like a send outcome, fenced on the claim, nothing sent
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.FAILED
+                && outcome.errorMessage().contains("Render error")
+                && outcome.retryCount() == 1
+                && outcome.nextAttemptAt() == null
+                && "owner#1".equals(outcome.claimedBy())));
+        verifyNoInteractions(mailSenderFactory, retryBackoff);
+        verify(claimSizer).recordSendLatency(anyLong());
     }
 
     @Test
-    @DisplayName("❌ sendEmail: Should reschedule to PENDING on failure if retries remain")
+    @DisplayName("✅ sendEmails: Should hold an SMTP host slot only while sending")
+    void sendEmail_HostSlotReleased() throws Exception {
+        // GIVEN
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
+        doThrow(new RuntimeException("SMTP Connection Error")).when(mockMailSender).send(any(MimeMessage[].class));
+        when(retryBackoff.nextAttemptAt(eq(1), any())).thenReturn(Instant.now().plusSeconds(30));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN: Released even though the send failed
+        InOrder inOrder = inOrder(hostLimiter, mockMailSender);
+        inOrder.verify(hostLimiter).tryAcquire("smtp.test.com");
+        inOrder.verify(mockMailSender).send(any(MimeMessage[].class));
+        inOrder.verify(hostLimiter).release("smtp.test.com");
+    }
+
+    @Test
+    @DisplayName("✅ sendEmails: Should defer without counting a retry when the SMTP host has no free slot")
+    void sendEmail_HostBusy_ShouldDefer() throws Exception {
+        // GIVEN
+        request = claimed(1, "owner#1");
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
+        when(hostLimiter.tryAcquire("smtp.test.com")).thenReturn(false);
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN: Claimable again right away, with its retry count unchanged
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.PENDING
+                && outcome.retryCount() == 1 && outcome.nextAttemptAt() != null));
+        verify(mockMailSender, never()).send(any(MimeMessage[].class));
+        verify(hostLimiter, never()).release(anyString());
+        verify(metrics).recordSmtpSendDeferred("smtp.test.com");
+        verifyNoInteractions(retryBackoff);
+    }
+
+    @Test
+    @DisplayName("❌ sendEmails: Should reschedule to PENDING on failure if retries remain")
     void sendEmail_Failure_ShouldReschedule() {
         // GIVEN
-        when(emailConfigRepository.findByApiClient(any())).thenReturn(Optional.of(emailConfig));
         when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
         when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
-        when(emailRequestRepository.findById(REQUEST_ID)).thenReturn(Optional.of(request));
+        Instant backoff = Instant.now().plusSeconds(30);
+        when(retryBackoff.nextAttemptAt(eq(1), any())).thenReturn(backoff);
 
-        doThrow(new RuntimeException("SMTP Connection Error")).when(mockMailSender).send(any(MimeMessage.class));
+        doThrow(new RuntimeException("SMTP Connection Error")).when(mockMailSender).send(any(MimeMessage[].class));
 
         // WHEN
-        emailSenderService.sendEmail(request, postcardHtml);
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
 
-        // THEN
-        verify(emailRequestRepository)
-                .save(argThat(req -> req.getStatus() == EmailRequestStatus.PENDING && req.getRetryCount() == 1));
+        // THEN: Not claimable again before the backoff
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.PENDING
+                && outcome.retryCount() == 1 && backoff.equals(outcome.nextAttemptAt())));
         verify(metrics).recordEmailDelivery(MayleoMetrics.STATUS_FAILED);
+        verify(circuitBreaker).recordFailure(CLIENT_ID);
+        verify(accountRouter).recordFailure(emailConfig);
+    }
+
+    @Test
+    @DisplayName("✅ sendEmails: Should fence the outcome on the claim it was sent under")
+    void sendEmail_OutcomeFencedOnClaim() {
+        // GIVEN: The claim may expire while sending, the write-back only applies to its owner
+        request = claimed(0, "worker-a#1");
+        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
+        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
+
+        // WHEN
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
+
+        // THEN
+        verify(statusWriter).submit(argThat(outcome -> "worker-a#1".equals(outcome.claimedBy())));
     }
 
     @Test
-    @DisplayName("❌ sendEmail: Should mark as FAILED when max retries are reached")
+    @DisplayName("❌ sendEmails: Should mark as FAILED when max retries are reached")
     void sendEmail_MaxRetries_ShouldMarkAsFailed() {
         // GIVEN
-        request.setRetryCount(MAX_RETRIES - 1); // 2 sur 3
+        request = claimed(MAX_RETRIES - 1, "owner#1"); // 2 sur 3
 
-        when(emailConfigRepository.findByApiClient(any())).thenReturn(Optional.of(emailConfig));
         when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
         when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
-        when(emailRequestRepository.findById(REQUEST_ID)).thenReturn(Optional.of(request));
 
-        doThrow(new RuntimeException("Last try failure")).when(mockMailSender).send(any(MimeMessage.class));
+        doThrow(new RuntimeException("Last try failure")).when(mockMailSender).send(any(MimeMessage[].class));
 
         // WHEN
-        emailSenderService.sendEmail(request, postcardHtml);
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
 
-        verify(emailRequestRepository).save(
-                argThat(req -> req.getStatus() == EmailRequestStatus.FAILED && req.getRetryCount() == MAX_RETRIES));
+        verify(statusWriter).submit(argThat(outcome -> outcome.status() == EmailRequestStatus.FAILED
+                && outcome.retryCount() == MAX_RETRIES && outcome.nextAttemptAt() == null));
+        verifyNoInteractions(retryBackoff);
     }
 
     @Test
-    @DisplayName("❌ sendEmail: Should sanitize AuthenticationFailedException to prevent credential leakage")
+    @DisplayName("❌ sendEmails: Should sanitize AuthenticationFailedException to prevent credential leakage")
     void sendEmail_AuthFailure_ShouldSanitizeErrorMessage() {
         // GIVEN
-        when(emailConfigRepository.findByApiClient(any())).thenReturn(Optional.of(emailConfig));
         when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
         when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
-        when(emailRequestRepository.findById(REQUEST_ID)).thenReturn(Optional.of(request));
 
         // Create an exception chain that mocks what JavaMailSender throws on auth
         // failure
@@ -156,20 +364,20 @@ class EmailSenderServiceTest {
         org.springframework.mail.MailAuthenticationException springAuthEx = new org.springframework.mail.MailAuthenticationException(
                 authEx);
 
-        doThrow(springAuthEx).when(mockMailSender).send(any(MimeMessage.class));
+        doThrow(springAuthEx).when(mockMailSender).send(any(MimeMessage[].class));
 
-        ArgumentCaptor<EmailRequest> requestCaptor = ArgumentCaptor.forClass(EmailRequest.class);
+        ArgumentCaptor<DispatchOutcome> outcomeCaptor = ArgumentCaptor.forClass(DispatchOutcome.class);
 
         // WHEN
-        emailSenderService.sendEmail(request, postcardHtml);
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
 
         // THEN
-        verify(emailRequestRepository).save(requestCaptor.capture());
-        EmailRequest savedRequest = requestCaptor.getValue();
+        verify(statusWriter).submit(outcomeCaptor.capture());
+        DispatchOutcome outcome = outcomeCaptor.getValue();
 
-        assertEquals("Authentication failed: Please check your SMTP credentials.", savedRequest.getErrorMessage(),
+        assertEquals("Authentication failed: Please check your SMTP credentials.", outcome.errorMessage(),
                 "Error message should be sanitized");
-        assertTrue(!savedRequest.getErrorMessage().contains("super_secret_password_123"),
+        assertTrue(!outcome.errorMessage().contains("super_secret_password_123"),
                 "Error message MUST NOT contain the leaked password");
     }
 
@@ -178,47 +386,58 @@ class EmailSenderServiceTest {
     void invalidateConfigCache_ShouldClearCacheAndPropagate() {
         // GIVEN
         String clientId = "client-789";
-        when(emailConfigRepository.findByApiClient(any())).thenReturn(Optional.of(emailConfig));
-        when(mailSenderFactory.getSender(anyString(), any())).thenReturn(mockMailSender);
-        when(mockMailSender.createMimeMessage()).thenReturn(mock(MimeMessage.class));
-        when(emailRequestRepository.findById(anyString())).thenReturn(Optional.of(request));
+        when(emailConfigRepository.findByApiClientIdOrderByCreatedAtAsc(CLIENT_ID)).thenReturn(List.of(emailConfig));
 
         // First call to fill intern cache
-        emailSenderService.sendEmail(request, postcardHtml);
-        verify(emailConfigRepository, times(1)).findByApiClient(any());
+        emailSenderService.findAccounts(clientId);
+        verify(emailConfigRepository, times(1)).findByApiClientIdOrderByCreatedAtAsc(CLIENT_ID);
 
         // WHEN & THEN
         emailSenderService.invalidateConfigCache(clientId);
         verify(mailSenderFactory).invalidateSenderCache(clientId);
 
         // WHEN & THEN
-        emailSenderService.sendEmail(request, postcardHtml);
-        verify(emailConfigRepository, times(2)).findByApiClient(any());
+        emailSenderService.findAccounts(clientId);
+        verify(emailConfigRepository, times(2)).findByApiClientIdOrderByCreatedAtAsc(CLIENT_ID);
     }
 
     @Test
-    @DisplayName("❌ sendEmail: Should throw exception and update status when configuration is incomplete")
+    @DisplayName("❌ sendEmails: Should throw exception and update status when configuration is incomplete")
     void sendEmail_IncompleteConfig_ShouldFail() {
         // GIVEN
         emailConfig.setSmtpHost(null); // Incomplete config
 
-        when(emailConfigRepository.findByApiClient(any())).thenReturn(Optional.of(emailConfig));
-        when(emailRequestRepository.findById(REQUEST_ID)).thenReturn(Optional.of(request));
-
-        ArgumentCaptor<EmailRequest> requestCaptor = ArgumentCaptor.forClass(EmailRequest.class);
+        ArgumentCaptor<DispatchOutcome> outcomeCaptor = ArgumentCaptor.forClass(DispatchOutcome.class);
 
         // WHEN
-        emailSenderService.sendEmail(request, postcardHtml);
+        emailSenderService.sendEmails(List.of(request), emailConfig, null);
 
         // THEN
-        verify(emailRequestRepository).save(requestCaptor.capture());
+        verify(statusWriter).submit(outcomeCaptor.capture());
 
-        EmailRequest savedRequest = requestCaptor.getValue();
-        assertEquals(EmailRequestStatus.PENDING, savedRequest.getStatus());
-        assertTrue(savedRequest.getErrorMessage().contains("incomplete"), "Error message should mention 'incomplete'");
-        assertEquals(1, savedRequest.getRetryCount());
+        DispatchOutcome outcome = outcomeCaptor.getValue();
+        assertEquals(EmailRequestStatus.PENDING, outcome.status());
+        assertTrue(outcome.errorMessage().contains("incomplete"), "Error message should mention 'incomplete'");
+        assertEquals(1, outcome.retryCount());
 
         verify(metrics).recordEmailDelivery(MayleoMetrics.STATUS_FAILED);
+        verify(circuitBreaker).recordFailure(CLIENT_ID);
+        verify(accountRouter).recordFailure(emailConfig);
         verifyNoInteractions(mailSenderFactory);
     }
-}
\ No newline at end of file
+
+    private ClaimedEmailRequest claimed(UUID id, int retryCount) {
+        return claimed(id, retryCount, "owner#1");
+    }
+
+    private ClaimedEmailRequest claimed(int retryCount, String claimedBy) {
+        return claimed(REQUEST_ID, retryCount, claimedBy);
+    }
+
+    // Only the columns the sender reads: no ApiClient graph
+    private ClaimedEmailRequest claimed(UUID id, int retryCount, String claimedBy) {
+        Instant now = Instant.now();
+        return new ClaimedEmailRequest(id, CLIENT_ID, "recipient@example.com", "example.com", "en", "Hello", "Message",
+                null, retryCount, now, now, claimedBy);
+    }
+}
@@ -0,0 +1,121 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.model.EmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.model.ImageSource;
+import com.florentdeborde.mayleo.repository.ApiClientRepository;
+import com.florentdeborde.mayleo.repository.DispatchOutcome;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The scheduled worker is pushed back so that only the test writes rows
+@SpringBootTest(properties = "app.mail.process-delay=3600000")
+@ActiveProfiles("it")
+@DisplayName("Integration Test - Batched Status Write-Back")
+class EmailStatusWriterIT {
+
+        private static final String CLAIM = "worker#1";
+
+        @Autowired
+        private EmailStatusWriter writer;
+
+        @Autowired
+        private EmailRequestRepository repository;
+
+        @Autowired
+        private ApiClientRepository apiClientRepository;
+
+        private ApiClient client;
+
+        @BeforeEach
+        void setup() {
+                repository.deleteAll();
+                apiClientRepository.deleteAll();
+
+                client = apiClientRepository.save(ApiClient.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("status-writer-client")
+                                .apiKey("status-writer-api-key")
+                                .hmacSecretKey("status-writer-hmac-secret")
+                                .createdAt(Instant.now())
+                                .updatedAt(Instant.now())
+                                .enabled(true)
+                                .dailyQuota(100)
+                                .rpmLimit(100)
+                                .build());
+        }
+
+        @Test
+        @DisplayName("✅ Writer: Should record SENT, retry and FAILED outcomes of the claim owner only")
+        void outcomes_should_be_written_back_for_the_claim_owner() {
+                // GIVEN: Three requests sent under our claim, one re-claimed by another worker
+                EmailRequest sent = sending(CLAIM, 0);
+                EmailRequest retried = sending(CLAIM, 0);
+                EmailRequest exhausted = sending(CLAIM, 2);
+                EmailRequest reclaimed = sending("worker#2", 1);
+                repository.insertAll(List.of(sent, retried, exhausted, reclaimed));
+
+                Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+                Instant backoff = now.plusSeconds(30);
+
+                // WHEN
+                writer.submit(DispatchOutcome.sent(sent.getId(), CLAIM, now));
+                writer.submit(new DispatchOutcome(retried.getId(), CLAIM, EmailRequestStatus.PENDING, "SMTP down", 1,
+                                backoff, now));
+                writer.submit(new DispatchOutcome(exhausted.getId(), CLAIM, EmailRequestStatus.FAILED, "SMTP down", 3,
+                                null, now));
+                writer.submit(DispatchOutcome.sent(reclaimed.getId(), CLAIM, now));
+                writer.flush();
+
+                // THEN
+                EmailRequest sentRow = repository.findById(sent.getId()).orElseThrow();
+                assertThat(sentRow.getStatus()).isEqualTo(EmailRequestStatus.SENT);
+                assertThat(sentRow.getClaimedBy()).isNull();
+                assertThat(sentRow.getLeaseUntil()).isNull();
+
+                EmailRequest retriedRow = repository.findById(retried.getId()).orElseThrow();
+                assertThat(retriedRow.getStatus()).isEqualTo(EmailRequestStatus.PENDING);
+                assertThat(retriedRow.getRetryCount()).isEqualTo(1);
+                assertThat(retriedRow.getErrorMessage()).isEqualTo("SMTP down");
+                assertThat(retriedRow.getNextAttemptAt()).isEqualTo(backoff);
+
+                EmailRequest exhaustedRow = repository.findById(exhausted.getId()).orElseThrow();
+                assertThat(exhaustedRow.getStatus()).isEqualTo(EmailRequestStatus.FAILED);
+                assertThat(exhaustedRow.getRetryCount()).isEqualTo(3);
+                assertThat(exhaustedRow.getNextAttemptAt()).isNotNull();
+
+                // The new owner decides
+                EmailRequest reclaimedRow = repository.findById(reclaimed.getId()).orElseThrow();
+                assertThat(reclaimedRow.getStatus()).isEqualTo(EmailRequestStatus.SENDING);
+                assertThat(reclaimedRow.getClaimedBy()).isEqualTo("worker#2");
+        }
+
+        private EmailRequest sending(String claimedBy, int retryCount) {
+                return EmailRequest.builder()
+                                .id(EmailRequestId.next())
+                                .apiClient(client)
+                                .toEmail("user@example.com")
+                                .message("Message")
+                                .imageSource(ImageSource.DEFAULT)
+                                .createdAt(Instant.now())
+                                .status(EmailRequestStatus.SENDING)
+                                .retryCount(retryCount)
+                                .claimedBy(claimedBy)
+                                .leaseUntil(Instant.now().plusSeconds(300))
+                                .build();
+        }
+}
@@ -0,0 +1,99 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.repository.DispatchOutcome;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Unit Test - EmailStatusWriter")
+class EmailStatusWriterTest {
+
+        @Mock
+        private EmailRequestRepository repository;
+
+        private EmailStatusWriter writer;
+
+        @BeforeEach
+        void setUp() {
+                writer = new EmailStatusWriter(repository, 3);
+        }
+
+        @Test
+        @DisplayName("✅ submit: Should buffer outcomes until the batch size is reached")
+        void submit_FlushesOnBatchSize() {
+                // WHEN
+                writer.submit(sent("a"));
+                writer.submit(sent("b"));
+
+                // THEN: Nothing written yet
+                verifyNoInteractions(repository);
+
+                // WHEN: The batch is complete
+                when(repository.applyOutcomes(anyList())).thenReturn(3);
+                writer.submit(sent("c"));
+
+                // THEN: One write for the three outcomes
+                verify(repository).applyOutcomes(argThat(batch -> batch.size() == 3));
+        }
+
+        @Test
+        @DisplayName("✅ flush: Should write what is buffered in chunks of the batch size")
+        void flush_WritesInChunks() {
+                // GIVEN
+                when(repository.applyOutcomes(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+                writer.submit(sent("a"));
+                writer.submit(sent("b"));
+                writer.submit(sent("c")); // flushed right away
+                writer.submit(sent("d"));
+
+                // WHEN
+                writer.flush();
+
+                // THEN
+                verify(repository, times(2)).applyOutcomes(anyList());
+
+                // WHEN: Nothing left
+                writer.flush();
+
+                // THEN
+                verify(repository, times(2)).applyOutcomes(anyList());
+        }
+
+        @Test
+        @DisplayName("❌ flush: Should keep the outcomes for the next flush when the write fails")
+        void flush_RetriesAfterFailure() {
+                // GIVEN
+                writer.submit(sent("a"));
+                when(repository.applyOutcomes(anyList())).thenThrow(new RuntimeException("DB down")).thenReturn(1);
+
+                // WHEN
+                writer.flush();
+                writer.flush();
+
+                // THEN: The same outcome is written on the second attempt
+                verify(repository, times(2)).applyOutcomes(argThat(batch -> batch.size() == 1
+                                && batch.get(0).requestId().equals(id("a"))));
+        }
+
+        private DispatchOutcome sent(String name) {
+                return DispatchOutcome.sent(id(name), "worker#1", Instant.now());
+        }
+
+        // Stable id per name, so outcomes can be told apart
+        private UUID id(String name) {
+                return UUID.nameUUIDFromBytes(name.getBytes());
+        }
+}
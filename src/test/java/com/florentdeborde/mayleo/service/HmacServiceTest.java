@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import javax.crypto.Mac;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -74,4 +75,22 @@ class HmacServiceTest {
         assertFalse(hmacService.verifySignature(payload, null, SHARED_SECRET));
         assertFalse(hmacService.verifySignature(payload, "any", null));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("✅ verifySignature: Should accept a signature computed over chunks fed incrementally")
+    void verifySignature_ShouldValidateIncrementalMac() {
+        // GIVEN
+        byte[] payloadBytes = JSON_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        String validSignature = hmacService.calculateHmac(payloadBytes, SHARED_SECRET);
+
+        // WHEN: The payload is fed in two parts, as when it is streamed
+        Mac mac = hmacService.initMac(SHARED_SECRET);
+        mac.update(payloadBytes, 0, 10);
+        mac.update(payloadBytes, 10, payloadBytes.length - 10);
+
+        // THEN
+        assertTrue(hmacService.verifySignature(mac, validSignature));
+        assertFalse(hmacService.verifySignature(hmacService.initMac(WRONG_SECRET), validSignature));
+        assertFalse(hmacService.verifySignature(hmacService.initMac(SHARED_SECRET), null));
+    }
+}
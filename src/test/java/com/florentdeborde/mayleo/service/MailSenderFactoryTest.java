@@ -1,5 +1,6 @@
 package com.florentdeborde.mayleo.service;
 
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
 import com.florentdeborde.mayleo.model.EmailConfig;
 import com.florentdeborde.mayleo.model.EmailProvider;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,19 +8,24 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
 @DisplayName("Unit Test - MailSenderFactory")
 class MailSenderFactoryTest {
 
+    private SmtpTlsContext tlsContext;
     private MailSenderFactory factory;
 
     @BeforeEach
     void setUp() {
-        factory = new MailSenderFactory();
+        tlsContext = new SmtpTlsContext(100, Duration.ofHours(1), mock(MayleoMetrics.class));
+        factory = new MailSenderFactory(tlsContext);
     }
 
     @Test
@@ -45,6 +51,7 @@ class MailSenderFactoryTest {
         assertEquals(true, props.get("mail.smtp.starttls.enable"));
         assertEquals("5000", props.get("mail.smtp.timeout"));
         assertEquals("false", props.get("mail.smtp.ssl.enable"), "SSL should be explicitly disabled for port 587");
+        assertSame(tlsContext.socketFactory(), props.get("mail.smtp.ssl.socketFactory"), "STARTTLS should use the shared TLS context");
     }
 
     @Test
@@ -69,8 +76,8 @@ class MailSenderFactoryTest {
         Properties props = impl.getJavaMailProperties();
 
         assertEquals("true", props.get("mail.smtp.ssl.enable"));
-        assertEquals("465", props.get("mail.smtp.socketFactory.port"));
-        assertEquals("javax.net.ssl.SSLSocketFactory", props.get("mail.smtp.socketFactory.class"));
+        assertSame(tlsContext.socketFactory(), props.get("mail.smtp.ssl.socketFactory"), "SSL should use the shared TLS context");
+        assertNull(props.get("mail.smtp.socketFactory.class"), "A plain socket factory would take precedence over the TLS one");
         assertEquals("false", props.get("mail.smtp.starttls.enable"), "STARTTLS should be disabled when SSL is active");
     }
 
@@ -137,4 +144,71 @@ class MailSenderFactoryTest {
         // THEN
         assertNotSame(firstInstance, secondInstance, "A new instance should be created after cache invalidation");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("✅ getSender: Should keep one sender per sending account of a client")
+    void getSender_PerAccount() {
+        // GIVEN: Two accounts of the same client
+        EmailConfig first = EmailConfig.builder().id("account-1").provider(EmailProvider.SMTP)
+                .smtpHost("smtp.one.com").smtpPort(587).smtpTls(true).build();
+        EmailConfig second = EmailConfig.builder().id("account-2").provider(EmailProvider.SMTP)
+                .smtpHost("smtp.two.com").smtpPort(587).smtpTls(true).build();
+
+        // WHEN
+        JavaMailSenderImpl firstSender = (JavaMailSenderImpl) factory.getSender("pool-client", first);
+        JavaMailSenderImpl secondSender = (JavaMailSenderImpl) factory.getSender("pool-client", second);
+
+        // THEN: Both invalidated with the client
+        assertEquals("smtp.one.com", firstSender.getHost());
+        assertEquals("smtp.two.com", secondSender.getHost());
+        assertSame(firstSender, factory.getSender("pool-client", first));
+        factory.invalidateSenderCache("pool-client");
+        assertNotSame(firstSender, factory.getSender("pool-client", first));
+        assertNotSame(secondSender, factory.getSender("pool-client", second));
+    }
+
+    @Test
+    @DisplayName("♻ getSender: Should replace and close the sender of an account whose settings changed")
+    void getSender_SettingsChanged() throws Exception {
+        // GIVEN: A sender built for the account's first host
+        EmailConfig config = EmailConfig.builder().id("account-1").provider(EmailProvider.SMTP)
+                .smtpHost("smtp.old.com").smtpPort(587).smtpUsername("user").smtpPassword("old-pass")
+                .smtpTls(true).build();
+        JavaMailSenderImpl oldSender = (JavaMailSenderImpl) factory.getSender("edited-client", config);
+
+        // WHEN: The row is edited (host and password) and reloaded
+        config.setSmtpHost("smtp.new.com");
+        config.setSmtpPassword("new-pass");
+        JavaMailSenderImpl newSender = (JavaMailSenderImpl) factory.getSender("edited-client", config);
+
+        // THEN: New settings in use, the previous sender is closed (removal is asynchronous)
+        assertNotSame(oldSender, newSender);
+        assertEquals("smtp.new.com", newSender.getHost());
+        assertEquals("new-pass", newSender.getPassword());
+        assertSame(newSender, factory.getSender("edited-client", config));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!isClosed(oldSender) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(isClosed(oldSender), "The sender of the previous settings should be closed");
+        assertFalse(isClosed(newSender));
+    }
+
+    private boolean isClosed(JavaMailSenderImpl sender) {
+        return (boolean) ReflectionTestUtils.getField(sender, "closed");
+    }
+
+    @Test
+    @DisplayName("✅ resolveHost: Should return the host the sender connects to, per provider")
+    void resolveHost_PerProvider() {
+        // GIVEN
+        EmailConfig smtp = EmailConfig.builder().provider(EmailProvider.SMTP).smtpHost("smtp.custom.com").build();
+        EmailConfig google = EmailConfig.builder().provider(EmailProvider.GOOGLE).smtpHost("ignored").build();
+        EmailConfig microsoft = EmailConfig.builder().provider(EmailProvider.MICROSOFT).build();
+
+        // WHEN & THEN
+        assertEquals("smtp.custom.com", factory.resolveHost(smtp));
+        assertEquals("smtp.gmail.com", factory.resolveHost(google));
+        assertEquals("smtp.office365.com", factory.resolveHost(microsoft));
+    }
+}
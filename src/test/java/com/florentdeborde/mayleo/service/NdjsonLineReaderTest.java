@@ -0,0 +1,51 @@
+package com.florentdeborde.mayleo.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Unit Test - NdjsonLineReader")
+class NdjsonLineReaderTest {
+
+    private NdjsonLineReader reader(String content, int maxLineLength) {
+        return new NdjsonLineReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), maxLineLength);
+    }
+
+    private String next(NdjsonLineReader reader) throws IOException {
+        byte[] line = reader.nextLine();
+        return line == null ? null : new String(line, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("✅ nextLine: Should split on LF and CRLF, with or without a trailing newline")
+    void nextLine_ShouldSplitLines() throws IOException {
+        // GIVEN
+        NdjsonLineReader reader = reader("{\"a\":1}\r\n\n{\"b\":2}", 100);
+
+        // WHEN & THEN
+        assertEquals("{\"a\":1}", next(reader));
+        assertEquals("", next(reader));
+        assertEquals("{\"b\":2}", next(reader));
+        assertNull(next(reader));
+    }
+
+    @Test
+    @DisplayName("❌ nextLine: Should skip lines above the limit and resume on the next one")
+    void nextLine_ShouldTruncateLongLines() throws IOException {
+        // GIVEN: A line spanning several read buffers
+        String longLine = "x".repeat(20_000);
+        NdjsonLineReader reader = reader(longLine + "\nok\n", 16);
+
+        // WHEN & THEN
+        assertEquals("", next(reader));
+        assertTrue(reader.isTruncated());
+        assertEquals("ok", next(reader));
+        assertFalse(reader.isTruncated());
+        assertNull(next(reader));
+    }
+}
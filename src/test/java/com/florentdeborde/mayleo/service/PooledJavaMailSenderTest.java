@@ -0,0 +1,251 @@
+package com.florentdeborde.mayleo.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Unit Test - PooledJavaMailSender")
+class PooledJavaMailSenderTest {
+
+        @Test
+        @DisplayName("✅ send: Should reuse one connection for consecutive messages")
+        void send_ReusesConnection() throws Exception {
+                // GIVEN
+                Transport transport = mock(Transport.class);
+                TestSender sender = new TestSender(100, 5, transport);
+
+                // WHEN
+                sender.send(message(), message(), message());
+                sender.send(message());
+
+                // THEN: One handshake for four messages
+                assertEquals(1, sender.connections);
+                verify(transport, times(4)).sendMessage(any(Message.class), any(Address[].class));
+                verify(transport, never()).close();
+                assertEquals(1, sender.idleConnections());
+        }
+
+        @Test
+        @DisplayName("✅ send: Should close a connection after its max number of messages")
+        void send_MaxMessagesPerConnection() throws Exception {
+                // GIVEN
+                Transport first = mock(Transport.class);
+                Transport second = mock(Transport.class);
+                TestSender sender = new TestSender(2, 5, first, second);
+
+                // WHEN
+                sender.send(message(), message(), message());
+
+                // THEN
+                assertEquals(2, sender.connections);
+                verify(first, times(2)).sendMessage(any(Message.class), any(Address[].class));
+                verify(first).close();
+                verify(second).sendMessage(any(Message.class), any(Address[].class));
+        }
+
+        @Test
+        @DisplayName("✅ send: Should reconnect and send again when the server dropped a pooled connection")
+        void send_ReconnectsStaleConnection() throws Exception {
+                // GIVEN: The first connection is closed by the server after one message
+                Transport stale = mock(Transport.class);
+                Transport fresh = mock(Transport.class);
+                doNothing().doThrow(new MessagingException("[EOF]"))
+                                .when(stale).sendMessage(any(Message.class), any(Address[].class));
+                when(stale.isConnected()).thenReturn(false);
+                TestSender sender = new TestSender(100, 5, stale, fresh);
+                sender.send(message());
+
+                // WHEN
+                sender.send(message());
+
+                // THEN
+                verify(stale).close();
+                verify(fresh).sendMessage(any(Message.class), any(Address[].class));
+                assertEquals(2, sender.connections);
+                assertEquals(1, sender.idleConnections());
+        }
+
+        @Test
+        @DisplayName("❌ send: Should not send again when the server rejected the recipients")
+        void send_RecipientRejected() throws Exception {
+                // GIVEN
+                Transport transport = mock(Transport.class);
+                doNothing().doThrow(new SendFailedException("550 No such user"))
+                                .when(transport).sendMessage(any(Message.class), any(Address[].class));
+                TestSender sender = new TestSender(100, 5, transport);
+                sender.send(message());
+
+                // WHEN & THEN
+                assertThrows(MailSendException.class, () -> sender.send(message()));
+                assertEquals(1, sender.connections);
+                verify(transport).close();
+        }
+
+        @Test
+        @DisplayName("❌ send: Should report a rejected message on its own and send the rest of the group")
+        void send_GroupWithRejectedMessage() throws Exception {
+                // GIVEN: The second message of the group is rejected
+                Transport first = mock(Transport.class);
+                Transport second = mock(Transport.class);
+                doNothing().doThrow(new SendFailedException("550 No such user"))
+                                .when(first).sendMessage(any(Message.class), any(Address[].class));
+                TestSender sender = new TestSender(100, 5, first, second);
+                MimeMessage rejected = message();
+
+                // WHEN
+                MailSendException ex = assertThrows(MailSendException.class,
+                                () -> sender.send(message(), rejected, message()));
+
+                // THEN: Only the rejected one failed, the next went out on a fresh connection
+                assertEquals(1, ex.getFailedMessages().size());
+                assertInstanceOf(SendFailedException.class, ex.getFailedMessages().get(rejected));
+                verify(first).close();
+                verify(second).sendMessage(any(Message.class), any(Address[].class));
+                assertEquals(2, sender.connections);
+        }
+
+        @Test
+        @DisplayName("❌ send: Should fail the whole group at once when the server cannot be reached")
+        void send_GroupConnectionRefused() throws Exception {
+                // GIVEN: No transport to hand out
+                TestSender sender = new TestSender(100, 5);
+
+                // WHEN
+                MailSendException ex = assertThrows(MailSendException.class,
+                                () -> sender.send(message(), message(), message()));
+
+                // THEN: One attempt for the group, not one per message
+                assertEquals(3, ex.getFailedMessages().size());
+                assertEquals(1, sender.connections);
+        }
+
+        @Test
+        @DisplayName("❌ send: Should fail only the messages left when authentication fails on reconnect")
+        void send_AuthenticationFailsOnReconnect() throws Exception {
+                // GIVEN: 2 messages per connection, the credentials are refused on the second one
+                Transport first = mock(Transport.class);
+                AuthenticationFailedTestSender sender = new AuthenticationFailedTestSender(2, first);
+                MimeMessage delivered1 = message();
+                MimeMessage delivered2 = message();
+                MimeMessage third = message();
+                MimeMessage fourth = message();
+
+                // WHEN
+                MailSendException ex = assertThrows(MailSendException.class,
+                                () -> sender.send(delivered1, delivered2, third, fourth));
+
+                // THEN: Those already sent are not reported, so they are not sent twice
+                assertEquals(2, ex.getFailedMessages().size());
+                assertFalse(ex.getFailedMessages().containsKey(delivered1));
+                assertFalse(ex.getFailedMessages().containsKey(delivered2));
+                assertInstanceOf(MailAuthenticationException.class, ex.getFailedMessages().get(third));
+                assertInstanceOf(MailAuthenticationException.class, ex.getFailedMessages().get(fourth));
+                verify(first, times(2)).sendMessage(any(Message.class), any(Address[].class));
+                assertEquals(2, sender.connections);
+        }
+
+        @Test
+        @DisplayName("✅ keepAlive: Should NOOP idle connections and close those the server dropped")
+        void keepAlive_ClosesDeadConnections() throws Exception {
+                // GIVEN: An idle connection, keepalive due right away
+                Transport transport = mock(Transport.class);
+                when(transport.isConnected()).thenReturn(true, false);
+                TestSender sender = new TestSender(100, 5, 0, transport);
+                sender.send(message());
+
+                // WHEN & THEN: Answers the NOOP, kept
+                sender.keepAlive();
+                verify(transport, never()).close();
+                assertEquals(1, sender.idleConnections());
+
+                // WHEN & THEN: Dropped by the server since, closed
+                sender.keepAlive();
+                verify(transport).close();
+                assertEquals(0, sender.idleConnections());
+        }
+
+        @Test
+        @DisplayName("♻ close: Should close the idle connections")
+        void close_ClosesIdleConnections() throws Exception {
+                // GIVEN
+                Transport transport = mock(Transport.class);
+                TestSender sender = new TestSender(100, 5, transport);
+                sender.send(message());
+
+                // WHEN
+                sender.close();
+
+                // THEN
+                verify(transport).close();
+                assertEquals(0, sender.idleConnections());
+        }
+
+        private MimeMessage message() throws MessagingException {
+                MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+                message.setFrom(new InternetAddress("sender@example.com"));
+                message.setRecipient(Message.RecipientType.TO, new InternetAddress("to@example.com"));
+                message.setText("Hello");
+                return message;
+        }
+
+        // Hands out the given transports instead of connecting to a server
+        private static class TestSender extends PooledJavaMailSender {
+
+                private final Deque<Transport> transports;
+                int connections;
+
+                TestSender(int maxMessagesPerConnection, int maxIdle, Transport... transports) {
+                        this(maxMessagesPerConnection, maxIdle, 30_000, transports);
+                }
+
+                TestSender(int maxMessagesPerConnection, int maxIdle, long keepAliveMillis, Transport... transports) {
+                        super(maxMessagesPerConnection, maxIdle, keepAliveMillis, 120_000);
+                        this.transports = new ArrayDeque<>(List.of(transports));
+                }
+
+                @Override
+                protected Transport connectTransport() throws MessagingException {
+                        connections++;
+                        if (transports.isEmpty()) {
+                                throw new MessagingException("Connection refused");
+                        }
+                        return transports.pop();
+                }
+        }
+
+        // Connects once, then the server refuses the credentials
+        private static class AuthenticationFailedTestSender extends TestSender {
+
+                AuthenticationFailedTestSender(int maxMessagesPerConnection, Transport transport) {
+                        super(maxMessagesPerConnection, 5, transport);
+                }
+
+                @Override
+                protected Transport connectTransport() throws MessagingException {
+                        if (connections == 1) {
+                                connections++;
+                                throw new AuthenticationFailedException("535 Authentication failed");
+                        }
+                        return super.connectTransport();
+                }
+        }
+}
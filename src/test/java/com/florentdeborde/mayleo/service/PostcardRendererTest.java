@@ -1,7 +1,8 @@
 package com.florentdeborde.mayleo.service;
 
-import com.florentdeborde.mayleo.model.EmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
 import com.florentdeborde.mayleo.dto.internal.PostcardHtml;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,6 +13,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.time.Instant;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,11 +36,7 @@ class PostcardRendererTest {
     @DisplayName("✅ render: Should successfully assemble HTML with valid image path")
     void render_Success() {
         // GIVEN
-        EmailRequest request = EmailRequest.builder()
-                .id("test-req")
-                .message("Hello World")
-                .imagePath("postcards/postcard-1.jpg")
-                .build();
+        ClaimedEmailRequest request = request("Hello World", "postcards/postcard-1.jpg");
 
         // WHEN
         PostcardHtml result = postcardRenderer.render(request, "Small Note");
@@ -56,10 +54,7 @@ class PostcardRendererTest {
     @DisplayName("✅ render: Should use random fallback when path does not contain postcards")
     void render_FallbackWhenPathDoesNotContainPostcards() {
         // GIVEN
-        EmailRequest request = EmailRequest.builder()
-                .id("test-fallback")
-                .imagePath("invalid/path.jpg")
-                .build();
+        ClaimedEmailRequest request = request(null, "invalid/path.jpg");
 
         // WHEN
         PostcardHtml result = postcardRenderer.render(request, "Note");
@@ -74,10 +69,7 @@ class PostcardRendererTest {
     @DisplayName("✅ render: Should use random fallback when path contains two dots")
     void render_FallbackWhenPathContainsTwoDots() {
         // GIVEN
-        EmailRequest request = EmailRequest.builder()
-                .id("test-fallback")
-                .imagePath("../path.jpg")
-                .build();
+        ClaimedEmailRequest request = request(null, "../path.jpg");
 
         // WHEN
         PostcardHtml result = postcardRenderer.render(request, "Note");
@@ -92,11 +84,7 @@ class PostcardRendererTest {
     @DisplayName("✅ render: Should handle null message gracefully")
     void render_NullMessage() {
         // GIVEN
-        EmailRequest request = EmailRequest.builder()
-                .id("test-null")
-                .subject("subject")
-                .message(null)
-                .build();
+        ClaimedEmailRequest request = request(null, null);
 
         // WHEN
         PostcardHtml result = postcardRenderer.render(request, "Note");
@@ -110,10 +98,7 @@ class PostcardRendererTest {
     @DisplayName("✅ cache: Should populate and reuse orientation and template caches")
     void render_CacheReusage() {
         // GIVEN
-        EmailRequest request = EmailRequest.builder()
-                .id("req-1")
-                .imagePath("postcards/postcard-1.jpg")
-                .build();
+        ClaimedEmailRequest request = request(null, "postcards/postcard-1.jpg");
 
         // WHEN
         PostcardHtml result1 = postcardRenderer.render(request, "Note");
@@ -158,4 +143,10 @@ class PostcardRendererTest {
         // THEN
         assertFalse(cache.containsKey(imgPath), "Orientation image cache should be empty after invalidating");
     }
-}
\ No newline at end of file
+
+    private ClaimedEmailRequest request(String message, String imagePath) {
+        Instant now = Instant.now();
+        return new ClaimedEmailRequest(EmailRequestId.next(), "client-1", "to@example.com", "example.com", "en",
+                "Subject", message, imagePath, 0, now, now, "owner#1");
+    }
+}
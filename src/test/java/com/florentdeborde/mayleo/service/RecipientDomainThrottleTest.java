@@ -0,0 +1,130 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.config.RecipientDomainProperties;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.repository.ClaimedEmailRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Unit Test - RecipientDomainThrottle")
+class RecipientDomainThrottleTest {
+
+        @Test
+        @DisplayName("✅ admit: Should hand back requests past the domain's concurrency until slots are released")
+        void admit_MaxConcurrency() {
+                // GIVEN: 2 messages in flight at once towards gmail.com
+                RecipientDomainThrottle throttle = new RecipientDomainThrottle(properties("gmail.com", 2, 0), 1);
+                List<ClaimedEmailRequest> requests = List.of(claimed("gmail.com"), claimed("gmail.com"),
+                                claimed("gmail.com"));
+
+                // WHEN
+                RecipientDomainThrottle.Admission admission = throttle.admit(requests);
+
+                // THEN
+                assertEquals(requests.subList(0, 2), admission.admitted());
+                assertEquals(requests.subList(2, 3), admission.busy());
+                assertEquals(2, throttle.inFlight("gmail.com"));
+
+                // WHEN & THEN: Free again once sent
+                throttle.release(admission.admitted());
+                assertEquals(0, throttle.inFlight("gmail.com"));
+                assertEquals(1, throttle.admit(requests.subList(2, 3)).admitted().size());
+        }
+
+        @Test
+        @DisplayName("✅ admit: Should defer a domain's requests past its rate to when the next token is due")
+        void admit_PerMinute() {
+                // GIVEN: 30 messages per minute, bursts of 5 (default)
+                RecipientDomainThrottle throttle = new RecipientDomainThrottle(properties("outlook.com", 0, 30), 1);
+                List<ClaimedEmailRequest> requests = List.of(claimed("outlook.com"), claimed("outlook.com"),
+                                claimed("outlook.com"), claimed("outlook.com"), claimed("outlook.com"),
+                                claimed("outlook.com"), claimed("outlook.com"));
+
+                // WHEN
+                RecipientDomainThrottle.Admission admission = throttle.admit(requests);
+
+                // THEN: One instant for the domain, a token every 2s
+                assertEquals(5, admission.admitted().size());
+                assertEquals(1, admission.paced().size());
+                Instant retryAt = admission.paced().keySet().iterator().next();
+                assertEquals(requests.subList(5, 7), admission.paced().get(retryAt));
+                assertTrue(retryAt.isAfter(Instant.now().plusMillis(1500)));
+        }
+
+        @Test
+        @DisplayName("✅ admit: Should take this node's share of the domain's concurrency and rate")
+        void admit_SharedBetweenInstances() {
+                // GIVEN: 4 messages in flight at once, 30 per minute, over 2 nodes
+                RecipientDomainThrottle throttle = new RecipientDomainThrottle(properties("gmail.com", 4, 30), 2);
+                List<ClaimedEmailRequest> requests = List.of(claimed("gmail.com"), claimed("gmail.com"),
+                                claimed("gmail.com"));
+
+                // WHEN
+                RecipientDomainThrottle.Admission admission = throttle.admit(requests);
+
+                // THEN: 2 slots on this node
+                assertEquals(requests.subList(0, 2), admission.admitted());
+                assertEquals(requests.subList(2, 3), admission.busy());
+                assertEquals(2, throttle.inFlight("gmail.com"));
+
+                // WHEN & THEN: Bursts of 3 (5 / 2 rounded up), then a token every 4s
+                throttle.release(admission.admitted());
+                assertEquals(1, throttle.admit(requests.subList(2, 3)).admitted().size());
+                throttle.release(requests.subList(2, 3));
+                RecipientDomainThrottle.Admission paced = throttle.admit(requests.subList(0, 1));
+                assertEquals(1, paced.paced().size());
+                assertTrue(paced.paced().keySet().iterator().next().isAfter(Instant.now().plusMillis(3500)));
+        }
+
+        @Test
+        @DisplayName("✅ admit: Should not limit domains without limits, nor requests without a domain")
+        void admit_Unlimited() {
+                // GIVEN: Defaults are unlimited
+                RecipientDomainThrottle throttle = new RecipientDomainThrottle(properties("gmail.com", 1, 1), 1);
+                List<ClaimedEmailRequest> requests = List.of(claimed("example.com"), claimed("example.com"),
+                                claimed(null));
+
+                // WHEN
+                RecipientDomainThrottle.Admission admission = throttle.admit(requests);
+
+                // THEN
+                assertEquals(requests, admission.admitted());
+                assertTrue(admission.busy().isEmpty());
+                assertTrue(admission.paced().isEmpty());
+        }
+
+        @Test
+        @DisplayName("♻ cancel: Should give back the slots and tokens of requests not sent after all")
+        void cancel_GivesBackSlotsAndTokens() {
+                // GIVEN: One message at once, one per minute
+                RecipientDomainThrottle throttle = new RecipientDomainThrottle(properties("gmail.com", 1, 1), 1);
+                RecipientDomainThrottle.Admission admission = throttle.admit(List.of(claimed("gmail.com")));
+                assertEquals(1, admission.admitted().size());
+
+                // WHEN
+                throttle.cancel(admission.admitted());
+
+                // THEN: Admitted again right away
+                assertEquals(1, throttle.admit(List.of(claimed("gmail.com"))).admitted().size());
+        }
+
+        private RecipientDomainProperties properties(String domain, int maxConcurrency, int perMinute) {
+                RecipientDomainProperties.Limit limit = new RecipientDomainProperties.Limit();
+                limit.setMaxConcurrency(maxConcurrency);
+                limit.setPerMinute(perMinute);
+                RecipientDomainProperties properties = new RecipientDomainProperties();
+                properties.getLimits().put(domain, limit);
+                return properties;
+        }
+
+        private ClaimedEmailRequest claimed(String domain) {
+                Instant now = Instant.now();
+                return new ClaimedEmailRequest(EmailRequestId.next(), "client-123", "to@" + domain, domain, "en",
+                                "Subject", "Message", null, 0, now, now, "owner#1");
+        }
+}
@@ -0,0 +1,206 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.dto.response.ArchivedEmailRequest;
+import com.florentdeborde.mayleo.model.EmailRequestId;
+import com.florentdeborde.mayleo.model.EmailRequestStatus;
+import com.florentdeborde.mayleo.repository.EmailRequestKey;
+import com.florentdeborde.mayleo.repository.EmailRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Unit Test - RetentionPurger")
+class RetentionPurgerTest {
+
+        @Mock
+        private EmailRequestRepository repository;
+        @Mock
+        private JdbcTemplate jdbcTemplate;
+        @Mock
+        private EmailRequestArchive archive;
+        @Mock
+        private EmailRequestArchive.Segment segment;
+
+        private RetentionPurger purger;
+
+        @BeforeEach
+        void setUp() {
+                purger = new RetentionPurger(repository, jdbcTemplate, archive);
+                ReflectionTestUtils.setField(purger, "sentRetention", Duration.ofDays(1));
+                ReflectionTestUtils.setField(purger, "chunkSize", 2);
+                ReflectionTestUtils.setField(purger, "pause", Duration.ZERO);
+                ReflectionTestUtils.setField(purger, "maxRunTime", Duration.ofMinutes(9));
+                ReflectionTestUtils.setField(purger, "partitionsAhead", 1);
+        }
+
+        @Test
+        @DisplayName("✅ purge: Should delete by chunks, each resuming after the last key of the previous one")
+        void purge_KeysetChunks() {
+                // GIVEN: 3 expired SENT requests, chunks of 2
+                EmailRequestKey first = key("2026-01-01T00:00:00Z");
+                EmailRequestKey second = key("2026-01-01T00:00:01Z");
+                EmailRequestKey third = key("2026-01-01T00:00:02Z");
+                when(repository.findExpiredKeys(eq(EmailRequestStatus.SENT), any(), eq(Instant.EPOCH),
+                                eq(new UUID(0, 0)), any(Pageable.class))).thenReturn(List.of(first, second));
+                when(repository.findExpiredKeys(eq(EmailRequestStatus.SENT), any(), eq(second.createdAt()),
+                                eq(second.id()), any(Pageable.class))).thenReturn(List.of(third));
+
+                // WHEN
+                int deleted = purger.purge();
+
+                // THEN: One DELETE per chunk, FAILED requests kept (no retention set)
+                assertEquals(3, deleted);
+                verify(repository).deleteAllByIdInBatch(List.of(first.id(), second.id()));
+                verify(repository).deleteAllByIdInBatch(List.of(third.id()));
+                verify(repository, never()).findExpiredKeys(eq(EmailRequestStatus.FAILED), any(), any(), any(), any());
+                verifyNoInteractions(jdbcTemplate);
+        }
+
+        @Test
+        @DisplayName("✅ purge: Should also purge FAILED requests when a retention is set for them")
+        void purge_FailedRetention() {
+                // GIVEN
+                ReflectionTestUtils.setField(purger, "failedRetention", Duration.ofDays(30));
+                when(repository.findExpiredKeys(any(), any(), any(), any(), any(Pageable.class))).thenReturn(List.of());
+
+                // WHEN
+                purger.purge();
+
+                // THEN
+                verify(repository).findExpiredKeys(eq(EmailRequestStatus.FAILED), any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("✅ dropExpiredPartitions: Should drop a past day only when all its requests are expired")
+        void dropExpiredPartitions_OnlyFullyExpiredDays() throws Exception {
+                // GIVEN: Two past days, the second one still holding a PENDING request
+                partitions("p20260101", 1767312000L, "p20260102", 1767398400L);
+                when(jdbcTemplate.queryForObject(contains("PARTITION (p20260101)"), eq(Integer.class))).thenReturn(0);
+                when(jdbcTemplate.queryForObject(contains("PARTITION (p20260102)"), eq(Integer.class))).thenReturn(1);
+
+                // WHEN
+                purger.dropExpiredPartitions(Instant.parse("2026-01-05T00:00:00Z"), null);
+
+                // THEN
+                verify(jdbcTemplate).execute("ALTER TABLE email_request DROP PARTITION p20260101");
+                verify(jdbcTemplate, never()).execute("ALTER TABLE email_request DROP PARTITION p20260102");
+        }
+
+        @Test
+        @DisplayName("✅ createPartitionsAhead: Should split pmax for the missing days")
+        void createPartitionsAhead_MissingDays() throws Exception {
+                // GIVEN: Today exists, tomorrow does not
+                LocalDate today = LocalDate.parse("2026-01-01");
+                partitions(RetentionPurger.partitionName(today), 1767312000L);
+
+                // WHEN
+                purger.createPartitionsAhead(Instant.parse("2026-01-01T10:00:00Z"));
+
+                // THEN
+                verify(jdbcTemplate).execute("ALTER TABLE email_request REORGANIZE PARTITION pmax INTO ("
+                                + "PARTITION p20260102 VALUES LESS THAN (1767398400), "
+                                + "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+                verify(jdbcTemplate, times(1)).execute(anyString());
+        }
+
+        @Test
+        @DisplayName("✅ purge: Should archive each chunk before deleting it when the archive is enabled")
+        void purge_ArchivesBeforeDelete() throws Exception {
+                // GIVEN
+                EmailRequestKey key = key("2026-01-01T00:00:00Z");
+                List<ArchivedEmailRequest> rows = List.of(archived(key.id()));
+                when(archive.isEnabled()).thenReturn(true);
+                when(archive.openSegment()).thenReturn(segment);
+                when(repository.findExpiredKeys(any(), any(), any(), any(), any(Pageable.class))).thenReturn(List.of(key));
+                when(repository.findArchivedByIdIn(List.of(key.id()))).thenReturn(rows);
+
+                // WHEN
+                purger.purge();
+
+                // THEN
+                var inOrder = inOrder(segment, repository);
+                inOrder.verify(segment).append(rows);
+                inOrder.verify(repository).deleteAllByIdInBatch(List.of(key.id()));
+                inOrder.verify(segment).close();
+        }
+
+        @Test
+        @DisplayName("❌ purge: Should keep the chunk and stop the run when archiving fails")
+        void purge_ArchiveFailure() throws Exception {
+                // GIVEN
+                EmailRequestKey key = key("2026-01-01T00:00:00Z");
+                when(archive.isEnabled()).thenReturn(true);
+                when(archive.openSegment()).thenReturn(segment);
+                when(repository.findExpiredKeys(any(), any(), any(), any(), any(Pageable.class))).thenReturn(List.of(key));
+                doThrow(new IOException("disk full")).when(segment).append(any());
+
+                // WHEN
+                int deleted = purger.purge();
+
+                // THEN
+                assertEquals(0, deleted);
+                verify(repository, never()).deleteAllByIdInBatch(any());
+                verify(segment).close();
+        }
+
+        @Test
+        @DisplayName("✅ dropExpiredPartitions: Should only drop empty days when the archive is enabled")
+        void dropExpiredPartitions_ArchiveEnabled() throws Exception {
+                // GIVEN
+                when(archive.isEnabled()).thenReturn(true);
+                partitions("p20260101", 1767312000L);
+                when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_request PARTITION (p20260101)",
+                                Integer.class)).thenReturn(1);
+
+                // WHEN
+                purger.dropExpiredPartitions(Instant.parse("2026-01-05T00:00:00Z"), null);
+
+                // THEN: The SENT rows left must go through the archive first
+                verify(jdbcTemplate, never()).execute(anyString());
+        }
+
+        private EmailRequestKey key(String createdAt) {
+                return new EmailRequestKey(EmailRequestId.next(), Instant.parse(createdAt));
+        }
+
+        private ArchivedEmailRequest archived(UUID id) {
+                return new ArchivedEmailRequest(id, "client", "to@example.com", "en", "Subject", "Message", null, null,
+                                EmailRequestStatus.SENT, null, 0, Instant.parse("2026-01-01T00:00:00Z"), null, null);
+        }
+
+        // Stubs information_schema.PARTITIONS with (name, upper bound) pairs
+        private void partitions(Object... nameAndBounds) throws Exception {
+                ResultSet rs = mock(ResultSet.class);
+                doAnswer(invocation -> {
+                        RowCallbackHandler handler = invocation.getArgument(1);
+                        for (int i = 0; i < nameAndBounds.length; i += 2) {
+                                when(rs.getString(1)).thenReturn((String) nameAndBounds[i]);
+                                when(rs.getString(2)).thenReturn(String.valueOf(nameAndBounds[i + 1]));
+                                handler.processRow(rs);
+                        }
+                        return null;
+                }).when(jdbcTemplate).query(contains("information_schema.PARTITIONS"), any(RowCallbackHandler.class));
+        }
+}
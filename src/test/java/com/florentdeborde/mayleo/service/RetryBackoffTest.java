@@ -0,0 +1,38 @@
+package com.florentdeborde.mayleo.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Unit Test - RetryBackoff")
+class RetryBackoffTest {
+
+        private final RetryBackoff backoff = new RetryBackoff(Duration.ofSeconds(30), Duration.ofMinutes(30));
+        private final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        @Test
+        @DisplayName("✅ nextAttemptAt: Should double the delay per attempt, with up to half of it random")
+        void nextAttemptAt_Exponential() {
+                for (int i = 0; i < 100; i++) {
+                        assertThat(delay(1)).isBetween(Duration.ofSeconds(15), Duration.ofSeconds(30));
+                        assertThat(delay(2)).isBetween(Duration.ofSeconds(30), Duration.ofSeconds(60));
+                        assertThat(delay(4)).isBetween(Duration.ofMinutes(2), Duration.ofMinutes(4));
+                }
+        }
+
+        @Test
+        @DisplayName("✅ nextAttemptAt: Should never exceed the maximum backoff")
+        void nextAttemptAt_Capped() {
+                for (int i = 0; i < 100; i++) {
+                        assertThat(delay(50)).isBetween(Duration.ofMinutes(15), Duration.ofMinutes(30));
+                }
+        }
+
+        private Duration delay(int retryCount) {
+                return Duration.between(now, backoff.nextAttemptAt(retryCount, now));
+        }
+}
@@ -0,0 +1,122 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import com.florentdeborde.mayleo.model.ApiClient;
+import com.florentdeborde.mayleo.model.EmailConfig;
+import com.florentdeborde.mayleo.model.EmailProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("Unit Test - SendingAccountRouter")
+class SendingAccountRouterTest {
+
+        private MayleoMetrics metrics;
+        private SendingAccountRouter router;
+
+        @BeforeEach
+        void setUp() {
+                metrics = mock(MayleoMetrics.class);
+                router = new SendingAccountRouter(2, Duration.ofMinutes(1), metrics);
+        }
+
+        @Test
+        @DisplayName("✅ rank: Should put the least loaded account first, relative to its weight")
+        void rank_WeightedLeastLoaded() {
+                // GIVEN: 4 messages in flight on a weight-4 account, 2 on a weight-1 account
+                EmailConfig large = account("account-1", 4);
+                EmailConfig small = account("account-2", 1);
+                router.dispatched(large, 4);
+                router.dispatched(small, 2);
+
+                // WHEN & THEN: 4/4 < 2/1
+                assertEquals(List.of(large, small), router.rank(List.of(small, large)));
+
+                // WHEN & THEN: Done with the small one's messages, 0/1 < 4/4
+                router.completed(small, 2);
+                assertEquals(List.of(small, large), router.rank(List.of(large, small)));
+                assertEquals(0, router.inFlight(small));
+        }
+
+        @Test
+        @DisplayName("✅ rank: Should keep the configuration order between equally loaded accounts")
+        void rank_StableOnTies() {
+                // GIVEN
+                EmailConfig first = account("account-1", 1);
+                EmailConfig second = account("account-2", 1);
+
+                // WHEN & THEN
+                assertEquals(List.of(first, second), router.rank(List.of(first, second)));
+        }
+
+        @Test
+        @DisplayName("✅ rank: Should weigh an account built without a weight as 1")
+        void rank_DefaultWeight() {
+                // GIVEN: 1 message in flight on a weight-2 account, none on an account with the default weight
+                EmailConfig weighted = account("account-1", 2);
+                EmailConfig unweighted = EmailConfig.builder()
+                                .id("account-2")
+                                .apiClient(ApiClient.builder().id("client-1").build())
+                                .provider(EmailProvider.SMTP)
+                                .build();
+                router.dispatched(weighted, 1);
+
+                // WHEN & THEN: 0/1 < 1/2, then 1/2 < 2/1
+                assertEquals(1, unweighted.getWeight());
+                assertEquals(List.of(unweighted, weighted), router.rank(List.of(weighted, unweighted)));
+                router.dispatched(unweighted, 2);
+                assertEquals(List.of(weighted, unweighted), router.rank(List.of(unweighted, weighted)));
+        }
+
+        @Test
+        @DisplayName("❌ recordFailure: Should eject an account after consecutive failures, until it succeeds again")
+        void recordFailure_EjectsAccount() {
+                // GIVEN
+                EmailConfig failing = account("account-1", 1);
+                EmailConfig healthy = account("account-2", 1);
+                router.recordFailure(failing);
+                assertFalse(router.isEjected(failing));
+
+                // WHEN
+                router.recordFailure(failing);
+
+                // THEN: Out of the rotation, counted once
+                assertTrue(router.isEjected(failing));
+                assertEquals(List.of(healthy), router.rank(List.of(failing, healthy)));
+                verify(metrics, times(1)).recordAccountEjection("client-1", "account-1");
+
+                // WHEN & THEN: A success puts it back
+                router.recordSuccess(failing);
+                assertFalse(router.isEjected(failing));
+                assertEquals(List.of(failing, healthy), router.rank(List.of(failing, healthy)));
+        }
+
+        @Test
+        @DisplayName("✅ rank: Should still use the accounts when all of them are ejected")
+        void rank_AllEjected() {
+                // GIVEN
+                EmailConfig only = account("account-1", 1);
+                router.recordFailure(only);
+                router.recordFailure(only);
+
+                // WHEN & THEN: The client's circuit breaker decides from there
+                assertEquals(List.of(only), router.rank(List.of(only)));
+        }
+
+        private EmailConfig account(String id, int weight) {
+                return EmailConfig.builder()
+                                .id(id)
+                                .apiClient(ApiClient.builder().id("client-1").build())
+                                .provider(EmailProvider.SMTP)
+                                .weight(weight)
+                                .build();
+        }
+}
@@ -0,0 +1,94 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.model.EmailConfig;
+import com.florentdeborde.mayleo.model.EmailProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Unit Test - SmtpAccountPacer")
+class SmtpAccountPacerTest {
+
+        @Test
+        @DisplayName("✅ acquire: Should grant up to the burst, then tell when the next token is due")
+        void acquire_BurstThenRetryAt() {
+                // GIVEN: 30 messages per minute, bursts of 3
+                SmtpAccountPacer pacer = new SmtpAccountPacer(0, 60, 30, 3, 1);
+                EmailConfig account = config(EmailProvider.MICROSOFT, "sender@a.com");
+
+                // WHEN
+                SmtpAccountPacer.Grant grant = pacer.acquire(account, 5);
+
+                // THEN: A token every 2s
+                assertEquals(3, grant.granted());
+                assertNotNull(grant.retryAt());
+                assertTrue(grant.retryAt().isAfter(Instant.now().plusMillis(1500)));
+                assertEquals(0, pacer.acquire(account, 1).granted());
+        }
+
+        @Test
+        @DisplayName("✅ acquire: Should take this node's share of the rate and burst")
+        void acquire_SharedBetweenInstances() {
+                // GIVEN: 30 messages per minute, bursts of 4, over 2 nodes
+                SmtpAccountPacer pacer = new SmtpAccountPacer(0, 60, 30, 4, 2);
+                EmailConfig account = config(EmailProvider.MICROSOFT, "sender@a.com");
+
+                // WHEN
+                SmtpAccountPacer.Grant grant = pacer.acquire(account, 5);
+
+                // THEN: Bursts of 2, then a token every 4s
+                assertEquals(2, grant.granted());
+                assertTrue(grant.retryAt().isAfter(Instant.now().plusMillis(3500)));
+        }
+
+        @Test
+        @DisplayName("✅ acquire: Should pace each account on its own")
+        void acquire_PerAccount() {
+                // GIVEN
+                SmtpAccountPacer pacer = new SmtpAccountPacer(0, 60, 30, 1, 1);
+                assertEquals(1, pacer.acquire(config(EmailProvider.MICROSOFT, "sender@a.com"), 1).granted());
+
+                // WHEN
+                SmtpAccountPacer.Grant other = pacer.acquire(config(EmailProvider.MICROSOFT, "sender@b.com"), 1);
+
+                // THEN
+                assertEquals(1, other.granted());
+                assertNull(other.retryAt());
+        }
+
+        @Test
+        @DisplayName("✅ acquire: Should not pace providers with a rate of 0")
+        void acquire_Unpaced() {
+                // GIVEN: Custom SMTP servers are not paced by default
+                SmtpAccountPacer pacer = new SmtpAccountPacer(0, 60, 30, 1, 1);
+
+                // WHEN
+                SmtpAccountPacer.Grant grant = pacer.acquire(config(EmailProvider.SMTP, "sender@a.com"), 500);
+
+                // THEN
+                assertEquals(500, grant.granted());
+                assertNull(grant.retryAt());
+        }
+
+        @Test
+        @DisplayName("♻ refund: Should give back the tokens of requests that were not sent")
+        void refund_GivesTokensBack() {
+                // GIVEN
+                SmtpAccountPacer pacer = new SmtpAccountPacer(0, 60, 30, 2, 1);
+                EmailConfig account = config(EmailProvider.MICROSOFT, "sender@a.com");
+                assertEquals(2, pacer.acquire(account, 2).granted());
+
+                // WHEN
+                pacer.refund(account, 2);
+
+                // THEN
+                assertEquals(2, pacer.acquire(account, 2).granted());
+        }
+
+        private EmailConfig config(EmailProvider provider, String username) {
+                return EmailConfig.builder().provider(provider).smtpUsername(username).build();
+        }
+}
@@ -0,0 +1,157 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("Unit Test - SmtpHostLimiter")
+class SmtpHostLimiterTest {
+
+        private final MayleoMetrics metrics = mock(MayleoMetrics.class);
+
+        @Test
+        @DisplayName("✅ tryAcquire: Should cap concurrent sends per host, independently for each host")
+        void tryAcquire_PerHost() throws Exception {
+                // GIVEN
+                SmtpHostLimiter limiter = new SmtpHostLimiter(2, 0, Duration.ofMillis(10), "virtual", metrics);
+
+                // WHEN
+                assertTrue(limiter.tryAcquire("smtp.a.com"));
+                assertTrue(limiter.tryAcquire("smtp.a.com"));
+
+                // THEN: The third send to the same host times out, another host is unaffected
+                assertFalse(limiter.tryAcquire("smtp.a.com"));
+                assertTrue(limiter.tryAcquire("smtp.b.com"));
+                assertEquals(2, limiter.inUse("smtp.a.com"));
+                assertEquals(1, limiter.inUse("smtp.b.com"));
+        }
+
+        @Test
+        @DisplayName("✅ release: Should free the slot for the next send to that host")
+        void release_FreesSlot() throws Exception {
+                // GIVEN
+                SmtpHostLimiter limiter = new SmtpHostLimiter(1, 0, Duration.ofMillis(10), "platform", metrics);
+                assertTrue(limiter.tryAcquire("smtp.a.com"));
+
+                // WHEN
+                limiter.release("smtp.a.com");
+
+                // THEN
+                assertTrue(limiter.tryAcquire("smtp.a.com"));
+                assertEquals(0, limiter.inUse("smtp.unknown.com"));
+        }
+
+        @Test
+        @DisplayName("✅ tryAdmit: Should admit running plus queued groups per host, then refuse without waiting")
+        void tryAdmit_BoundedPerHost() {
+                // GIVEN: 1 slot and 2 queued groups per host, virtual threads wait for a slot
+                SmtpHostLimiter limiter = new SmtpHostLimiter(1, 2, Duration.ofSeconds(30), "virtual", metrics);
+
+                // WHEN
+                for (int i = 0; i < 3; i++) {
+                        assertTrue(limiter.tryAdmit("smtp.slow.com"));
+                }
+
+                // THEN: The slow host is full, another host is unaffected
+                assertFalse(limiter.tryAdmit("smtp.slow.com"));
+                assertTrue(limiter.tryAdmit("smtp.other.com"));
+                assertEquals(3, limiter.admitted("smtp.slow.com"));
+                verify(metrics).recordSmtpBulkheadRejected("smtp.slow.com");
+                verify(metrics, times(2)).registerSmtpBulkhead(any(), any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("♻ leave: Should make room for the next group of that host")
+        void leave_FreesAdmission() {
+                // GIVEN
+                SmtpHostLimiter limiter = new SmtpHostLimiter(1, 0, Duration.ofSeconds(30), "platform", metrics);
+                assertTrue(limiter.tryAdmit("smtp.a.com"));
+                assertFalse(limiter.tryAdmit("smtp.a.com"));
+
+                // WHEN
+                limiter.leave("smtp.a.com");
+
+                // THEN
+                assertTrue(limiter.tryAdmit("smtp.a.com"));
+                verify(metrics).registerSmtpBulkhead(eq("smtp.a.com"), any(), any(), eq(1));
+        }
+
+        @Test
+        @DisplayName("✅ tryAdmit: Should admit no more groups than slots with the platform pool, and never wait")
+        void tryAdmit_PlatformAdmitsSlotsOnly() throws Exception {
+                // GIVEN: 2 slots, queued groups and host wait ignored
+                SmtpHostLimiter limiter = new SmtpHostLimiter(2, 10, Duration.ofSeconds(30), "platform", metrics);
+
+                // WHEN & THEN
+                assertTrue(limiter.tryAdmit("smtp.a.com"));
+                assertTrue(limiter.tryAdmit("smtp.a.com"));
+                assertFalse(limiter.tryAdmit("smtp.a.com"));
+                assertTrue(limiter.tryAcquire("smtp.a.com"));
+                assertTrue(limiter.tryAcquire("smtp.a.com"));
+                long start = System.nanoTime();
+                assertFalse(limiter.tryAcquire("smtp.a.com"));
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "Should not wait for host-wait");
+        }
+
+        @Test
+        @DisplayName("❌ tryAdmit: Should leave pool threads to other hosts while one host is stuck")
+        void tryAdmit_StuckHostDoesNotStarvePool() throws Exception {
+                // GIVEN: A 4-thread pool, 2 slots per host, a host that never answers
+                SmtpHostLimiter limiter = new SmtpHostLimiter(2, 10, Duration.ofSeconds(30), "platform", metrics);
+                ExecutorService pool = Executors.newFixedThreadPool(4);
+                CountDownLatch stuck = new CountDownLatch(1);
+                try {
+                        int admitted = 0;
+                        for (int i = 0; i < 10; i++) {
+                                if (limiter.tryAdmit("smtp.stuck.com")) {
+                                        admitted++;
+                                        pool.submit(() -> send(limiter, "smtp.stuck.com", stuck));
+                                }
+                        }
+
+                        // WHEN: A group of another host comes next
+                        assertTrue(limiter.tryAdmit("smtp.fast.com"));
+                        Future<Boolean> fast = pool.submit(() -> send(limiter, "smtp.fast.com", new CountDownLatch(0)));
+
+                        // THEN: The stuck host holds 2 threads at most, the other host is sent right away
+                        assertEquals(2, admitted);
+                        assertTrue(fast.get(1, TimeUnit.SECONDS));
+                } finally {
+                        stuck.countDown();
+                        pool.shutdown();
+                }
+        }
+
+        // What EmailSenderService does with an admitted group
+        private boolean send(SmtpHostLimiter limiter, String host, CountDownLatch smtpConversation)
+                        throws InterruptedException {
+                try {
+                        if (!limiter.tryAcquire(host)) {
+                                return false;
+                        }
+                        try {
+                                smtpConversation.await();
+                                return true;
+                        } finally {
+                                limiter.release(host);
+                        }
+                } finally {
+                        limiter.leave(host);
+                }
+        }
+}
@@ -0,0 +1,87 @@
+package com.florentdeborde.mayleo.service;
+
+import com.florentdeborde.mayleo.metrics.MayleoMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.net.Socket;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Unit Test - SmtpTlsContext")
+class SmtpTlsContextTest {
+
+        private MayleoMetrics metrics;
+        private SmtpTlsContext tlsContext;
+
+        @BeforeEach
+        void setUp() {
+                metrics = mock(MayleoMetrics.class);
+                tlsContext = new SmtpTlsContext(500, Duration.ofHours(2), metrics);
+        }
+
+        @Test
+        @DisplayName("✅ SmtpTlsContext: Should size the client session cache and keep sessions for the timeout")
+        void constructor_TunesSessionCache() {
+                // WHEN & THEN
+                assertEquals(500, tlsContext.sslContext().getClientSessionContext().getSessionCacheSize());
+                assertEquals(7200, tlsContext.sslContext().getClientSessionContext().getSessionTimeout());
+        }
+
+        @Test
+        @DisplayName("✅ socketFactory: Should hand out TLS sockets from the shared context")
+        void socketFactory_Shared() throws Exception {
+                // WHEN
+                try (Socket socket = tlsContext.socketFactory().createSocket()) {
+                        // THEN: Same factory for every sender, unconnected sockets for JavaMail to connect
+                        assertSame(tlsContext.socketFactory(), tlsContext.socketFactory());
+                        assertInstanceOf(SSLSocket.class, socket);
+                        assertFalse(socket.isConnected());
+                }
+        }
+
+        @Test
+        @DisplayName("✅ handshakeCompleted: Should time the handshake from the socket creation, per host")
+        void handshakeCompleted_TimedPerHost() {
+                // GIVEN: Socket created 50ms before the handshake completed
+                SSLSession session = session("smtp.test.com");
+                long createdAt = System.nanoTime() - Duration.ofMillis(50).toNanos();
+
+                // WHEN
+                tlsContext.handshakeCompleted(session, createdAt);
+
+                // THEN
+                ArgumentCaptor<Duration> duration = ArgumentCaptor.forClass(Duration.class);
+                verify(metrics).recordSmtpTlsHandshake(eq("smtp.test.com"), duration.capture());
+                assertTrue(duration.getValue().toMillis() >= 50);
+        }
+
+        @Test
+        @DisplayName("✅ handshakeCompleted: Should record a session without peer host under 'unknown'")
+        void handshakeCompleted_UnknownHost() {
+                // GIVEN
+                SSLSession session = session(null);
+
+                // WHEN
+                tlsContext.handshakeCompleted(session, System.nanoTime());
+
+                // THEN
+                verify(metrics).recordSmtpTlsHandshake(eq("unknown"), any(Duration.class));
+        }
+
+        private SSLSession session(String host) {
+                SSLSession session = mock(SSLSession.class);
+                when(session.getPeerHost()).thenReturn(host);
+                return session;
+        }
+}
@@ -0,0 +1,75 @@
+package com.florentdeborde.mayleo.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Unit Test - TenantShareAllocator")
+class TenantShareAllocatorTest {
+
+        private final TenantShareAllocator allocator = new TenantShareAllocator();
+
+        @Test
+        @DisplayName("✅ allocate: Should split the slots by weight")
+        void allocate_ByWeight() {
+                // GIVEN
+                Map<String, Integer> weights = new LinkedHashMap<>();
+                weights.put("campaign", 1);
+                weights.put("premium", 3);
+
+                // WHEN
+                Map<String, Integer> shares = allocator.allocate(weights, 100);
+
+                // THEN
+                assertEquals(25, shares.get("campaign"));
+                assertEquals(75, shares.get("premium"));
+        }
+
+        @Test
+        @DisplayName("✅ allocate: Should serve every tenant over time when there are more tenants than slots")
+        void allocate_MoreTenantsThanSlots() {
+                // GIVEN: 10 equal tenants, 3 slots per claim
+                Map<String, Integer> weights = new LinkedHashMap<>();
+                for (int i = 0; i < 10; i++) {
+                        weights.put("client-" + i, 1);
+                }
+
+                // WHEN: 10 claims, every tenant taking what it is granted
+                Map<String, Integer> served = new HashMap<>();
+                for (int claim = 0; claim < 10; claim++) {
+                        Map<String, Integer> shares = allocator.allocate(weights, 3);
+                        assertEquals(3, shares.values().stream().mapToInt(Integer::intValue).sum());
+                        shares.forEach((id, share) -> {
+                                allocator.record(id, share, share);
+                                served.merge(id, share, Integer::sum);
+                        });
+                }
+
+                // THEN: 30 slots, 3 each
+                weights.keySet().forEach(id -> assertEquals(3, served.get(id)));
+        }
+
+        @Test
+        @DisplayName("✅ record: Should not let a drained tenant save up credit")
+        void record_DrainedTenantLosesCredit() {
+                // GIVEN: A tenant that only had 1 request for its share of 5
+                Map<String, Integer> weights = new LinkedHashMap<>();
+                weights.put("small", 1);
+                weights.put("campaign", 1);
+                allocator.allocate(weights, 10);
+                allocator.record("small", 5, 1);
+                allocator.record("campaign", 5, 5);
+
+                // WHEN: It gets a backlog again
+                Map<String, Integer> shares = allocator.allocate(weights, 10);
+
+                // THEN: Back to an equal split, no burst
+                assertEquals(5, shares.get("small"));
+                assertEquals(5, shares.get("campaign"));
+        }
+}